@@ -0,0 +1,171 @@
+package de.thepivi.android.dic;
+
+import android.os.Build;
+
+import java.io.IOException;
+
+/**
+ * Immutable snapshot of the {@link Build} and {@link Build.VERSION} fields.
+ * <p/>
+ * These values can not change while the process is alive, so the snapshot is
+ * taken once on first access and its text sections are rendered only once.
+ */
+public final class BuildInfo {
+
+    public final String board;
+    public final String brand;
+    public final String cpuAbi;
+    public final String device;
+    public final String display;
+    public final String fingerprint;
+    public final String host;
+    public final String id;
+    public final String manufacturer;
+    public final String model;
+    public final String product;
+    public final String tags;
+    public final long time;
+    public final String type;
+    public final String user;
+
+    public final String versionCodename;
+    public final String versionIncremental;
+    public final String versionRelease;
+    public final String versionSdk;
+    public final int versionSdkInt;
+
+    private String buildString;
+    private String buildVersionString;
+
+    BuildInfo(String board, String brand, String cpuAbi, String device, String display,
+              String fingerprint, String host, String id, String manufacturer, String model,
+              String product, String tags, long time, String type, String user,
+              String versionCodename, String versionIncremental, String versionRelease,
+              String versionSdk, int versionSdkInt) {
+        this.board = board;
+        this.brand = brand;
+        this.cpuAbi = cpuAbi;
+        this.device = device;
+        this.display = display;
+        this.fingerprint = fingerprint;
+        this.host = host;
+        this.id = id;
+        this.manufacturer = manufacturer;
+        this.model = model;
+        this.product = product;
+        this.tags = tags;
+        this.time = time;
+        this.type = type;
+        this.user = user;
+        this.versionCodename = versionCodename;
+        this.versionIncremental = versionIncremental;
+        this.versionRelease = versionRelease;
+        this.versionSdk = versionSdk;
+        this.versionSdkInt = versionSdkInt;
+    }
+
+    /**
+     * @return the snapshot of the running build, taken on first call.
+     */
+    public static BuildInfo get() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * @return the memoized "BUILD:" section.
+     */
+    public String toStringBuild() {
+        String result = buildString;
+
+        if (null == result) {
+            StringBuilder sb = new StringBuilder(512);
+
+            sb.append("BUILD:");
+            sb.append("\nBOARD=").append(board);
+            sb.append("\nBRAND=").append(brand);
+            sb.append("\nCPU_ABI=").append(cpuAbi);
+            sb.append("\nDEVICE=").append(device);
+            sb.append("\nDISPLAY=").append(display);
+            sb.append("\nFINGERPRINT=").append(fingerprint);
+            sb.append("\nHOST=").append(host);
+            sb.append("\nID=").append(id);
+            sb.append("\nTAGS=").append(tags);
+            sb.append("\nTIME=").append(time);
+            sb.append("\nTYPE=").append(type);
+            sb.append("\nUSER=").append(user);
+            sb.append("\nMANUFACTURER=").append(manufacturer);
+            sb.append("\nMODEL=").append(model);
+            sb.append("\nPRODUCT=").append(product);
+
+            // racy single-check: every thread computes the same immutable string
+            result = buildString = sb.toString();
+        }
+
+        return result;
+    }
+
+    /**
+     * @return the memoized "BUILD VERSION:" section.
+     */
+    public String toStringBuildVersion() {
+        String result = buildVersionString;
+
+        if (null == result) {
+            StringBuilder sb = new StringBuilder(128);
+
+            sb.append("BUILD VERSION:");
+            sb.append("\nRELEASE=").append(versionRelease);
+            sb.append("\nCODENAME=").append(versionCodename);
+            sb.append("\nINCREMENTAL=").append(versionIncremental);
+            sb.append("\nSDK=").append(versionSdk);
+            sb.append("\nSDK_INT=").append(versionSdkInt);
+
+            result = buildVersionString = sb.toString();
+        }
+
+        return result;
+    }
+
+    public void writeTo(SnapshotOutput out) throws IOException {
+        out.writeString(board);
+        out.writeString(brand);
+        out.writeString(cpuAbi);
+        out.writeString(device);
+        out.writeString(display);
+        out.writeString(fingerprint);
+        out.writeString(host);
+        out.writeString(id);
+        out.writeString(manufacturer);
+        out.writeString(model);
+        out.writeString(product);
+        out.writeString(tags);
+        out.writeLong(time);
+        out.writeString(type);
+        out.writeString(user);
+        out.writeString(versionCodename);
+        out.writeString(versionIncremental);
+        out.writeString(versionRelease);
+        out.writeString(versionSdk);
+        out.writeInt(versionSdkInt);
+    }
+
+    public static BuildInfo readFrom(SnapshotInput in) throws IOException {
+        return new BuildInfo(in.readString(), in.readString(), in.readString(),
+                in.readString(), in.readString(), in.readString(), in.readString(),
+                in.readString(), in.readString(), in.readString(), in.readString(),
+                in.readString(), in.readLong(), in.readString(), in.readString(),
+                in.readString(), in.readString(), in.readString(), in.readString(),
+                in.readInt());
+    }
+
+    /**
+     * Lazy initialization holder, the class is loaded on first {@link #get()}.
+     */
+    private static class Holder {
+        static final BuildInfo INSTANCE = new BuildInfo(Build.BOARD, Build.BRAND, Build.CPU_ABI,
+                Build.DEVICE, Build.DISPLAY, Build.FINGERPRINT, Build.HOST, Build.ID,
+                Build.MANUFACTURER, Build.MODEL, Build.PRODUCT, Build.TAGS, Build.TIME,
+                Build.TYPE, Build.USER, Build.VERSION.CODENAME, Build.VERSION.INCREMENTAL,
+                Build.VERSION.RELEASE, Build.VERSION.SDK, Build.VERSION.SDK_INT);
+    }
+}
@@ -0,0 +1,229 @@
+package de.thepivi.android.dic;
+
+/**
+ * Cells of one scan of {@link CellScanner}, one compact record per cell held
+ * in parallel primitive arrays. Unknown values are
+ * {@link Integer#MAX_VALUE}, as reported by the platform.
+ */
+public class CellScan {
+
+    public static final int TYPE_GSM = 1;
+    public static final int TYPE_CDMA = 2;
+    public static final int TYPE_WCDMA = 3;
+    public static final int TYPE_LTE = 4;
+
+    /**
+     * Only set by an incremental scan: the cell was not in the previous scan.
+     */
+    public static final int CHANGE_ADDED = 1;
+    /**
+     * Only set by an incremental scan: the signal or the registration of the
+     * cell changed.
+     */
+    public static final int CHANGE_UPDATED = 2;
+    /**
+     * Only set by an incremental scan: the cell is gone, its values are those
+     * of the previous scan.
+     */
+    public static final int CHANGE_REMOVED = 3;
+
+    public static final int UNKNOWN = Integer.MAX_VALUE;
+
+    /**
+     * Key of a cell which reports neither its id nor its PSC or PCI, e.g. most
+     * GSM neighbors. Such cells cannot be told apart.
+     */
+    public static final long NO_KEY = 0;
+
+    /**
+     * {@link android.os.SystemClock#elapsedRealtime()} of the scan.
+     */
+    public long timestamp;
+    public int count;
+
+    public long[] key;
+    public int[] type;
+    public int[] change;
+    public boolean[] registered;
+    /**
+     * MCC, or the system id for CDMA.
+     */
+    public int[] mcc;
+    /**
+     * MNC, or the network id for CDMA.
+     */
+    public int[] mnc;
+    /**
+     * LAC, or the TAC for LTE.
+     */
+    public int[] area;
+    /**
+     * CID, the CI for LTE or the base station id for CDMA.
+     */
+    public int[] cellId;
+    /**
+     * PSC for WCDMA, PCI for LTE.
+     */
+    public int[] code;
+    public int[] dbm;
+    /**
+     * Timing advance, only known for LTE.
+     */
+    public int[] timingAdvance;
+
+    public CellScan() {
+        this(8);
+    }
+
+    public CellScan(int capacity) {
+        key = new long[capacity];
+        type = new int[capacity];
+        change = new int[capacity];
+        registered = new boolean[capacity];
+        mcc = new int[capacity];
+        mnc = new int[capacity];
+        area = new int[capacity];
+        cellId = new int[capacity];
+        code = new int[capacity];
+        dbm = new int[capacity];
+        timingAdvance = new int[capacity];
+    }
+
+    /**
+     * Appends a cell and computes its key.
+     *
+     * @return the index of the cell
+     */
+    public int add(int type, boolean registered, int mcc, int mnc, int area, int cellId, int code,
+                   int dbm, int timingAdvance) {
+        if (count == key.length) grow();
+
+        int i = count++;
+        this.type[i] = type;
+        this.change[i] = 0;
+        this.registered[i] = registered;
+        this.mcc[i] = mcc;
+        this.mnc[i] = mnc;
+        this.area[i] = area;
+        this.cellId[i] = cellId;
+        this.code[i] = code;
+        this.dbm[i] = dbm;
+        this.timingAdvance[i] = timingAdvance;
+        this.key[i] = keyOf(type, mcc, mnc, area, cellId, code);
+
+        return i;
+    }
+
+    /**
+     * Appends a copy of cell {@code i} of another scan.
+     *
+     * @return the index of the cell
+     */
+    public int add(CellScan scan, int i) {
+        if (count == key.length) grow();
+
+        set(count, scan, i);
+
+        return count++;
+    }
+
+    /**
+     * Overwrites cell {@code i} with a copy of cell {@code j} of another scan.
+     */
+    public void set(int i, CellScan scan, int j) {
+        key[i] = scan.key[j];
+        type[i] = scan.type[j];
+        change[i] = scan.change[j];
+        registered[i] = scan.registered[j];
+        mcc[i] = scan.mcc[j];
+        mnc[i] = scan.mnc[j];
+        area[i] = scan.area[j];
+        cellId[i] = scan.cellId[j];
+        code[i] = scan.code[j];
+        dbm[i] = scan.dbm[j];
+        timingAdvance[i] = scan.timingAdvance[j];
+    }
+
+    /**
+     * @return the index of the cell with given key, -1 if there is none or the
+     * key is {@link #NO_KEY}
+     */
+    public int indexOf(long key) {
+        if (key == NO_KEY) return -1;
+
+        for (int i = 0; i < count; i++) {
+            if (this.key[i] == key) return i;
+        }
+
+        return -1;
+    }
+
+    public void clear() {
+        count = 0;
+        timestamp = 0;
+    }
+
+    /**
+     * Identifies a cell: the type in the top 4 bits, the PLMN in the next 20
+     * and the cell in the low 40 bits. Cells without a known id are told apart
+     * by their LAC or TAC and their PSC or PCI.
+     *
+     * @return {@link #NO_KEY} if neither the id nor the PSC or PCI is known
+     */
+    static long keyOf(int type, int mcc, int mnc, int area, int cellId, int code) {
+        long plmn;
+        long cell;
+
+        if (type == TYPE_CDMA) {
+            if (cellId == UNKNOWN) return NO_KEY;
+
+            plmn = mcc & 0x7fff;
+            cell = ((long) (mnc & 0xffff) << 16) | (cellId & 0xffff);
+        } else {
+            plmn = mcc == UNKNOWN || mnc == UNKNOWN ? 0xfffff : (mcc & 0x3ff) * 1000 + (mnc & 0x3ff);
+            if (cellId == UNKNOWN) {
+                if (code == UNKNOWN) return NO_KEY;
+
+                cell = (1L << 39) | ((long) (area & 0xffff) << 20) | (code & 0xfffff);
+            } else if (type == TYPE_GSM) {
+                cell = ((long) (area & 0xffff) << 16) | (cellId & 0xffff);
+            } else {
+                cell = cellId & 0xfffffff;
+            }
+        }
+
+        return ((long) type << 60) | ((plmn & 0xfffff) << 40) | (cell & 0xffffffffffL);
+    }
+
+    private void grow() {
+        int capacity = Math.max(8, key.length * 2);
+
+        key = copyOf(key, capacity);
+        type = copyOf(type, capacity);
+        change = copyOf(change, capacity);
+        boolean[] grownRegistered = new boolean[capacity];
+        System.arraycopy(registered, 0, grownRegistered, 0, count);
+        registered = grownRegistered;
+        mcc = copyOf(mcc, capacity);
+        mnc = copyOf(mnc, capacity);
+        area = copyOf(area, capacity);
+        cellId = copyOf(cellId, capacity);
+        code = copyOf(code, capacity);
+        dbm = copyOf(dbm, capacity);
+        timingAdvance = copyOf(timingAdvance, capacity);
+    }
+
+    private long[] copyOf(long[] array, int capacity) {
+        long[] copy = new long[capacity];
+        System.arraycopy(array, 0, copy, 0, count);
+
+        return copy;
+    }
+
+    private int[] copyOf(int[] array, int capacity) {
+        int[] copy = new int[capacity];
+        System.arraycopy(array, 0, copy, 0, count);
+
+        return copy;
+    }
+}
@@ -0,0 +1,186 @@
+package de.thepivi.android.dic;
+
+import android.content.Context;
+import android.os.Build;
+import android.os.SystemClock;
+import android.telephony.CellIdentityCdma;
+import android.telephony.CellIdentityGsm;
+import android.telephony.CellIdentityLte;
+import android.telephony.CellIdentityWcdma;
+import android.telephony.CellInfo;
+import android.telephony.CellInfoCdma;
+import android.telephony.CellInfoGsm;
+import android.telephony.CellInfoLte;
+import android.telephony.CellInfoWcdma;
+import android.telephony.TelephonyManager;
+
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Scans the serving and neighboring cells via
+ * {@link TelephonyManager#getAllCellInfo()}, which replaces the deprecated
+ * {@link TelephonyManager#getNeighboringCellInfo()}.
+ * <p/>
+ * Each cell is decoded into a compact record of a {@link CellScan}, cells
+ * reported twice in a scan are merged. The scanner counts the distinct cells
+ * seen across all scans and, in incremental mode, reports only the cells which
+ * were added, changed or removed since the previous scan. Cells without a
+ * usable identity, {@link CellScan#NO_KEY}, are neither merged nor counted and
+ * an incremental scan reports them as added every time.
+ */
+public class CellScanner {
+
+    /**
+     * Signal change in dBm an incremental scan reports by default.
+     */
+    public static final int DEFAULT_DBM_THRESHOLD = 3;
+
+    private final TelephonyManager telephonyManager;
+    private final int dbmThreshold;
+    private final CellScan raw = new CellScan();
+    private final HashSet<Long> seen = new HashSet<Long>();
+    private CellScan previous = new CellScan();
+    private CellScan current = new CellScan();
+
+    public CellScanner(Context context) {
+        this(context, DEFAULT_DBM_THRESHOLD);
+    }
+
+    /**
+     * @param dbmThreshold signal change in dBm an incremental scan reports
+     */
+    public CellScanner(Context context, int dbmThreshold) {
+        telephonyManager = DeviceContextProvider.getTelephonyManager(context);
+        this.dbmThreshold = dbmThreshold;
+    }
+
+    /**
+     * Scans the cells. Empty before JELLY_BEAN_MR1 and on devices without
+     * telephony.
+     *
+     * @param incremental whether to report only the changes since the previous
+     *                    scan, marked in {@link CellScan#change}
+     */
+    public synchronized CellScan scan(boolean incremental) {
+        raw.clear();
+
+        if (null != telephonyManager && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+            readCells(telephonyManager.getAllCellInfo(), raw);
+        }
+
+        return update(raw, SystemClock.elapsedRealtime(), incremental);
+    }
+
+    /**
+     * @return the number of distinct cells seen in all scans
+     */
+    public synchronized int getDistinctCellCount() {
+        return seen.size();
+    }
+
+    /**
+     * Forgets the previous scan and the cells seen.
+     */
+    public synchronized void reset() {
+        previous.clear();
+        seen.clear();
+    }
+
+    synchronized CellScan update(CellScan cells, long timestamp, boolean incremental) {
+        current.clear();
+        current.timestamp = timestamp;
+
+        for (int i = 0; i < cells.count; i++) {
+            int j = current.indexOf(cells.key[i]);
+
+            if (j < 0) {
+                current.add(cells, i);
+                if (cells.key[i] != CellScan.NO_KEY) seen.add(cells.key[i]);
+            } else if (cells.registered[i] && !current.registered[j]) {
+                current.set(j, cells, i);
+            }
+        }
+
+        CellScan result = new CellScan(current.count);
+        result.timestamp = timestamp;
+
+        for (int i = 0; i < current.count; i++) {
+            int change = 0;
+
+            if (incremental) {
+                int p = previous.indexOf(current.key[i]);
+
+                if (p < 0) {
+                    change = CellScan.CHANGE_ADDED;
+                } else if (Math.abs(current.dbm[i] - previous.dbm[p]) >= dbmThreshold
+                        || current.registered[i] != previous.registered[p]) {
+                    change = CellScan.CHANGE_UPDATED;
+                } else {
+                    continue;
+                }
+            }
+
+            result.change[result.add(current, i)] = change;
+        }
+
+        if (incremental) {
+            for (int p = 0; p < previous.count; p++) {
+                if (previous.key[p] != CellScan.NO_KEY && current.indexOf(previous.key[p]) < 0) {
+                    result.change[result.add(previous, p)] = CellScan.CHANGE_REMOVED;
+                }
+            }
+        }
+
+        CellScan swap = previous;
+        previous = current;
+        current = swap;
+
+        return result;
+    }
+
+    private static void readCells(List<CellInfo> cells, CellScan scan) {
+        if (null == cells) return;
+
+        for (int i = 0; i < cells.size(); i++) {
+            CellInfo cell = cells.get(i);
+
+            if (cell instanceof CellInfoLte) {
+                CellInfoLte lte = (CellInfoLte) cell;
+                CellIdentityLte identity = lte.getCellIdentity();
+
+                scan.add(CellScan.TYPE_LTE, cell.isRegistered(), identity.getMcc(), identity.getMnc(),
+                        identity.getTac(), identity.getCi(), identity.getPci(),
+                        lte.getCellSignalStrength().getDbm(),
+                        lte.getCellSignalStrength().getTimingAdvance());
+            } else if (cell instanceof CellInfoGsm) {
+                CellInfoGsm gsm = (CellInfoGsm) cell;
+                CellIdentityGsm identity = gsm.getCellIdentity();
+
+                scan.add(CellScan.TYPE_GSM, cell.isRegistered(), identity.getMcc(), identity.getMnc(),
+                        identity.getLac(), identity.getCid(), CellScan.UNKNOWN,
+                        gsm.getCellSignalStrength().getDbm(), CellScan.UNKNOWN);
+            } else if (cell instanceof CellInfoCdma) {
+                CellInfoCdma cdma = (CellInfoCdma) cell;
+                CellIdentityCdma identity = cdma.getCellIdentity();
+
+                scan.add(CellScan.TYPE_CDMA, cell.isRegistered(), identity.getSystemId(),
+                        identity.getNetworkId(), CellScan.UNKNOWN, identity.getBasestationId(),
+                        CellScan.UNKNOWN, cdma.getCellSignalStrength().getDbm(), CellScan.UNKNOWN);
+            } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+                readWcdmaCell(cell, scan);
+            }
+        }
+    }
+
+    private static void readWcdmaCell(CellInfo cell, CellScan scan) {
+        if (cell instanceof CellInfoWcdma) {
+            CellInfoWcdma wcdma = (CellInfoWcdma) cell;
+            CellIdentityWcdma identity = wcdma.getCellIdentity();
+
+            scan.add(CellScan.TYPE_WCDMA, cell.isRegistered(), identity.getMcc(), identity.getMnc(),
+                    identity.getLac(), identity.getCid(), identity.getPsc(),
+                    wcdma.getCellSignalStrength().getDbm(), CellScan.UNKNOWN);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package de.thepivi.android.dic;
+
+/**
+ * Is told how the collection of every snapshot section went, e.g. to keep
+ * {@link CollectionMetrics}.
+ * <p/>
+ * Is called on the collecting thread, concurrently when the sections are
+ * collected by a {@link DeviceSnapshotCollector}. Implementations should return
+ * quickly and must not throw.
+ */
+public interface CollectionListener {
+
+    int OUTCOME_COLLECTED = 0;
+    int OUTCOME_FAILED = 1;
+    int OUTCOME_TIMED_OUT = 2;
+
+    /**
+     * @param section   one of the {@code DeviceSnapshot.SECTION_*} ids
+     * @param thread    name of the collecting thread, {@code null} if the
+     *                  section timed out
+     * @param wallNanos elapsed time, the deadline if the section timed out
+     * @param cpuNanos  CPU time of the collecting thread, -1 if unknown
+     * @param outcome   one of the {@code OUTCOME_*} constants
+     * @param failure   the cause of {@link #OUTCOME_FAILED}, otherwise {@code null}
+     */
+    void onSectionCollected(int section, String thread, long wallNanos, long cpuNanos, int outcome,
+                            Throwable failure);
+}
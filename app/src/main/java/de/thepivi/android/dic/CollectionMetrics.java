@@ -0,0 +1,98 @@
+package de.thepivi.android.dic;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * {@link CollectionListener} which keeps wall and CPU time histograms and the
+ * outcomes of every section, to be exported with the report.
+ * <p/>
+ * Is thread safe, recording does not allocate.
+ */
+public class CollectionMetrics implements CollectionListener {
+
+    private final LatencyHistogram[] wallTimes = new LatencyHistogram[DeviceSnapshot.SECTION_MAX + 1];
+    private final LatencyHistogram[] cpuTimes = new LatencyHistogram[DeviceSnapshot.SECTION_MAX + 1];
+    private final AtomicIntegerArray failures = new AtomicIntegerArray(DeviceSnapshot.SECTION_MAX + 1);
+    private final AtomicIntegerArray timeouts = new AtomicIntegerArray(DeviceSnapshot.SECTION_MAX + 1);
+    private final AtomicReferenceArray<String> threads =
+            new AtomicReferenceArray<String>(DeviceSnapshot.SECTION_MAX + 1);
+    private final AtomicReferenceArray<Throwable> lastFailures =
+            new AtomicReferenceArray<Throwable>(DeviceSnapshot.SECTION_MAX + 1);
+
+    public CollectionMetrics() {
+        for (int section = 1; section <= DeviceSnapshot.SECTION_MAX; section++) {
+            wallTimes[section] = new LatencyHistogram();
+            cpuTimes[section] = new LatencyHistogram();
+        }
+    }
+
+    @Override
+    public void onSectionCollected(int section, String thread, long wallNanos, long cpuNanos,
+                                   int outcome, Throwable failure) {
+        if (section < 1 || section > DeviceSnapshot.SECTION_MAX) return;
+
+        wallTimes[section].record(wallNanos);
+        if (cpuNanos >= 0) cpuTimes[section].record(cpuNanos);
+        if (null != thread) threads.set(section, thread);
+
+        if (outcome == OUTCOME_FAILED) {
+            failures.incrementAndGet(section);
+            lastFailures.set(section, failure);
+        } else if (outcome == OUTCOME_TIMED_OUT) {
+            timeouts.incrementAndGet(section);
+        }
+    }
+
+    public LatencyHistogram getWallTimes(int section) {
+        return wallTimes[section];
+    }
+
+    public LatencyHistogram getCpuTimes(int section) {
+        return cpuTimes[section];
+    }
+
+    public int getFailures(int section) {
+        return failures.get(section);
+    }
+
+    public int getTimeouts(int section) {
+        return timeouts.get(section);
+    }
+
+    /**
+     * Appends the "Metrics:" section, times are in microseconds.
+     */
+    public void appendTo(StringBuilder sb) {
+        sb.append("Metrics:");
+        for (int section = 1; section <= DeviceSnapshot.SECTION_MAX; section++) {
+            LatencyHistogram wall = wallTimes[section];
+            LatencyHistogram cpu = cpuTimes[section];
+            Throwable failure = lastFailures.get(section);
+
+            sb.append('\n').append(DeviceSnapshotFormatter.nameOfSection(section));
+            sb.append(" count=").append(wall.getCount());
+            sb.append(" failed=").append(failures.get(section));
+            sb.append(" timedOut=").append(timeouts.get(section));
+            sb.append(" wall[p50=").append(wall.getValueAtPercentile(50) / 1000);
+            sb.append(" p99=").append(wall.getValueAtPercentile(99) / 1000);
+            sb.append(" max=").append(wall.getMax() / 1000);
+            sb.append("] cpu[p50=").append(cpu.getValueAtPercentile(50) / 1000);
+            sb.append(" p99=").append(cpu.getValueAtPercentile(99) / 1000);
+            sb.append(" max=").append(cpu.getMax() / 1000);
+            sb.append("] thread=").append(threads.get(section));
+            if (null != failure) sb.append(" lastFailure=").append(failure);
+        }
+    }
+
+    public void reset() {
+        for (int section = 1; section <= DeviceSnapshot.SECTION_MAX; section++) {
+            wallTimes[section].reset();
+            cpuTimes[section].reset();
+            failures.set(section, 0);
+            timeouts.set(section, 0);
+            threads.set(section, null);
+            lastFailures.set(section, null);
+        }
+    }
+}
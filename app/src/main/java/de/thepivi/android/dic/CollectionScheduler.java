@@ -0,0 +1,353 @@
+package de.thepivi.android.dic;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.os.SystemClock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects sections headless, each on its own cadence, and hands the results
+ * in batches to a {@link Sink}.
+ * <p/>
+ * Every wakeup collects all sections which are due, together with the
+ * sections due within their flex, a fraction of their interval. Collected
+ * sections are rescheduled from the same time, so their cadences stay
+ * aligned and later wakeups keep coalescing them. Sections collected on change
+ * never cause a wakeup, they ride along with the next one after a change.
+ * Batches are handed over when full or, at a wakeup, when the oldest snapshot
+ * is older than the batch delay.
+ * <p/>
+ * The scheduler runs within the process, it does not hold a wake lock.
+ */
+public class CollectionScheduler {
+
+    /**
+     * Receives the batches on a background thread.
+     */
+    public interface Sink {
+
+        /**
+         * @param snapshots oldest first, each holding the sections collected
+         *                  at one wakeup
+         */
+        void onBatch(List<DeviceSnapshot> snapshots);
+    }
+
+    public static final long CADENCE_DISABLED = -2;
+    /**
+     * Collected once per install and system build.
+     */
+    public static final long CADENCE_ONCE = -1;
+    /**
+     * Collected at start and after a change of the configuration, the display
+     * or the secure settings. Only for the sections depending on those.
+     */
+    public static final long CADENCE_ON_CHANGE = 0;
+
+    public static final float DEFAULT_FLEX = 0.25f;
+    public static final int DEFAULT_BATCH_SIZE = 16;
+    public static final long DEFAULT_BATCH_DELAY = 15 * 60 * 1000;
+
+    private static final String PREFERENCES = "dic_scheduler";
+    private static final String KEY_ONCE = "once_";
+    /**
+     * Delay after which a section collected once is collected again while it
+     * fails or times out.
+     */
+    private static final long ONCE_RETRY = 60 * 1000;
+
+    private final Context context;
+    private final Sink sink;
+    private final String fingerprint;
+    private final DeviceSnapshotCollector collector;
+    private final ScheduledExecutorService timer;
+    private final long[] cadences = new long[DeviceSnapshot.SECTION_MAX + 1];
+    private final long[] dues = new long[DeviceSnapshot.SECTION_MAX + 1];
+    private final int[] generations = new int[DeviceSnapshot.SECTION_MAX + 1];
+    private float flex = DEFAULT_FLEX;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private long batchDelay = DEFAULT_BATCH_DELAY;
+
+    private List<DeviceSnapshot> batch = new ArrayList<DeviceSnapshot>();
+    private long batchStart;
+    private SharedPreferences preferences;
+    private ScheduledFuture<?> wakeup;
+    private boolean started;
+
+    private final Runnable wakeupTask = new Runnable() {
+        @Override
+        public void run() {
+            wakeUp();
+        }
+    };
+
+    /**
+     * Creates a scheduler with the default cadences: build and sensors once,
+     * localization, display, configuration and secure settings on change,
+     * telephony and location every 30 seconds, the process and the system info
+     * every minute and the environment every 15 minutes.
+     */
+    public CollectionScheduler(Context context, Sink sink) {
+        this(context, sink, Build.FINGERPRINT);
+    }
+
+    /**
+     * @param fingerprint system build whose sections collected once are kept
+     */
+    CollectionScheduler(Context context, Sink sink, String fingerprint) {
+        this.context = context.getApplicationContext();
+        this.sink = sink;
+        this.fingerprint = fingerprint;
+        collector = new DeviceSnapshotCollector(this.context);
+        timer = new ScheduledThreadPoolExecutor(1,
+                new DeviceSnapshotCollector.CollectorThreadFactory("dic-scheduler-"));
+
+        cadences[DeviceSnapshot.SECTION_BUILD] = CADENCE_ONCE;
+        cadences[DeviceSnapshot.SECTION_LOCALIZATION] = CADENCE_ON_CHANGE;
+        cadences[DeviceSnapshot.SECTION_DISPLAY] = CADENCE_ON_CHANGE;
+        cadences[DeviceSnapshot.SECTION_CONFIGURATION] = CADENCE_ON_CHANGE;
+        cadences[DeviceSnapshot.SECTION_SECURE] = CADENCE_ON_CHANGE;
+        cadences[DeviceSnapshot.SECTION_TELEPHONY] = 30 * 1000;
+        cadences[DeviceSnapshot.SECTION_ENVIRONMENT] = 15 * 60 * 1000;
+        cadences[DeviceSnapshot.SECTION_SENSORS] = CADENCE_ONCE;
+        cadences[DeviceSnapshot.SECTION_PROCESS] = 60 * 1000;
+        cadences[DeviceSnapshot.SECTION_LOCATION] = 30 * 1000;
+        cadences[DeviceSnapshot.SECTION_SYSTEM] = 60 * 1000;
+    }
+
+    /**
+     * Sets the cadence of a section, takes effect on the next start.
+     *
+     * @param cadence interval in milliseconds or one of the {@code CADENCE_*}
+     *                constants
+     */
+    public synchronized void setCadence(int section, long cadence) {
+        cadences[section] = cadence;
+    }
+
+    /**
+     * @param flex fraction of its interval by which a section may be collected
+     *             early to share a wakeup
+     */
+    public synchronized void setFlex(float flex) {
+        this.flex = flex;
+    }
+
+    /**
+     * @param size  snapshots which fill a batch
+     * @param delay age in milliseconds after which a batch is handed over at
+     *              the next wakeup
+     */
+    public synchronized void setBatch(int size, long delay) {
+        batchSize = size;
+        batchDelay = delay;
+    }
+
+    /**
+     * Starts collecting, the sections which are due are collected right away.
+     */
+    public synchronized void start() {
+        if (started) return;
+
+        started = true;
+        schedule(SystemClock.elapsedRealtime());
+        wakeup = timer.schedule(wakeupTask, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops collecting and hands over the pending batch.
+     */
+    public void stop() {
+        synchronized (this) {
+            if (!started) return;
+
+            started = false;
+            if (null != wakeup) wakeup.cancel(false);
+        }
+
+        flush();
+    }
+
+    /**
+     * Stops collecting and the background threads.
+     */
+    public void shutdown() {
+        stop();
+        timer.shutdownNow();
+        collector.shutdown();
+    }
+
+    /**
+     * Hands the pending snapshots to the sink.
+     */
+    public void flush() {
+        List<DeviceSnapshot> snapshots;
+
+        synchronized (this) {
+            if (batch.isEmpty()) return;
+
+            snapshots = batch;
+            batch = new ArrayList<DeviceSnapshot>();
+        }
+
+        sink.onBatch(snapshots);
+    }
+
+    private void wakeUp() {
+        wakeUp(SystemClock.elapsedRealtime());
+    }
+
+    void wakeUp(long now) {
+        boolean flush;
+
+        synchronized (this) {
+            if (!started) return;
+
+            int sections = dueSections(now);
+
+            if (sections != 0) {
+                collected(sections, now);
+                collector.collect(sections, new DeviceSnapshotCollector.Callback() {
+                    @Override
+                    public void onSnapshotCollected(DeviceSnapshot snapshot) {
+                        add(snapshot, SystemClock.elapsedRealtime());
+                    }
+                }, null);
+            }
+
+            flush = !batch.isEmpty() && now - batchStart >= batchDelay;
+
+            long next = nextWakeup();
+            if (next != Long.MAX_VALUE) {
+                wakeup = timer.schedule(wakeupTask, Math.max(0, next - now), TimeUnit.MILLISECONDS);
+            }
+        }
+
+        if (flush) flush();
+    }
+
+    /**
+     * Adds a collected snapshot to the batch, at given time.
+     */
+    void add(DeviceSnapshot snapshot, long now) {
+        boolean flush;
+
+        synchronized (this) {
+            if (batch.isEmpty()) batchStart = now;
+            batch.add(snapshot);
+            flush = batch.size() >= batchSize;
+
+            for (int section = 1; section <= DeviceSnapshot.SECTION_MAX; section++) {
+                if (cadences[section] == CADENCE_ONCE && snapshot.hasSection(section)) {
+                    dues[section] = Long.MAX_VALUE;
+
+                    SharedPreferences.Editor editor = preferences.edit()
+                            .putString(KEY_ONCE + section, fingerprint);
+                    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.GINGERBREAD) {
+                        editor.apply();
+                    } else {
+                        editor.commit();
+                    }
+                }
+            }
+        }
+
+        if (flush) flush();
+    }
+
+    /**
+     * Sets the first due time of every section.
+     */
+    synchronized void schedule(long now) {
+        if (null == preferences) {
+            preferences = context.getSharedPreferences(PREFERENCES, Context.MODE_PRIVATE);
+        }
+
+        for (int section = 1; section <= DeviceSnapshot.SECTION_MAX; section++) {
+            long cadence = cadences[section];
+
+            if (cadence == CADENCE_DISABLED) {
+                dues[section] = Long.MAX_VALUE;
+            } else if (cadence == CADENCE_ONCE
+                    && fingerprint.equals(preferences.getString(KEY_ONCE + section, null))) {
+                dues[section] = Long.MAX_VALUE;
+            } else {
+                dues[section] = now;
+            }
+        }
+    }
+
+    /**
+     * @return the sections to collect at given time, as bit {@code 1 << section}
+     */
+    synchronized int dueSections(long now) {
+        int sections = 0;
+
+        for (int section = 1; section <= DeviceSnapshot.SECTION_MAX; section++) {
+            long cadence = cadences[section];
+            long early = cadence > 0 ? (long) (cadence * flex) : 0;
+
+            if (dues[section] != Long.MAX_VALUE && dues[section] - early <= now) {
+                sections |= 1 << section;
+            } else if (cadence == CADENCE_ON_CHANGE && generations[section] != generationOf(section)) {
+                sections |= 1 << section;
+            }
+        }
+
+        return sections;
+    }
+
+    /**
+     * Reschedules the given sections, collected at given time. Sections
+     * collected once are retried until {@link #add} receives them.
+     */
+    synchronized void collected(int sections, long now) {
+        for (int section = 1; section <= DeviceSnapshot.SECTION_MAX; section++) {
+            if ((sections & 1 << section) == 0) continue;
+
+            long cadence = cadences[section];
+            if (cadence > 0) {
+                dues[section] = now + cadence;
+            } else if (cadence == CADENCE_ONCE) {
+                dues[section] = now + ONCE_RETRY;
+            } else {
+                dues[section] = Long.MAX_VALUE;
+            }
+            generations[section] = generationOf(section);
+        }
+    }
+
+    /**
+     * @return the elapsed realtime of the next wakeup, {@link Long#MAX_VALUE}
+     * if no section is due
+     */
+    synchronized long nextWakeup() {
+        long next = Long.MAX_VALUE;
+
+        for (int section = 1; section <= DeviceSnapshot.SECTION_MAX; section++) {
+            next = Math.min(next, dues[section]);
+        }
+
+        return next;
+    }
+
+    private static int generationOf(int section) {
+        switch (section) {
+            case DeviceSnapshot.SECTION_LOCALIZATION:
+            case DeviceSnapshot.SECTION_DISPLAY:
+            case DeviceSnapshot.SECTION_CONFIGURATION:
+                return DeviceContextProvider.getConfigurationGeneration();
+            case DeviceSnapshot.SECTION_SECURE:
+                return DeviceContextProvider.getSecureSettingsGeneration();
+            default:
+                return 0;
+        }
+    }
+}
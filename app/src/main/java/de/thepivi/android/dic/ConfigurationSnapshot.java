@@ -0,0 +1,50 @@
+package de.thepivi.android.dic;
+
+import java.io.IOException;
+
+/**
+ * Typed snapshot of the resource configuration. Int fields hold the raw
+ * {@link android.content.res.Configuration} constants.
+ */
+public class ConfigurationSnapshot {
+
+    public float fontScale;
+    public int hardKeyboardHidden;
+    public int keyboard;
+    public int keyboardHidden;
+    public String locale;
+    public int mcc;
+    public int mnc;
+    public int navigation;
+    public int orientation;
+    public int screenLayout;
+    public int touchscreen;
+
+    public void writeTo(SnapshotOutput out) throws IOException {
+        out.writeFloat(fontScale);
+        out.writeInt(hardKeyboardHidden);
+        out.writeInt(keyboard);
+        out.writeInt(keyboardHidden);
+        out.writeString(locale);
+        out.writeInt(mcc);
+        out.writeInt(mnc);
+        out.writeInt(navigation);
+        out.writeInt(orientation);
+        out.writeInt(screenLayout);
+        out.writeInt(touchscreen);
+    }
+
+    public void readFrom(SnapshotInput in) throws IOException {
+        fontScale = in.readFloat();
+        hardKeyboardHidden = in.readInt();
+        keyboard = in.readInt();
+        keyboardHidden = in.readInt();
+        locale = in.readString();
+        mcc = in.readInt();
+        mnc = in.readInt();
+        navigation = in.readInt();
+        orientation = in.readInt();
+        screenLayout = in.readInt();
+        touchscreen = in.readInt();
+    }
+}
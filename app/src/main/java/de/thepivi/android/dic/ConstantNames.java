@@ -0,0 +1,203 @@
+package de.thepivi.android.dic;
+
+import android.content.res.Configuration;
+import android.hardware.Sensor;
+import android.telephony.TelephonyManager;
+import android.util.DisplayMetrics;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Maps the int constants of the platform to their names and back.
+ * <p/>
+ * The names are kept in an array indexed by the constant, so a lookup is a
+ * bounds check and an array load and never allocates. The tables cover the
+ * public constants up to API 23, unknown values map to the fallback name.
+ * The reverse lookup is meant for decoding reports, e.g. on the server.
+ */
+public final class ConstantNames {
+
+    public static final ConstantNames CALL_STATE = new ConstantNames("UNKNOWN")
+            .put(TelephonyManager.CALL_STATE_IDLE, "CALL_STATE_IDLE")
+            .put(TelephonyManager.CALL_STATE_RINGING, "CALL_STATE_RINGING")
+            .put(TelephonyManager.CALL_STATE_OFFHOOK, "CALL_STATE_OFFHOOK");
+
+    public static final ConstantNames DATA_ACTIVITY = new ConstantNames("UNKNOWN")
+            .put(TelephonyManager.DATA_ACTIVITY_NONE, "DATA_ACTIVITY_NONE")
+            .put(TelephonyManager.DATA_ACTIVITY_IN, "DATA_ACTIVITY_IN")
+            .put(TelephonyManager.DATA_ACTIVITY_OUT, "DATA_ACTIVITY_OUT")
+            .put(TelephonyManager.DATA_ACTIVITY_INOUT, "DATA_ACTIVITY_INOUT")
+            .put(TelephonyManager.DATA_ACTIVITY_DORMANT, "DATA_ACTIVITY_DORMANT");
+
+    public static final ConstantNames DATA_STATE = new ConstantNames("UNKNOWN")
+            .put(TelephonyManager.DATA_DISCONNECTED, "DATA_DISCONNECTED")
+            .put(TelephonyManager.DATA_CONNECTING, "DATA_CONNECTING")
+            .put(TelephonyManager.DATA_CONNECTED, "DATA_CONNECTED")
+            .put(TelephonyManager.DATA_SUSPENDED, "DATA_SUSPENDED");
+
+    public static final ConstantNames DENSITY = new ConstantNames("DENSITY_DEFAULT")
+            .put(DisplayMetrics.DENSITY_LOW, "DENSITY_LOW")
+            .put(DisplayMetrics.DENSITY_MEDIUM, "DENSITY_MEDIUM")
+            .put(DisplayMetrics.DENSITY_TV, "DENSITY_TV")
+            .put(DisplayMetrics.DENSITY_HIGH, "DENSITY_HIGH")
+            .put(DisplayMetrics.DENSITY_280, "DENSITY_280")
+            .put(DisplayMetrics.DENSITY_XHIGH, "DENSITY_XHIGH")
+            .put(DisplayMetrics.DENSITY_360, "DENSITY_360")
+            .put(DisplayMetrics.DENSITY_400, "DENSITY_400")
+            .put(DisplayMetrics.DENSITY_420, "DENSITY_420")
+            .put(DisplayMetrics.DENSITY_XXHIGH, "DENSITY_XXHIGH")
+            .put(DisplayMetrics.DENSITY_560, "DENSITY_560")
+            .put(DisplayMetrics.DENSITY_XXXHIGH, "DENSITY_XXXHIGH");
+
+    public static final ConstantNames HARD_KEYBOARD_HIDDEN = new ConstantNames("HARDKEYBOARDHIDDEN_UNDEFINED")
+            .put(Configuration.HARDKEYBOARDHIDDEN_UNDEFINED, "HARDKEYBOARDHIDDEN_UNDEFINED")
+            .put(Configuration.HARDKEYBOARDHIDDEN_NO, "HARDKEYBOARDHIDDEN_NO")
+            .put(Configuration.HARDKEYBOARDHIDDEN_YES, "HARDKEYBOARDHIDDEN_YES");
+
+    public static final ConstantNames KEYBOARD = new ConstantNames("KEYBOARD_UNDEFINED")
+            .put(Configuration.KEYBOARD_UNDEFINED, "KEYBOARD_UNDEFINED")
+            .put(Configuration.KEYBOARD_NOKEYS, "KEYBOARD_NOKEYS")
+            .put(Configuration.KEYBOARD_QWERTY, "KEYBOARD_QWERTY")
+            .put(Configuration.KEYBOARD_12KEY, "KEYBOARD_12KEY");
+
+    public static final ConstantNames NAVIGATION = new ConstantNames("NAVIGATION_UNDEFINED")
+            .put(Configuration.NAVIGATION_UNDEFINED, "NAVIGATION_UNDEFINED")
+            .put(Configuration.NAVIGATION_NONAV, "NAVIGATION_NONAV")
+            .put(Configuration.NAVIGATION_DPAD, "NAVIGATION_DPAD")
+            .put(Configuration.NAVIGATION_TRACKBALL, "NAVIGATION_TRACKBALL")
+            .put(Configuration.NAVIGATION_WHEEL, "NAVIGATION_WHEEL");
+
+    public static final ConstantNames NETWORK_TYPE = new ConstantNames("NETWORK_TYPE_UNKNOWN")
+            .put(TelephonyManager.NETWORK_TYPE_UNKNOWN, "NETWORK_TYPE_UNKNOWN")
+            .put(TelephonyManager.NETWORK_TYPE_GPRS, "NETWORK_TYPE_GPRS")
+            .put(TelephonyManager.NETWORK_TYPE_EDGE, "NETWORK_TYPE_EDGE")
+            .put(TelephonyManager.NETWORK_TYPE_UMTS, "NETWORK_TYPE_UMTS")
+            .put(TelephonyManager.NETWORK_TYPE_CDMA, "NETWORK_TYPE_CDMA")
+            .put(TelephonyManager.NETWORK_TYPE_EVDO_0, "NETWORK_TYPE_EVDO_0")
+            .put(TelephonyManager.NETWORK_TYPE_EVDO_A, "NETWORK_TYPE_EVDO_A")
+            .put(TelephonyManager.NETWORK_TYPE_1xRTT, "NETWORK_TYPE_1xRTT")
+            .put(TelephonyManager.NETWORK_TYPE_HSDPA, "NETWORK_TYPE_HSDPA")
+            .put(TelephonyManager.NETWORK_TYPE_HSUPA, "NETWORK_TYPE_HSUPA")
+            .put(TelephonyManager.NETWORK_TYPE_HSPA, "NETWORK_TYPE_HSPA")
+            .put(TelephonyManager.NETWORK_TYPE_IDEN, "NETWORK_TYPE_IDEN")
+            .put(TelephonyManager.NETWORK_TYPE_EVDO_B, "NETWORK_TYPE_EVDO_B")
+            .put(TelephonyManager.NETWORK_TYPE_LTE, "NETWORK_TYPE_LTE")
+            .put(TelephonyManager.NETWORK_TYPE_EHRPD, "NETWORK_TYPE_EHRPD")
+            .put(TelephonyManager.NETWORK_TYPE_HSPAP, "NETWORK_TYPE_HSPAP");
+
+    public static final ConstantNames ORIENTATION = new ConstantNames("ORIENTATION_UNDEFINED")
+            .put(Configuration.ORIENTATION_UNDEFINED, "ORIENTATION_UNDEFINED")
+            .put(Configuration.ORIENTATION_PORTRAIT, "ORIENTATION_PORTRAIT")
+            .put(Configuration.ORIENTATION_LANDSCAPE, "ORIENTATION_LANDSCAPE")
+            .put(Configuration.ORIENTATION_SQUARE, "ORIENTATION_SQUARE");
+
+    public static final ConstantNames PHONE_TYPE = new ConstantNames("UNKNOWN")
+            .put(TelephonyManager.PHONE_TYPE_NONE, "PHONE_TYPE_NONE")
+            .put(TelephonyManager.PHONE_TYPE_GSM, "PHONE_TYPE_GSM")
+            .put(TelephonyManager.PHONE_TYPE_CDMA, "PHONE_TYPE_CDMA")
+            .put(TelephonyManager.PHONE_TYPE_SIP, "PHONE_TYPE_SIP");
+
+    /**
+     * Names the size bits of {@link Configuration#screenLayout}, the value has to
+     * be masked with {@link Configuration#SCREENLAYOUT_SIZE_MASK}.
+     */
+    public static final ConstantNames SCREEN_LAYOUT_SIZE = new ConstantNames("SCREENLAYOUT_SIZE_UNDEFINED")
+            .put(Configuration.SCREENLAYOUT_SIZE_UNDEFINED, "SCREENLAYOUT_SIZE_UNDEFINED")
+            .put(Configuration.SCREENLAYOUT_SIZE_SMALL, "SCREENLAYOUT_SIZE_SMALL")
+            .put(Configuration.SCREENLAYOUT_SIZE_NORMAL, "SCREENLAYOUT_SIZE_NORMAL")
+            .put(Configuration.SCREENLAYOUT_SIZE_LARGE, "SCREENLAYOUT_SIZE_LARGE")
+            .put(Configuration.SCREENLAYOUT_SIZE_XLARGE, "SCREENLAYOUT_SIZE_XLARGE");
+
+    public static final ConstantNames SECTION = new ConstantNames("UNKNOWN")
+            .put(DeviceSnapshot.SECTION_BUILD, "BUILD")
+            .put(DeviceSnapshot.SECTION_LOCALIZATION, "Localization")
+            .put(DeviceSnapshot.SECTION_DISPLAY, "Display")
+            .put(DeviceSnapshot.SECTION_CONFIGURATION, "CONFIGURATION")
+            .put(DeviceSnapshot.SECTION_SECURE, "Secure")
+            .put(DeviceSnapshot.SECTION_TELEPHONY, "TelephonyManager")
+            .put(DeviceSnapshot.SECTION_ENVIRONMENT, "Environment")
+            .put(DeviceSnapshot.SECTION_SENSORS, "SensorManager")
+            .put(DeviceSnapshot.SECTION_PROCESS, "Process")
+            .put(DeviceSnapshot.SECTION_LOCATION, "LocationManager")
+            .put(DeviceSnapshot.SECTION_SYSTEM, "System");
+
+    public static final ConstantNames SENSOR_TYPE = new ConstantNames("UNKNOWN")
+            .put(Sensor.TYPE_ACCELEROMETER, "TYPE_ACCELEROMETER")
+            .put(Sensor.TYPE_MAGNETIC_FIELD, "TYPE_MAGNETIC_FIELD")
+            .put(Sensor.TYPE_ORIENTATION, "TYPE_ORIENTATION")
+            .put(Sensor.TYPE_GYROSCOPE, "TYPE_GYROSCOPE")
+            .put(Sensor.TYPE_LIGHT, "TYPE_LIGHT")
+            .put(Sensor.TYPE_PRESSURE, "TYPE_PRESSURE")
+            .put(Sensor.TYPE_TEMPERATURE, "TYPE_TEMPERATURE")
+            .put(Sensor.TYPE_PROXIMITY, "TYPE_PROXIMITY")
+            .put(Sensor.TYPE_GRAVITY, "TYPE_GRAVITY")
+            .put(Sensor.TYPE_LINEAR_ACCELERATION, "TYPE_LINEAR_ACCELERATION")
+            .put(Sensor.TYPE_ROTATION_VECTOR, "TYPE_ROTATION_VECTOR")
+            .put(Sensor.TYPE_RELATIVE_HUMIDITY, "TYPE_RELATIVE_HUMIDITY")
+            .put(Sensor.TYPE_AMBIENT_TEMPERATURE, "TYPE_AMBIENT_TEMPERATURE")
+            .put(Sensor.TYPE_MAGNETIC_FIELD_UNCALIBRATED, "TYPE_MAGNETIC_FIELD_UNCALIBRATED")
+            .put(Sensor.TYPE_GAME_ROTATION_VECTOR, "TYPE_GAME_ROTATION_VECTOR")
+            .put(Sensor.TYPE_GYROSCOPE_UNCALIBRATED, "TYPE_GYROSCOPE_UNCALIBRATED")
+            .put(Sensor.TYPE_SIGNIFICANT_MOTION, "TYPE_SIGNIFICANT_MOTION")
+            .put(Sensor.TYPE_STEP_DETECTOR, "TYPE_STEP_DETECTOR")
+            .put(Sensor.TYPE_STEP_COUNTER, "TYPE_STEP_COUNTER")
+            .put(Sensor.TYPE_GEOMAGNETIC_ROTATION_VECTOR, "TYPE_GEOMAGNETIC_ROTATION_VECTOR")
+            .put(Sensor.TYPE_HEART_RATE, "TYPE_HEART_RATE");
+
+    public static final ConstantNames SIM_STATE = new ConstantNames("SIM_STATE_UNKNOWN")
+            .put(TelephonyManager.SIM_STATE_UNKNOWN, "SIM_STATE_UNKNOWN")
+            .put(TelephonyManager.SIM_STATE_ABSENT, "SIM_STATE_ABSENT")
+            .put(TelephonyManager.SIM_STATE_PIN_REQUIRED, "SIM_STATE_PIN_REQUIRED")
+            .put(TelephonyManager.SIM_STATE_PUK_REQUIRED, "SIM_STATE_PUK_REQUIRED")
+            .put(TelephonyManager.SIM_STATE_NETWORK_LOCKED, "SIM_STATE_NETWORK_LOCKED")
+            .put(TelephonyManager.SIM_STATE_READY, "SIM_STATE_READY");
+
+    public static final ConstantNames TOUCHSCREEN = new ConstantNames("TOUCHSCREEN_UNDEFINED")
+            .put(Configuration.TOUCHSCREEN_UNDEFINED, "TOUCHSCREEN_UNDEFINED")
+            .put(Configuration.TOUCHSCREEN_NOTOUCH, "TOUCHSCREEN_NOTOUCH")
+            .put(Configuration.TOUCHSCREEN_STYLUS, "TOUCHSCREEN_STYLUS")
+            .put(Configuration.TOUCHSCREEN_FINGER, "TOUCHSCREEN_FINGER");
+
+    private final String fallback;
+    private final Map<String, Integer> values = new HashMap<String, Integer>();
+    private String[] names = new String[0];
+
+    private ConstantNames(String fallback) {
+        this.fallback = fallback;
+    }
+
+    /**
+     * Only called while the tables are built in the static initializer.
+     */
+    private ConstantNames put(int value, String name) {
+        if (value >= names.length) {
+            String[] newNames = new String[value + 1];
+            System.arraycopy(names, 0, newNames, 0, names.length);
+            names = newNames;
+        }
+
+        names[value] = name;
+        values.put(name, value);
+
+        return this;
+    }
+
+    /**
+     * @return the name of the constant or the fallback name if it is unknown.
+     */
+    public String nameOf(int value) {
+        String name = value >= 0 && value < names.length ? names[value] : null;
+
+        return null != name ? name : fallback;
+    }
+
+    /**
+     * @return the constant of the name or {@code defaultValue} if it is unknown.
+     */
+    public int valueOf(String name, int defaultValue) {
+        Integer value = values.get(name);
+
+        return null != value ? value : defaultValue;
+    }
+}
@@ -1,25 +1,35 @@
 package de.thepivi.android.dic;
 
+import android.content.ComponentCallbacks;
+import android.content.ContentResolver;
 import android.content.Context;
 import android.content.res.Configuration;
+import android.database.ContentObserver;
+import android.database.Cursor;
 import android.hardware.Sensor;
 import android.hardware.SensorManager;
 import android.location.Criteria;
 import android.location.GpsStatus;
 import android.location.Location;
 import android.location.LocationManager;
+import android.net.Uri;
 import android.os.Build;
+import android.os.Debug;
 import android.os.Environment;
 import android.os.Process;
+import android.provider.Settings;
 import android.provider.Settings.Secure;
+import android.telephony.CellLocation;
 import android.telephony.NeighboringCellInfo;
 import android.telephony.TelephonyManager;
+import android.telephony.cdma.CdmaCellLocation;
+import android.telephony.gsm.GsmCellLocation;
 import android.util.DisplayMetrics;
 import android.util.Log;
 import android.view.Display;
 import android.view.WindowManager;
 
-import java.text.SimpleDateFormat;
+import java.util.List;
 import java.util.Locale;
 
 /**
@@ -32,12 +42,44 @@ public abstract class DeviceContextProvider {
     public static final String TRUE = "True";
     public static final String FALSE = "False";
 
-    private static String formatDateTime(long dateTime, String pattern) {
-        SimpleDateFormat dateFormat = new SimpleDateFormat(pattern);
+    private static final String[] SETTINGS_PROJECTION = {
+            Settings.NameValueTable.NAME, Settings.NameValueTable.VALUE
+    };
 
-        return dateFormat.format(dateTime);
+    /**
+     * Reads a single setting.
+     */
+    interface SettingReader {
+
+        String getString(ContentResolver resolver, String name);
     }
 
+    private static final SettingReader SECURE_SETTING_READER = new SettingReader() {
+        @Override
+        public String getString(ContentResolver resolver, String name) {
+            return Secure.getString(resolver, name);
+        }
+    };
+
+    /**
+     * Default criteria for the best provider, only ever read.
+     */
+    static final Criteria BEST_PROVIDER_CRITERIA = new Criteria();
+
+    private static final Object SECURE_SETTINGS_LOCK = new Object();
+    private static volatile SecureSettingsSnapshot secureSettingsSnapshot;
+    private static volatile int secureSettingsGeneration;
+    private static ContentObserver secureSettingsObserver;
+
+    private static final Object CONFIGURATION_LOCK = new Object();
+    private static volatile ConfigurationSnapshot configurationSnapshot;
+    private static volatile DisplaySnapshot displaySnapshot;
+    private static volatile int configurationGeneration;
+    private static ComponentCallbacks configurationCallbacks;
+    private static Configuration lastConfiguration;
+
+    private static SystemInfoReader systemInfoReader;
+
     public static String getBuildBoard() {
         return Build.BOARD;
     }
@@ -70,6 +112,10 @@ public abstract class DeviceContextProvider {
         return Build.ID;
     }
 
+    public static BuildInfo getBuildInfo() {
+        return BuildInfo.get();
+    }
+
     public static String getBuildManufacturer() {
         return Build.MANUFACTURER;
     }
@@ -123,193 +169,269 @@ public abstract class DeviceContextProvider {
     }
 
     public static float getConfigurationFontScale(Context context) {
-        return getConfiguration(context).fontScale;
+        return getConfigurationSnapshot(context).fontScale;
     }
 
     public static String getConfigurationHardKeyboardHidden(Context context) {
-        switch (getConfiguration(context).hardKeyboardHidden) {
-            case Configuration.HARDKEYBOARDHIDDEN_NO:
-                return "HARDKEYBOARDHIDDEN_NO";
-            case Configuration.HARDKEYBOARDHIDDEN_YES:
-                return "HARDKEYBOARDHIDDEN_YES";
-            default:
-                return "HARDKEYBOARDHIDDEN_UNDEFINED";
-        }
+        return DeviceSnapshotFormatter.nameOfHardKeyboardHidden(getConfigurationSnapshot(context).hardKeyboardHidden);
     }
 
     public static String getConfigurationKeyboard(Context context) {
-        switch (getConfiguration(context).keyboard) {
-            case Configuration.KEYBOARD_12KEY:
-                return "KEYBOARD_12KEY";
-            case Configuration.KEYBOARD_NOKEYS:
-                return "KEYBOARD_NOKEYS";
-            case Configuration.KEYBOARD_QWERTY:
-                return "KEYBOARD_QWERTY";
-            default:
-                return "KEYBOARD_UNDEFINED";
-        }
+        return DeviceSnapshotFormatter.nameOfKeyboard(getConfigurationSnapshot(context).keyboard);
     }
 
     public static boolean getConfigurationKeyboardHidden(Context context) {
-        return getConfiguration(context).keyboardHidden == Configuration.KEYBOARDHIDDEN_YES;
+        return getConfigurationSnapshot(context).keyboardHidden == Configuration.KEYBOARDHIDDEN_YES;
     }
 
     public static String getConfigurationLocale(Context context) {
-        return getConfiguration(context).locale.toString();
+        return getConfigurationSnapshot(context).locale;
     }
 
     public static int getConfigurationMcc(Context context) {
-        return getConfiguration(context).mcc;
+        return getConfigurationSnapshot(context).mcc;
     }
 
     public static int getConfigurationMnc(Context context) {
-        return getConfiguration(context).mnc;
+        return getConfigurationSnapshot(context).mnc;
     }
 
     public static String getConfigurationNavigation(Context context) {
-        switch (getConfiguration(context).navigation) {
-            case Configuration.NAVIGATION_DPAD:
-                return "NAVIGATION_DPAD";
-            case Configuration.NAVIGATION_NONAV:
-                return "NAVIGATION_NONAV";
-            case Configuration.NAVIGATION_TRACKBALL:
-                return "NAVIGATION_TRACKBALL";
-            case Configuration.NAVIGATION_WHEEL:
-                return "NAVIGATION_WHEEL";
-            default:
-                return "NAVIGATION_UNDEFINED";
-        }
+        return DeviceSnapshotFormatter.nameOfNavigation(getConfigurationSnapshot(context).navigation);
     }
 
     public static String getConfigurationOrientation(Context context) {
-        switch (getConfiguration(context).orientation) {
-            case Configuration.ORIENTATION_LANDSCAPE:
-                return "ORIENTATION_LANDSCAPE";
-            case Configuration.ORIENTATION_PORTRAIT:
-                return "ORIENTATION_PORTRAIT";
-            case Configuration.ORIENTATION_SQUARE:
-                return "ORIENTATION_SQUARE";
-            default:
-                return "ORIENTATION_UNDEFINED";
-        }
+        return DeviceSnapshotFormatter.nameOfOrientation(getConfigurationSnapshot(context).orientation);
     }
 
-    // TODO: xlarge fehlt
     public static String getConfigurationScreenLayout(Context context) {
-        switch (getConfiguration(context).screenLayout
-                & Configuration.SCREENLAYOUT_SIZE_MASK) {
-            case Configuration.SCREENLAYOUT_SIZE_LARGE:
-                return "SCREENLAYOUT_SIZE_LARGE";
-            case Configuration.SCREENLAYOUT_SIZE_NORMAL:
-                return "SCREENLAYOUT_SIZE_NORMAL";
-            case Configuration.SCREENLAYOUT_SIZE_SMALL:
-                return "SCREENLAYOUT_SIZE_SMALL";
-            default:
-                return "SCREENLAYOUT_SIZE_UNDEFINED";
+        return DeviceSnapshotFormatter.nameOfScreenLayout(getConfigurationSnapshot(context).screenLayout);
+    }
+
+    /**
+     * Returns the current configuration. The snapshot is replaced whenever
+     * {@link Configuration#diff} reports a change and must not be modified.
+     */
+    public static ConfigurationSnapshot getConfigurationSnapshot(Context context) {
+        return getConfigurationSnapshot(context, Build.VERSION.SDK_INT);
+    }
+
+    static ConfigurationSnapshot getConfigurationSnapshot(Context context, int sdkInt) {
+        ConfigurationSnapshot snapshot = configurationSnapshot;
+
+        if (null == snapshot) {
+            // without ComponentCallbacks there is no invalidation, so nothing is cached
+            boolean cacheable = registerConfigurationCallbacks(context, sdkInt);
+            int generation = configurationGeneration;
+
+            snapshot = readConfigurationSnapshot(getConfiguration(context));
+
+            if (cacheable) {
+                synchronized (CONFIGURATION_LOCK) {
+                    if (generation == configurationGeneration) configurationSnapshot = snapshot;
+                }
+            }
         }
+
+        return snapshot;
     }
 
     public static String getConfigurationTouchscreen(Context context) {
-        switch (getConfiguration(context).orientation) {
-            case Configuration.TOUCHSCREEN_FINGER:
-                return "TOUCHSCREEN_FINGER";
-            case Configuration.TOUCHSCREEN_NOTOUCH:
-                return "TOUCHSCREEN_NOTOUCH";
-            case Configuration.TOUCHSCREEN_STYLUS:
-                return "TOUCHSCREEN_STYLUS";
-            default:
-                return "TOUCHSCREEN_UNDEFINED";
-        }
+        return DeviceSnapshotFormatter.nameOfTouchscreen(getConfigurationSnapshot(context).touchscreen);
     }
 
     public static String getCurrentDisplayLanguage() {
         return Locale.getDefault().getDisplayLanguage();
     }
 
+    /**
+     * Collects one section into given snapshot.
+     *
+     * @param section one of the {@code DeviceSnapshot.SECTION_*} ids
+     */
+    public static void collectSection(Context context, int section, DeviceSnapshot snapshot) {
+        switch (section) {
+            case DeviceSnapshot.SECTION_BUILD:
+                snapshot.build = getBuildInfo();
+                break;
+            case DeviceSnapshot.SECTION_LOCALIZATION:
+                snapshot.displayLanguage = getCurrentDisplayLanguage();
+                break;
+            case DeviceSnapshot.SECTION_DISPLAY:
+                snapshot.display = getDisplaySnapshot(context);
+                break;
+            case DeviceSnapshot.SECTION_CONFIGURATION:
+                snapshot.configuration = getConfigurationSnapshot(context);
+                break;
+            case DeviceSnapshot.SECTION_SECURE:
+                snapshot.secure = getSecureSettingsSnapshot(context);
+                break;
+            case DeviceSnapshot.SECTION_TELEPHONY:
+                snapshot.telephony = getTelephonySnapshot(context);
+                break;
+            case DeviceSnapshot.SECTION_ENVIRONMENT:
+                snapshot.environment = getEnvironmentSnapshot();
+                break;
+            case DeviceSnapshot.SECTION_SENSORS:
+                snapshot.sensors = getSensorSnapshots(context);
+                break;
+            case DeviceSnapshot.SECTION_PROCESS:
+                snapshot.process = getProcessSnapshot();
+                break;
+            case DeviceSnapshot.SECTION_LOCATION:
+                snapshot.location = getLocationSnapshot(context);
+                break;
+            case DeviceSnapshot.SECTION_SYSTEM:
+                snapshot.system = getSystemInfoSnapshot();
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown section " + section);
+        }
+    }
+
+    /**
+     * Collects one section into given snapshot, measured and isolated: if the
+     * collection throws, the section is left out and marked in
+     * {@link DeviceSnapshot#failedSections}.
+     *
+     * @param listener may be {@code null}
+     * @return whether the section was collected
+     */
+    public static boolean collectSection(Context context, int section, DeviceSnapshot snapshot,
+                                         CollectionListener listener) {
+        long wallStart = System.nanoTime();
+        long cpuStart = Debug.threadCpuTimeNanos();
+        RuntimeException failure = null;
+
+        try {
+            collectSection(context, section, snapshot);
+        } catch (RuntimeException e) {
+            Log.e(DeviceContextProvider.class.getSimpleName(), "Section " + section + " failed", e);
+            failure = e;
+            snapshot.removeSection(section);
+            snapshot.failedSections |= 1 << section;
+        }
+
+        if (null != listener) {
+            long cpuEnd = cpuStart < 0 ? -1 : Debug.threadCpuTimeNanos();
+
+            listener.onSectionCollected(section, Thread.currentThread().getName(),
+                    System.nanoTime() - wallStart, cpuEnd < 0 ? -1 : cpuEnd - cpuStart,
+                    null == failure ? CollectionListener.OUTCOME_COLLECTED
+                            : CollectionListener.OUTCOME_FAILED, failure);
+        }
+
+        return null == failure;
+    }
+
+    /**
+     * Collects all sections one after another on the calling thread, see
+     * {@link DeviceSnapshotCollector} for concurrent collection.
+     */
+    public static DeviceSnapshot getDeviceSnapshot(Context context) {
+        return getDeviceSnapshot(context, null);
+    }
+
+    /**
+     * Like {@link #getDeviceSnapshot(Context)}, a failing section does not
+     * affect the others.
+     *
+     * @param listener may be {@code null}
+     */
+    public static DeviceSnapshot getDeviceSnapshot(Context context, CollectionListener listener) {
+        DeviceSnapshot snapshot = new DeviceSnapshot();
+
+        snapshot.timestamp = System.currentTimeMillis();
+        for (int section = 1; section <= DeviceSnapshot.SECTION_MAX; section++) {
+            collectSection(context, section, snapshot, listener);
+        }
+
+        return snapshot;
+    }
+
     protected static Display getDisplay(Context context) {
         return getWindowManager(context).getDefaultDisplay();
     }
 
     public static float getDisplayDensity(Context context) {
-        return getDisplayMetrics(context).density * 160;
+        return getDisplaySnapshot(context).getLogicalDensityDpi();
     }
 
     public static float getDisplayDensityHeight(Context context) {
-        return getDisplayMetrics(context).ydpi;
+        return getDisplaySnapshot(context).ydpi;
     }
 
     public static String getDisplayDensityString(Context context) {
-        switch (getDisplayMetrics(context).densityDpi) {
-            case DisplayMetrics.DENSITY_HIGH:
-                return "DENSITY_HIGH";
-            case DisplayMetrics.DENSITY_MEDIUM:
-                return "DENSITY_MEDIUM";
-            case DisplayMetrics.DENSITY_LOW:
-                return "DENSITY_LOW";
-            default:
-                return "DENSITY_DEFAULT";
-        }
+        return getDisplaySnapshot(context).getDensityBucket();
     }
 
     public static float getDisplayDensityWidth(Context context) {
-        return getDisplayMetrics(context).xdpi;
+        return getDisplaySnapshot(context).xdpi;
     }
 
     public static int getDisplayHeight(Context context) {
-        return getDisplay(context).getHeight();
-    }
-
-    private static float getDisplayInchesHeight(Context context) {
-        return getDisplayMetrics(context).heightPixels / getDisplayDensityHeight(context);
-    }
-
-    private static float getDisplayInchesWidth(Context context) {
-        return getDisplayMetrics(context).widthPixels / getDisplayDensityWidth(context);
+        return getDisplaySnapshot(context).heightPixels;
     }
 
     protected static DisplayMetrics getDisplayMetrics(Context context) {
         DisplayMetrics metrics = new DisplayMetrics();
-        getWindowManager(context).getDefaultDisplay().getMetrics(metrics);
+        getDisplay(context).getMetrics(metrics);
 
         return metrics;
     }
 
     public static String getDisplayResolution(Context context) {
-        return String.format("%dx%d", getDisplay(context).getWidth(),
-                getDisplay(context).getHeight());
+        DisplaySnapshot snapshot = getDisplaySnapshot(context);
+
+        return snapshot.widthPixels + "x" + snapshot.heightPixels;
     }
 
     public static double getDisplayResolutionInch(Context context) {
-        DisplayMetrics metrics = getDisplayMetrics(context);
-        double a = Math.pow(metrics.widthPixels / metrics.xdpi, 2);
-        double b = Math.pow(metrics.heightPixels / metrics.ydpi, 2);
-        int c = (int) (Math.sqrt(a + b) * 100);
+        return getDisplaySnapshot(context).getDiagonalInches();
+    }
 
-        return (double) c / 100;
+    /**
+     * Returns the metrics of the default display. The snapshot is cached until
+     * the configuration changes and must not be modified.
+     */
+    public static DisplaySnapshot getDisplaySnapshot(Context context) {
+        return getDisplaySnapshot(context, Build.VERSION.SDK_INT);
     }
 
-    private static float getDisplaySmallestWidth(Context context) {
-        DisplayMetrics metrics = getDisplayMetrics(context);
-        float scaleFactor = metrics.density;
-        float widthDp = metrics.widthPixels / scaleFactor;
-        float heightDp = metrics.heightPixels / scaleFactor;
-        return Math.min(widthDp, heightDp);
+    static DisplaySnapshot getDisplaySnapshot(Context context, int sdkInt) {
+        DisplaySnapshot snapshot = displaySnapshot;
+
+        if (null == snapshot) {
+            // without ComponentCallbacks there is no invalidation, so nothing is cached
+            boolean cacheable = registerConfigurationCallbacks(context, sdkInt);
+            int generation = configurationGeneration;
+
+            snapshot = readDisplaySnapshot(context);
+
+            if (cacheable) {
+                synchronized (CONFIGURATION_LOCK) {
+                    if (generation == configurationGeneration) displaySnapshot = snapshot;
+                }
+            }
+        }
+
+        return snapshot;
     }
 
     public static int getDisplayWidth(Context context) {
-        return getDisplay(context).getWidth();
+        return getDisplaySnapshot(context).widthPixels;
     }
 
     public static String getEnvironmentDataDirectory() {
-        return Environment.getDataDirectory().toString();
+        return String.valueOf(Environment.getDataDirectory());
     }
 
     public static String getEnvironmentDownloadCacheDirectory() {
-        return Environment.getDownloadCacheDirectory().toString();
+        return String.valueOf(Environment.getDownloadCacheDirectory());
     }
 
     public static String getEnvironmentExternalStorageDirectory() {
-        return Environment.getExternalStorageDirectory().toString();
+        return String.valueOf(Environment.getExternalStorageDirectory());
     }
 
     public static String getEnvironmentExternalStorageState() {
@@ -317,7 +439,19 @@ public abstract class DeviceContextProvider {
     }
 
     public static String getEnvironmentRootDirectory() {
-        return Environment.getRootDirectory().toString();
+        return String.valueOf(Environment.getRootDirectory());
+    }
+
+    public static EnvironmentSnapshot getEnvironmentSnapshot() {
+        EnvironmentSnapshot snapshot = new EnvironmentSnapshot();
+
+        snapshot.dataDirectory = getEnvironmentDataDirectory();
+        snapshot.downloadCacheDirectory = getEnvironmentDownloadCacheDirectory();
+        snapshot.externalStorageDirectory = getEnvironmentExternalStorageDirectory();
+        snapshot.externalStorageState = getEnvironmentExternalStorageState();
+        snapshot.rootDirectory = getEnvironmentRootDirectory();
+
+        return snapshot;
     }
 
     protected static LocationManager getLocationmanager(Context context) {
@@ -336,8 +470,7 @@ public abstract class DeviceContextProvider {
     }
 
     public static String getLocationManagerBestProvider(Context context) {
-        return getLocationmanager(context).getBestProvider(new Criteria(),
-                true);
+        return getLocationmanager(context).getBestProvider(BEST_PROVIDER_CRITERIA, true);
     }
 
     public static String getLocationManagerGpsStatus(Context context) {
@@ -358,28 +491,37 @@ public abstract class DeviceContextProvider {
 
     private static String getLocationManagerLocationToString(Location location) {
         StringBuilder sb = new StringBuilder();
+        LocationSnapshot snapshot = new LocationSnapshot();
 
-        if (null != location) {
-            sb.append("Location:");
-            sb.append("\nAccuracy=").append(location.getAccuracy());
-            sb.append("\nAltitude=").append(location.getAltitude());
-            sb.append("\nBearing=").append(location.getBearing());
-            sb.append("\nLatitude=").append(location.getLatitude());
-            sb.append("\nLongitude=").append(location.getLongitude());
-            sb.append("\nProvider=").append(location.getProvider());
-            sb.append("\nSpeed=").append(location.getSpeed());
-            sb.append("\nTime=").append(
-                    formatDateTime(location.getTime(),
-                            "yyyy-MM-dd hh:mm:ss:SSS"));
-            sb.append("\nhasAccuracy=").append(location.hasAccuracy());
-            sb.append("\nhasAltitude=").append(location.hasAltitude());
-            sb.append("\nhasBearing=").append(location.hasBearing());
-            sb.append("\nhasSpeed=").append(location.hasSpeed());
-        }
+        readLocation(location, snapshot);
+        DeviceSnapshotFormatter.appendLastKnownLocation(sb, snapshot);
 
         return sb.toString();
     }
 
+    public static LocationSnapshot getLocationSnapshot(Context context) {
+        LocationManager locationManager = getLocationmanager(context);
+        LocationSnapshot snapshot = new LocationSnapshot();
+
+        List<String> providers = locationManager.getAllProviders();
+        snapshot.allProviders = providers.toArray(new String[providers.size()]);
+        snapshot.bestProvider = locationManager.getBestProvider(BEST_PROVIDER_CRITERIA, true);
+
+        GpsStatus status = locationManager.getGpsStatus(null);
+        if (null != status) {
+            snapshot.hasGpsStatus = true;
+            snapshot.gpsMaxSatellites = status.getMaxSatellites();
+            snapshot.gpsTimeToFirstFix = status.getTimeToFirstFix();
+        }
+
+        if (null != snapshot.bestProvider) {
+            Location location = locationManager.getLastKnownLocation(snapshot.bestProvider);
+            if (null != location) readLocation(location, snapshot);
+        }
+
+        return snapshot;
+    }
+
     public static long getProcessElapsedCpuTime() {
         return Process.getElapsedCpuTime();
     }
@@ -396,6 +538,27 @@ public abstract class DeviceContextProvider {
         return Process.myUid();
     }
 
+    /**
+     * Reads the system info through one reader per process, which keeps its
+     * files open.
+     */
+    public static synchronized SystemInfoSnapshot getSystemInfoSnapshot() {
+        if (null == systemInfoReader) systemInfoReader = new SystemInfoReader();
+
+        return systemInfoReader.read();
+    }
+
+    public static ProcessSnapshot getProcessSnapshot() {
+        ProcessSnapshot snapshot = new ProcessSnapshot();
+
+        snapshot.elapsedCpuTime = Process.getElapsedCpuTime();
+        snapshot.pid = Process.myPid();
+        snapshot.tid = Process.myTid();
+        snapshot.uid = Process.myUid();
+
+        return snapshot;
+    }
+
     public static String getSecureAccessibilityEnabled(Context context) {
         return parseStringIntToStringBool(getSecureString(context,
                 Secure.ACCESSIBILITY_ENABLED));
@@ -479,7 +642,33 @@ public abstract class DeviceContextProvider {
         return getSecureString(context, Secure.SETTINGS_CLASSNAME);
     }
 
+    /**
+     * Returns all {@link SecureSettingsSnapshot#KEYS} read in one batch. The
+     * snapshot is cached until a setting changes.
+     */
+    public static SecureSettingsSnapshot getSecureSettingsSnapshot(Context context) {
+        SecureSettingsSnapshot snapshot = secureSettingsSnapshot;
+
+        if (null == snapshot) {
+            int generation = secureSettingsGeneration;
+
+            registerSecureSettingsObserver(context);
+            snapshot = readSecureSettings(context.getContentResolver(), Build.VERSION.SDK_INT,
+                    SECURE_SETTING_READER);
+
+            synchronized (SECURE_SETTINGS_LOCK) {
+                if (generation == secureSettingsGeneration) secureSettingsSnapshot = snapshot;
+            }
+        }
+
+        return snapshot;
+    }
+
     protected static String getSecureString(Context context, String resourceId) {
+        int index = SecureSettingsSnapshot.indexOf(resourceId);
+
+        if (index >= 0) return getSecureSettingsSnapshot(context).values[index];
+
         return Secure.getString(context.getContentResolver(), resourceId);
     }
 
@@ -589,9 +778,9 @@ public abstract class DeviceContextProvider {
     public static String getSensorManagerSensorList(Context context) {
         StringBuilder sb = new StringBuilder();
 
-        for (Sensor sensor : getSensorManager(context).getSensorList(
-                Sensor.TYPE_ALL)) {
-            sb.append("\n").append(getSensorManagerSensorToString(sensor));
+        for (SensorSnapshot sensor : getSensorSnapshots(context)) {
+            sb.append("\n");
+            DeviceSnapshotFormatter.appendSensor(sb, sensor);
         }
 
         return sb.toString();
@@ -600,48 +789,28 @@ public abstract class DeviceContextProvider {
     public static String getSensorManagerSensorToString(Sensor sensor) {
         StringBuilder sb = new StringBuilder();
 
-        String typ;
+        DeviceSnapshotFormatter.appendSensor(sb, readSensor(sensor));
 
-        switch (sensor.getType()) {
-            case Sensor.TYPE_ACCELEROMETER:
-                typ = "TYPE_ACCELEROMETER";
-                break;
-            case Sensor.TYPE_GYROSCOPE:
-                typ = "TYPE_GYROSCOPE";
-                break;
-            case Sensor.TYPE_LIGHT:
-                typ = "TYPE_LIGHT";
-                break;
-            case Sensor.TYPE_MAGNETIC_FIELD:
-                typ = "TYPE_MAGNETIC_FIELD";
-                break;
-            case Sensor.TYPE_ORIENTATION:
-                typ = "TYPE_ORIENTATION";
-                break;
-            case Sensor.TYPE_PRESSURE:
-                typ = "TYPE_PRESSURE";
-                break;
-            case Sensor.TYPE_PROXIMITY:
-                typ = "TYPE_PROXIMITY";
-                break;
-            case Sensor.TYPE_TEMPERATURE:
-                typ = "TYPE_TEMPERATURE";
-                break;
-            default:
-                typ = "UNKNOWN";
-                break;
-        }
+        return sb.toString();
+    }
 
-        sb.append("Sensor:");
-        sb.append("\nName=").append(sensor.getName());
-        sb.append("\nTyp=").append(typ);
-        sb.append("\nVersion=").append(sensor.getVersion());
-        sb.append("\nVendor=").append(sensor.getVendor());
-        sb.append("\nResolution=").append(sensor.getResolution());
-        sb.append("\nPower=").append(sensor.getPower()).append("mA");
-        sb.append("\nMaximumRange=").append(sensor.getMaximumRange());
+    /**
+     * @return the sensors of the device, read once per process by the
+     * {@link SensorIndex}. The snapshots are shared and must not be modified.
+     */
+    public static SensorSnapshot[] getSensorSnapshots(Context context) {
+        return SensorIndex.get(context).getSensors();
+    }
 
-        return sb.toString();
+    static SensorSnapshot[] readSensorSnapshots(Context context) {
+        List<Sensor> sensors = getSensorManager(context).getSensorList(Sensor.TYPE_ALL);
+        SensorSnapshot[] snapshots = new SensorSnapshot[sensors.size()];
+
+        for (int i = 0; i < snapshots.length; i++) {
+            snapshots[i] = readSensor(sensors.get(i));
+        }
+
+        return snapshots;
     }
 
     protected static TelephonyManager getTelephonyManager(Context context) {
@@ -650,16 +819,7 @@ public abstract class DeviceContextProvider {
     }
 
     public static String getTelephonyManagerCallState(Context context) {
-        switch (getTelephonyManager(context).getCallState()) {
-            case TelephonyManager.CALL_STATE_IDLE:
-                return "CALL_STATE_IDLE";
-            case TelephonyManager.CALL_STATE_OFFHOOK:
-                return "CALL_STATE_OFFHOOK";
-            case TelephonyManager.CALL_STATE_RINGING:
-                return "CALL_STATE_RINGING";
-            default:
-                return "UNKNOWN";
-        }
+        return DeviceSnapshotFormatter.nameOfCallState(getTelephonyManager(context).getCallState());
     }
 
     public static String getTelephonyManagerCellLocation(Context context) {
@@ -669,35 +829,11 @@ public abstract class DeviceContextProvider {
     }
 
     public static String getTelephonyManagerDataActivity(Context context) {
-        switch (getTelephonyManager(context).getDataActivity()) {
-            case TelephonyManager.DATA_ACTIVITY_DORMANT:
-                return "DATA_ACTIVITY_DORMANT";
-            case TelephonyManager.DATA_ACTIVITY_IN:
-                return "DATA_ACTIVITY_IN";
-            case TelephonyManager.DATA_ACTIVITY_INOUT:
-                return "DATA_ACTIVITY_INOUT";
-            case TelephonyManager.DATA_ACTIVITY_NONE:
-                return "DATA_ACTIVITY_NONE";
-            case TelephonyManager.DATA_ACTIVITY_OUT:
-                return "DATA_ACTIVITY_OUT";
-            default:
-                return "UNKNOWN";
-        }
+        return DeviceSnapshotFormatter.nameOfDataActivity(getTelephonyManager(context).getDataActivity());
     }
 
     public static String getTelephonyManagerDataState(Context context) {
-        switch (getTelephonyManager(context).getDataState()) {
-            case TelephonyManager.DATA_SUSPENDED:
-                return "DATA_SUSPENDED";
-            case TelephonyManager.DATA_CONNECTED:
-                return "DATA_CONNECTED";
-            case TelephonyManager.DATA_CONNECTING:
-                return "DATA_CONNECTING";
-            case TelephonyManager.DATA_DISCONNECTED:
-                return "DATA_DISCONNECTED";
-            default:
-                return "UNKNOWN";
-        }
+        return DeviceSnapshotFormatter.nameOfDataState(getTelephonyManager(context).getDataState());
     }
 
     public static String getTelephonyManagerDeviceId(Context context) {
@@ -733,43 +869,11 @@ public abstract class DeviceContextProvider {
     }
 
     public static String getTelephonyManagerNetworkType(Context context) {
-        switch (getTelephonyManager(context).getNetworkType()) {
-            case TelephonyManager.NETWORK_TYPE_1xRTT:
-                return "NETWORK_TYPE_1xRTT";
-            case TelephonyManager.NETWORK_TYPE_CDMA:
-                return "NETWORK_TYPE_CDMA";
-            case TelephonyManager.NETWORK_TYPE_EDGE:
-                return "NETWORK_TYPE_EDGE";
-            case TelephonyManager.NETWORK_TYPE_EVDO_0:
-                return "NETWORK_TYPE_EVDO_0";
-            case TelephonyManager.NETWORK_TYPE_EVDO_A:
-                return "NETWORK_TYPE_EVDO_A";
-            case TelephonyManager.NETWORK_TYPE_GPRS:
-                return "NETWORK_TYPE_GPRS";
-            case TelephonyManager.NETWORK_TYPE_HSDPA:
-                return "NETWORK_TYPE_HSDPA";
-            case TelephonyManager.NETWORK_TYPE_HSPA:
-                return "NETWORK_TYPE_HSPA";
-            case TelephonyManager.NETWORK_TYPE_HSUPA:
-                return "NETWORK_TYPE_HSUPA";
-            case TelephonyManager.NETWORK_TYPE_UMTS:
-                return "NETWORK_TYPE_UMTS";
-            default:
-                return "NETWORK_TYPE_UNKNOWN";
-        }
+        return DeviceSnapshotFormatter.nameOfNetworkType(getTelephonyManager(context).getNetworkType());
     }
 
     public static String getTelephonyManagerPhoneType(Context context) {
-        switch (getTelephonyManager(context).getPhoneType()) {
-            case TelephonyManager.PHONE_TYPE_CDMA:
-                return "PHONE_TYPE_CDMA";
-            case TelephonyManager.PHONE_TYPE_GSM:
-                return "PHONE_TYPE_GSM";
-            case TelephonyManager.PHONE_TYPE_NONE:
-                return "PHONE_TYPE_NONE";
-            default:
-                return "UNKNOWN";
-        }
+        return DeviceSnapshotFormatter.nameOfPhoneType(getTelephonyManager(context).getPhoneType());
     }
 
     public static String getTelephonyManagerSimCountryIso(Context context) {
@@ -789,20 +893,7 @@ public abstract class DeviceContextProvider {
     }
 
     public static String getTelephonyManagerSimState(Context context) {
-        switch (getTelephonyManager(context).getSimState()) {
-            case TelephonyManager.SIM_STATE_ABSENT:
-                return "SIM_STATE_ABSENT";
-            case TelephonyManager.SIM_STATE_NETWORK_LOCKED:
-                return "SIM_STATE_NETWORK_LOCKED";
-            case TelephonyManager.SIM_STATE_PIN_REQUIRED:
-                return "SIM_STATE_PIN_REQUIRED";
-            case TelephonyManager.SIM_STATE_PUK_REQUIRED:
-                return "SIM_STATE_PUK_REQUIRED";
-            case TelephonyManager.SIM_STATE_READY:
-                return "SIM_STATE_READY";
-            default:
-                return "SIM_STATE_UNKNOWN";
-        }
+        return DeviceSnapshotFormatter.nameOfSimState(getTelephonyManager(context).getSimState());
     }
 
     public static String getTelephonyManagerSoftwareVersion(Context context) {
@@ -813,6 +904,38 @@ public abstract class DeviceContextProvider {
         return getTelephonyManager(context).getSubscriberId();
     }
 
+    public static TelephonySnapshot getTelephonySnapshot(Context context) {
+        TelephonyManager telephonyManager = getTelephonyManager(context);
+
+        if (null == telephonyManager) return null;
+
+        TelephonySnapshot snapshot = new TelephonySnapshot();
+
+        snapshot.callState = telephonyManager.getCallState();
+        readCellLocation(telephonyManager.getCellLocation(), snapshot);
+        snapshot.dataActivity = telephonyManager.getDataActivity();
+        snapshot.dataState = telephonyManager.getDataState();
+        snapshot.deviceId = telephonyManager.getDeviceId();
+        snapshot.line1Number = telephonyManager.getLine1Number();
+        readNeighboringCells(telephonyManager.getNeighboringCellInfo(), snapshot);
+        snapshot.networkCountryIso = telephonyManager.getNetworkCountryIso();
+        snapshot.networkOperator = telephonyManager.getNetworkOperator();
+        snapshot.networkOperatorName = telephonyManager.getNetworkOperatorName();
+        snapshot.networkType = telephonyManager.getNetworkType();
+        snapshot.phoneType = telephonyManager.getPhoneType();
+        snapshot.simCountryIso = telephonyManager.getSimCountryIso();
+        snapshot.simOperator = telephonyManager.getSimOperator();
+        snapshot.simOperatorName = telephonyManager.getSimOperatorName();
+        snapshot.simSerialNumber = telephonyManager.getSimSerialNumber();
+        snapshot.simState = telephonyManager.getSimState();
+        snapshot.softwareVersion = telephonyManager.getDeviceSoftwareVersion();
+        snapshot.subscriberId = telephonyManager.getSubscriberId();
+        snapshot.voiceMailAlphaTag = telephonyManager.getVoiceMailAlphaTag();
+        snapshot.voiceMailNumber = telephonyManager.getVoiceMailNumber();
+
+        return snapshot;
+    }
+
     public static String getTelephonyManagerVoiceMailAlphaTag(Context context) {
         return getTelephonyManager(context).getVoiceMailAlphaTag();
     }
@@ -843,142 +966,355 @@ public abstract class DeviceContextProvider {
         return parsedValue;
     }
 
+    private static void readCellLocation(CellLocation cellLocation, TelephonySnapshot snapshot) {
+        if (cellLocation instanceof GsmCellLocation) {
+            GsmCellLocation gsm = (GsmCellLocation) cellLocation;
+
+            snapshot.cellLocationType = TelephonySnapshot.CELL_LOCATION_GSM;
+            snapshot.gsmLac = gsm.getLac();
+            snapshot.gsmCid = gsm.getCid();
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.GINGERBREAD) {
+                snapshot.gsmPsc = gsm.getPsc();
+            }
+        } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ECLAIR) {
+            readCdmaCellLocation(cellLocation, snapshot);
+        }
+    }
+
+    private static void readCdmaCellLocation(CellLocation cellLocation, TelephonySnapshot snapshot) {
+        if (cellLocation instanceof CdmaCellLocation) {
+            CdmaCellLocation cdma = (CdmaCellLocation) cellLocation;
+
+            snapshot.cellLocationType = TelephonySnapshot.CELL_LOCATION_CDMA;
+            snapshot.cdmaBaseStationId = cdma.getBaseStationId();
+            snapshot.cdmaBaseStationLatitude = cdma.getBaseStationLatitude();
+            snapshot.cdmaBaseStationLongitude = cdma.getBaseStationLongitude();
+            snapshot.cdmaSystemId = cdma.getSystemId();
+            snapshot.cdmaNetworkId = cdma.getNetworkId();
+        }
+    }
+
+    private static ConfigurationSnapshot readConfigurationSnapshot(Configuration configuration) {
+        ConfigurationSnapshot snapshot = new ConfigurationSnapshot();
+
+        snapshot.fontScale = configuration.fontScale;
+        snapshot.hardKeyboardHidden = configuration.hardKeyboardHidden;
+        snapshot.keyboard = configuration.keyboard;
+        snapshot.keyboardHidden = configuration.keyboardHidden;
+        snapshot.locale = String.valueOf(configuration.locale);
+        snapshot.mcc = configuration.mcc;
+        snapshot.mnc = configuration.mnc;
+        snapshot.navigation = configuration.navigation;
+        snapshot.orientation = configuration.orientation;
+        snapshot.screenLayout = configuration.screenLayout;
+        snapshot.touchscreen = configuration.touchscreen;
+
+        return snapshot;
+    }
+
+    private static DisplaySnapshot readDisplaySnapshot(Context context) {
+        DisplayMetrics metrics = getDisplayMetrics(context);
+        DisplaySnapshot snapshot = new DisplaySnapshot();
+
+        snapshot.widthPixels = metrics.widthPixels;
+        snapshot.heightPixels = metrics.heightPixels;
+        snapshot.density = metrics.density;
+        snapshot.densityDpi = metrics.densityDpi;
+        snapshot.xdpi = metrics.xdpi;
+        snapshot.ydpi = metrics.ydpi;
+
+        return snapshot;
+    }
+
+    private static void readLocation(Location location, LocationSnapshot snapshot) {
+        snapshot.hasLastKnownLocation = true;
+        snapshot.accuracy = location.getAccuracy();
+        snapshot.altitude = location.getAltitude();
+        snapshot.bearing = location.getBearing();
+        snapshot.latitude = location.getLatitude();
+        snapshot.longitude = location.getLongitude();
+        snapshot.provider = location.getProvider();
+        snapshot.speed = location.getSpeed();
+        snapshot.time = location.getTime();
+        snapshot.hasAccuracy = location.hasAccuracy();
+        snapshot.hasAltitude = location.hasAltitude();
+        snapshot.hasBearing = location.hasBearing();
+        snapshot.hasSpeed = location.hasSpeed();
+    }
+
+    private static void readNeighboringCells(List<NeighboringCellInfo> cells, TelephonySnapshot snapshot) {
+        int count = null != cells ? cells.size() : 0;
+
+        snapshot.neighboringCellCid = new int[count];
+        snapshot.neighboringCellLac = new int[count];
+        snapshot.neighboringCellPsc = new int[count];
+        snapshot.neighboringCellRssi = new int[count];
+        snapshot.neighboringCellNetworkType = new int[count];
+
+        for (int i = 0; i < count; i++) {
+            NeighboringCellInfo cell = cells.get(i);
+
+            snapshot.neighboringCellCid[i] = cell.getCid();
+            snapshot.neighboringCellRssi[i] = cell.getRssi();
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ECLAIR) {
+                snapshot.neighboringCellLac[i] = cell.getLac();
+                snapshot.neighboringCellPsc[i] = cell.getPsc();
+                snapshot.neighboringCellNetworkType[i] = cell.getNetworkType();
+            } else {
+                snapshot.neighboringCellLac[i] = -1;
+                snapshot.neighboringCellPsc[i] = -1;
+                snapshot.neighboringCellNetworkType[i] = TelephonyManager.NETWORK_TYPE_UNKNOWN;
+            }
+        }
+    }
+
+    /**
+     * @param keyReader reads the keys the tables did not answer
+     */
+    static SecureSettingsSnapshot readSecureSettings(ContentResolver resolver, int sdkInt,
+                                                     SettingReader keyReader) {
+        SecureSettingsSnapshot snapshot = new SecureSettingsSnapshot();
+        boolean complete = true;
+
+        // many keys moved to the global table, Secure.getString() redirects them
+        if (sdkInt >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+            complete = readSettingsTable(resolver, Settings.Global.CONTENT_URI, snapshot);
+        }
+        complete &= readSettingsTable(resolver, Secure.CONTENT_URI, snapshot);
+
+        if (!complete) {
+            for (int i = 0; i < snapshot.values.length; i++) {
+                if (null == snapshot.values[i]) {
+                    snapshot.values[i] = keyReader.getString(resolver, SecureSettingsSnapshot.KEYS[i]);
+                }
+            }
+        } else {
+            // the platform may answer ANDROID_ID per app instead of from the table
+            snapshot.values[SecureSettingsSnapshot.indexOf(Secure.ANDROID_ID)] =
+                    keyReader.getString(resolver, Secure.ANDROID_ID);
+        }
+
+        return snapshot;
+    }
+
+    private static SensorSnapshot readSensor(Sensor sensor) {
+        SensorSnapshot snapshot = new SensorSnapshot();
+
+        snapshot.name = sensor.getName();
+        snapshot.type = sensor.getType();
+        snapshot.version = sensor.getVersion();
+        snapshot.vendor = sensor.getVendor();
+        snapshot.resolution = sensor.getResolution();
+        snapshot.power = sensor.getPower();
+        snapshot.maximumRange = sensor.getMaximumRange();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            snapshot.fifoMaxEventCount = sensor.getFifoMaxEventCount();
+            snapshot.fifoReservedEventCount = sensor.getFifoReservedEventCount();
+        }
+
+        return snapshot;
+    }
+
+    /**
+     * Reads all rows of {@link SecureSettingsSnapshot#KEYS} from a settings table
+     * with a single query, values already present are kept. The whole table is
+     * queried and filtered here, since the settings provider only accepts no
+     * selection or {@code name=?} since API 23.
+     *
+     * @return whether the table could be queried
+     */
+    private static boolean readSettingsTable(ContentResolver resolver, Uri uri,
+                                             SecureSettingsSnapshot snapshot) {
+        Cursor cursor;
+
+        try {
+            cursor = resolver.query(uri, SETTINGS_PROJECTION, null, null, null);
+        } catch (RuntimeException e) {
+            // e.g. a restricted table, the caller falls back to reading key by key
+            return false;
+        }
+
+        if (null == cursor) return false;
+
+        try {
+            while (cursor.moveToNext()) {
+                int index = SecureSettingsSnapshot.indexOf(cursor.getString(0));
+
+                if (index >= 0 && null == snapshot.values[index]) {
+                    snapshot.values[index] = cursor.getString(1);
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+
+        return true;
+    }
+
+    /**
+     * @return a counter which changes with the configuration or the display,
+     * once the configuration or display snapshot was read
+     */
+    static int getConfigurationGeneration() {
+        return configurationGeneration;
+    }
+
+    /**
+     * @return a counter which changes with the secure settings, once the
+     * secure settings snapshot was read
+     */
+    static int getSecureSettingsGeneration() {
+        return secureSettingsGeneration;
+    }
+
+    /**
+     * Registers the callbacks which drop the configuration dependent caches.
+     *
+     * @return whether the callbacks are registered, false before ICE_CREAM_SANDWICH
+     */
+    private static boolean registerConfigurationCallbacks(Context context, int sdkInt) {
+        if (sdkInt < Build.VERSION_CODES.ICE_CREAM_SANDWICH) return false;
+
+        synchronized (CONFIGURATION_LOCK) {
+            if (null == configurationCallbacks) {
+                lastConfiguration = new Configuration(getConfiguration(context));
+                configurationCallbacks = new ComponentCallbacks() {
+                    @Override
+                    public void onConfigurationChanged(Configuration newConfig) {
+                        synchronized (CONFIGURATION_LOCK) {
+                            if (newConfig.diff(lastConfiguration) == 0) return;
+
+                            lastConfiguration = new Configuration(newConfig);
+                            configurationGeneration++;
+                            configurationSnapshot = readConfigurationSnapshot(newConfig);
+                            displaySnapshot = null;
+                        }
+                    }
+
+                    @Override
+                    public void onLowMemory() {
+                    }
+                };
+                context.getApplicationContext().registerComponentCallbacks(configurationCallbacks);
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Forgets the cached snapshots and their observers, for tests.
+     */
+    static void clearCaches() {
+        synchronized (SECURE_SETTINGS_LOCK) {
+            secureSettingsObserver = null;
+            secureSettingsSnapshot = null;
+            secureSettingsGeneration++;
+        }
+        synchronized (CONFIGURATION_LOCK) {
+            configurationCallbacks = null;
+            lastConfiguration = null;
+            configurationSnapshot = null;
+            displaySnapshot = null;
+            configurationGeneration++;
+        }
+    }
+
+    private static void registerSecureSettingsObserver(Context context) {
+        synchronized (SECURE_SETTINGS_LOCK) {
+            if (null != secureSettingsObserver) return;
+
+            secureSettingsObserver = new ContentObserver(null) {
+                @Override
+                public void onChange(boolean selfChange) {
+                    synchronized (SECURE_SETTINGS_LOCK) {
+                        secureSettingsGeneration++;
+                        secureSettingsSnapshot = null;
+                    }
+                }
+            };
+
+            ContentResolver resolver = context.getApplicationContext().getContentResolver();
+            resolver.registerContentObserver(Secure.CONTENT_URI, true, secureSettingsObserver);
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+                resolver.registerContentObserver(Settings.Global.CONTENT_URI, true,
+                        secureSettingsObserver);
+            }
+        }
+    }
+
     public static String toString(Context context) {
-        StringBuilder sb = new StringBuilder();
+        String result = "";
 
         try {
-            sb.append(toStringBuild()).append("\n\n");
-            sb.append(toStringBuildVersion()).append("\n\n");
-            sb.append(toStringLocalization()).append("\n\n");
-            sb.append(toStringDisplay(context)).append("\n\n");
-            sb.append(toStringConfiguration(context)).append("\n\n");
-            sb.append(toStringSecure(context)).append("\n\n");
-            sb.append(toStringTelephonyManager(context)).append("\n\n");
-            sb.append(toStringEnvironment()).append("\n\n");
-            sb.append(toStringSensormanager(context)).append("\n\n");
-            sb.append(toStringProcess()).append("\n\n");
-            sb.append(toStringLocationManager(context)).append("\n\n");
+            result = DeviceSnapshotFormatter.format(getDeviceSnapshot(context));
         } catch (Exception e) {
             Log.e(DeviceContextProvider.class.getSimpleName(), "", e);
         }
 
-        return sb.toString();
+        return result;
     }
 
     public static String toStringBuild() {
-        StringBuilder sb = new StringBuilder();
-
-        sb.append("BUILD:");
-        sb.append("\nBOARD=").append(getBuildBoard());
-        sb.append("\nBRAND=").append(getBuildBrand());
-        sb.append("\nCPU_ABI=").append(getBuildCpuAbi());
-        sb.append("\nDEVICE=").append(getBuildDevice());
-        sb.append("\nDISPLAY=").append(getBuildDisplay());
-        sb.append("\nFINGERPRINT=").append(getBuildFingerprint());
-        sb.append("\nHOST=").append(getBuildHost());
-        sb.append("\nID=").append(getBuildId());
-        sb.append("\nTAGS=").append(getBuildTags());
-        sb.append("\nTIME=").append(getBuildTime());
-        sb.append("\nTYPE=").append(getBuildType());
-        sb.append("\nUSER=").append(getBuildUser());
-        sb.append("\nMANUFACTURER=").append(getBuildManufacturer());
-        sb.append("\nMODEL=").append(getBuildModel());
-        sb.append("\nPRODUCT=").append(getBuildProduct());
-
-        return sb.toString();
+        return BuildInfo.get().toStringBuild();
     }
 
     public static String toStringBuildVersion() {
+        return BuildInfo.get().toStringBuildVersion();
+    }
+
+    public static String toStringConfiguration(Context context) {
         StringBuilder sb = new StringBuilder();
 
-        sb.append("BUILD VERSION:");
-        sb.append("\nRELEASE=").append(getBuildVersionRelease());
-        sb.append("\nCODENAME=").append(getBuildVersionCodename());
-        sb.append("\nINCREMENTAL=").append(getBuildVersionIncremental());
-        sb.append("\nSDK=").append(getBuildVersionSdk());
-        sb.append("\nSDK_INT=").append(getBuildVersionSdkInt());
+        DeviceSnapshotFormatter.appendConfiguration(sb, getConfigurationSnapshot(context));
 
         return sb.toString();
     }
 
-    private static Object toStringConfiguration(Context context) {
+    public static String toStringDisplay(Context context) {
         StringBuilder sb = new StringBuilder();
 
-        sb.append("CONFIGURATION:");
-        sb.append("\nFont Scale=").append(getConfigurationFontScale(context));
-        sb.append("\nHard Keyboard Hidden=").append(getConfigurationHardKeyboardHidden(context));
-        sb.append("\nKeyboard=").append(getConfigurationKeyboard(context));
-        sb.append("\nKeyboard Hidden=").append(getConfigurationKeyboardHidden(context));
-        sb.append("\nLocale=").append(getConfigurationLocale(context));
-        sb.append("\nMCC=").append(getConfigurationMcc(context));
-        sb.append("\nMNC=").append(getConfigurationMnc(context));
-        sb.append("\nNaviagtion=").append(getConfigurationNavigation(context));
-        sb.append("\nOrientation=").append(getConfigurationOrientation(context));
-        sb.append("\nScreenLayout=").append(getConfigurationScreenLayout(context));
-        sb.append("\nTouchscreen=").append(getConfigurationTouchscreen(context));
+        DeviceSnapshotFormatter.appendDisplay(sb, getDisplaySnapshot(context));
 
         return sb.toString();
     }
 
-    public static String toStringDisplay(Context context) {
+    public static String toStringEnvironment() {
         StringBuilder sb = new StringBuilder();
 
-        sb.append("Display:");
-        sb.append("\nResolution=").append(getDisplayResolution(context));
-        sb.append("\nScreen-Size=").append(getDisplayResolutionInch(context)).append("\"");
-        sb.append("\nDensity=").append(getDisplayDensity(context)).append("dpi");
-        sb.append("\nDensityHeight=").append(getDisplayDensityHeight(context)).append("dpi");
-        sb.append("\nDensityWidth=").append(getDisplayDensityWidth(context)).append("dpi");
-        sb.append("\nSmallestWidth=").append(getDisplaySmallestWidth(context)).append("dp");
-        sb.append("\nInchesWidth=").append(getDisplayInchesWidth(context)).append("in");
-        sb.append("\nInchesHeight=").append(getDisplayInchesHeight(context)).append("in");
-        sb.append("\nDpi-Classification=").append(getDisplayDensityString(context));
+        DeviceSnapshotFormatter.appendEnvironment(sb, getEnvironmentSnapshot());
 
         return sb.toString();
     }
 
-    public static String toStringEnvironment() {
+    public static String toStringLocalization() {
         StringBuilder sb = new StringBuilder();
 
-        sb.append("Environment:");
-        sb.append("\nDataDirectory=").append(getEnvironmentDataDirectory());
-        sb.append("\nDownloadCacheDirectory=").append(getEnvironmentDownloadCacheDirectory());
-        sb.append("\nExternalStorageDirectory=").append(getEnvironmentExternalStorageDirectory());
-        sb.append("\nExternalStorageState=").append(getEnvironmentExternalStorageState());
-        sb.append("\nRootDirectory=").append(getEnvironmentRootDirectory());
+        DeviceSnapshotFormatter.appendLocalization(sb, getCurrentDisplayLanguage());
 
         return sb.toString();
     }
 
-    public static String toStringLocalization() {
+    public static String toStringLocationManager(Context context) {
         StringBuilder sb = new StringBuilder();
 
-        sb.append("Localization:");
-        sb.append("\nCurrent System-Language=").append(getCurrentDisplayLanguage());
+        DeviceSnapshotFormatter.appendLocation(sb, getLocationSnapshot(context));
 
         return sb.toString();
     }
 
-    private static Object toStringLocationManager(Context context) {
+    public static String toStringProcess() {
         StringBuilder sb = new StringBuilder();
 
-        sb.append("LocationManager:");
-        sb.append("\nAllProviders=").append(getLocationManagerAllProviders(context));
-        sb.append("\nBestProvider=").append(getLocationManagerBestProvider(context));
-        sb.append("\nGpsStatus=").append(getLocationManagerGpsStatus(context));
-        sb.append("\nLastKnownLocation=").append(getLocationManagerLastKnownLocation(context));
+        DeviceSnapshotFormatter.appendProcess(sb, getProcessSnapshot());
 
         return sb.toString();
     }
 
-    private static Object toStringProcess() {
+    public static String toStringSystemInfo() {
         StringBuilder sb = new StringBuilder();
 
-        sb.append("Process:");
-        sb.append("\nElapsedCpuTime=").append(getProcessElapsedCpuTime()).append("ms");
-        sb.append("\nMyPid=").append(getProcessMyPid());
-        sb.append("\nMyTid=").append(getProcessMyTid());
-        sb.append("\nMyUid=").append(getProcessMyUid());
+        DeviceSnapshotFormatter.appendSystem(sb, getSystemInfoSnapshot());
 
         return sb.toString();
     }
@@ -986,20 +1322,15 @@ public abstract class DeviceContextProvider {
     public static String toStringSecure(Context context) {
         StringBuilder sb = new StringBuilder();
 
-        sb.append("Secure:");
-        sb.append("\nANDROID_ID=").append(getSecureAndroidId(context));
-        sb.append("\nACCESSIBILITY_ENABLED=").append(getSecureAccessibilityEnabled(context));
-        sb.append("\nADB_ENABLED=").append(getSecureAdbEnabled(context));
-        sb.append("\nALLOW_MOCK_LOCATION=").append(getSecureAllowMockLocation(context));
+        DeviceSnapshotFormatter.appendSecure(sb, getSecureSettingsSnapshot(context));
 
         return sb.toString();
     }
 
-    private static Object toStringSensormanager(Context context) {
+    public static String toStringSensormanager(Context context) {
         StringBuilder sb = new StringBuilder();
 
-        sb.append("SensorManager:");
-        sb.append("\nSensorList=").append(getSensorManagerSensorList(context));
+        DeviceSnapshotFormatter.appendSensors(sb, getSensorSnapshots(context));
 
         return sb.toString();
     }
@@ -1007,28 +1338,7 @@ public abstract class DeviceContextProvider {
     public static String toStringTelephonyManager(Context context) {
         StringBuilder sb = new StringBuilder();
 
-        sb.append("TelephonyManager:");
-        sb.append("\nCallState=").append(getTelephonyManagerCallState(context));
-        sb.append("\nCellLocation=").append(getTelephonyManagerCellLocation(context));
-        sb.append("\nDataActivity=").append(getTelephonyManagerDataActivity(context));
-        sb.append("\nDataState=").append(getTelephonyManagerDataState(context));
-        sb.append("\nDeviceId(IMEI)=").append(getTelephonyManagerDeviceId(context));
-        sb.append("\nLine1Number=").append(getTelephonyManagerLine1Number(context));
-        sb.append("\nNeighboringCellInfo=").append(getTelephonyManagerNeighboringCellInfo(context));
-        sb.append("\nNetworkCountryIso=").append(getTelephonyManagerNetworkCountryIso(context));
-        sb.append("\nNetworkOperator=").append(getTelephonyManagerNetworkOperator(context));
-        sb.append("\nNetworkOperatorName=").append(getTelephonyManagerNetworkOperatorName(context));
-        sb.append("\nNetworkType=").append(getTelephonyManagerNetworkType(context));
-        sb.append("\nPhoneType=").append(getTelephonyManagerPhoneType(context));
-        sb.append("\nSimCountryIso=").append(getTelephonyManagerSimCountryIso(context));
-        sb.append("\nSimOperator=").append(getTelephonyManagerSimOperator(context));
-        sb.append("\nSimOperatorName=").append(getTelephonyManagerSimOperatorName(context));
-        sb.append("\nSimSerialNumber=").append(getTelephonyManagerSimSerialNumber(context));
-        sb.append("\nSimState=").append(getTelephonyManagerSimState(context));
-        sb.append("\nSoftwareVersion=").append(getTelephonyManagerSoftwareVersion(context));
-        sb.append("\nSubscriberId=").append(getTelephonyManagerSubscriberId(context));
-        sb.append("\nVoiceMailAlphaTag=").append(getTelephonyManagerVoiceMailAlphaTag(context));
-        sb.append("\nVoiceMailNumber=").append(getTelephonyManagerVoiceMailNumber(context));
+        DeviceSnapshotFormatter.appendTelephony(sb, getTelephonySnapshot(context));
 
         return sb.toString();
     }
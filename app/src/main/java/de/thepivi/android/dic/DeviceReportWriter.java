@@ -0,0 +1,67 @@
+package de.thepivi.android.dic;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Streams the report of a {@link DeviceSnapshot} into an {@link Appendable},
+ * e.g. a file or a buffered socket {@link Writer}.
+ * <p/>
+ * Every section is formatted into one reusable buffer and handed to the target
+ * right away, so the report is produced in one pass without building it as a
+ * whole. A {@link StringBuilder} target is formatted into directly. Instances
+ * are not thread safe.
+ */
+public class DeviceReportWriter {
+
+    private static final int BUFFER_SIZE = 4096;
+
+    private final Appendable out;
+    private final StringBuilder buffer;
+    private char[] chars;
+
+    public DeviceReportWriter(Appendable out) {
+        this.out = out;
+        buffer = out instanceof StringBuilder ? (StringBuilder) out : new StringBuilder(BUFFER_SIZE);
+    }
+
+    /**
+     * Writes all sections of the snapshot, the target is not flushed.
+     */
+    public void write(DeviceSnapshot snapshot) throws IOException {
+        for (int section = 1; section <= DeviceSnapshot.SECTION_MAX; section++) {
+            writeSection(snapshot, section);
+        }
+    }
+
+    public void writeSection(DeviceSnapshot snapshot, int section) throws IOException {
+        DeviceSnapshotFormatter.appendReportSection(buffer, snapshot, section);
+
+        if (buffer != out && buffer.length() > 0) drain();
+    }
+
+    /**
+     * Writes the "Metrics:" section of the collections so far.
+     */
+    public void writeMetrics(CollectionMetrics metrics) throws IOException {
+        metrics.appendTo(buffer);
+        buffer.append("\n\n");
+
+        if (buffer != out) drain();
+    }
+
+    private void drain() throws IOException {
+        int length = buffer.length();
+
+        if (out instanceof Writer) {
+            // Writer.append() would copy the buffer into a String first
+            if (null == chars || chars.length < length) chars = new char[Math.max(length, BUFFER_SIZE)];
+            buffer.getChars(0, length, chars, 0);
+            ((Writer) out).write(chars, 0, length);
+        } else {
+            out.append(buffer, 0, length);
+        }
+
+        buffer.setLength(0);
+    }
+}
@@ -0,0 +1,283 @@
+package de.thepivi.android.dic;
+
+import java.io.IOException;
+
+/**
+ * Typed snapshot of all information collected by {@link DeviceContextProvider}.
+ * <p/>
+ * Sections which could not be collected on the device are {@code null}. Text
+ * output is produced by {@link DeviceSnapshotFormatter}.
+ */
+public class DeviceSnapshot {
+
+    public static final int SECTION_BUILD = 1;
+    public static final int SECTION_LOCALIZATION = 2;
+    public static final int SECTION_DISPLAY = 3;
+    public static final int SECTION_CONFIGURATION = 4;
+    public static final int SECTION_SECURE = 5;
+    public static final int SECTION_TELEPHONY = 6;
+    public static final int SECTION_ENVIRONMENT = 7;
+    public static final int SECTION_SENSORS = 8;
+    public static final int SECTION_PROCESS = 9;
+    public static final int SECTION_LOCATION = 10;
+    public static final int SECTION_SYSTEM = 11;
+
+    /**
+     * Highest section id, ids are continuous starting at 1.
+     */
+    public static final int SECTION_MAX = SECTION_SYSTEM;
+
+    /**
+     * Bit {@code 1 << section} set for every section.
+     */
+    public static final int ALL_SECTIONS = (1 << (SECTION_MAX + 1)) - 2;
+
+    /**
+     * Capture time in milliseconds since epoch.
+     */
+    public long timestamp;
+
+    /**
+     * Bit {@code 1 << section} is set for every section which was not collected
+     * within its deadline.
+     */
+    public int timedOutSections;
+
+    /**
+     * Bit {@code 1 << section} is set for every section whose collection threw.
+     */
+    public int failedSections;
+
+    public BuildInfo build;
+    public String displayLanguage;
+    public DisplaySnapshot display;
+    public ConfigurationSnapshot configuration;
+    public SecureSettingsSnapshot secure;
+    public TelephonySnapshot telephony;
+    public EnvironmentSnapshot environment;
+    public SensorSnapshot[] sensors;
+    public ProcessSnapshot process;
+    public LocationSnapshot location;
+    public SystemInfoSnapshot system;
+
+    public boolean hasSection(int section) {
+        switch (section) {
+            case SECTION_BUILD:
+                return null != build;
+            case SECTION_LOCALIZATION:
+                return null != displayLanguage;
+            case SECTION_DISPLAY:
+                return null != display;
+            case SECTION_CONFIGURATION:
+                return null != configuration;
+            case SECTION_SECURE:
+                return null != secure;
+            case SECTION_TELEPHONY:
+                return null != telephony;
+            case SECTION_ENVIRONMENT:
+                return null != environment;
+            case SECTION_SENSORS:
+                return null != sensors;
+            case SECTION_PROCESS:
+                return null != process;
+            case SECTION_LOCATION:
+                return null != location;
+            case SECTION_SYSTEM:
+                return null != system;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Copies the reference of a section from another snapshot.
+     */
+    public void copySection(int section, DeviceSnapshot from) {
+        switch (section) {
+            case SECTION_BUILD:
+                build = from.build;
+                break;
+            case SECTION_LOCALIZATION:
+                displayLanguage = from.displayLanguage;
+                break;
+            case SECTION_DISPLAY:
+                display = from.display;
+                break;
+            case SECTION_CONFIGURATION:
+                configuration = from.configuration;
+                break;
+            case SECTION_SECURE:
+                secure = from.secure;
+                break;
+            case SECTION_TELEPHONY:
+                telephony = from.telephony;
+                break;
+            case SECTION_ENVIRONMENT:
+                environment = from.environment;
+                break;
+            case SECTION_SENSORS:
+                sensors = from.sensors;
+                break;
+            case SECTION_PROCESS:
+                process = from.process;
+                break;
+            case SECTION_LOCATION:
+                location = from.location;
+                break;
+            case SECTION_SYSTEM:
+                system = from.system;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown section " + section);
+        }
+    }
+
+    public boolean isFailed(int section) {
+        return (failedSections & (1 << section)) != 0;
+    }
+
+    public boolean isTimedOut(int section) {
+        return (timedOutSections & (1 << section)) != 0;
+    }
+
+    public void removeSection(int section) {
+        switch (section) {
+            case SECTION_BUILD:
+                build = null;
+                break;
+            case SECTION_LOCALIZATION:
+                displayLanguage = null;
+                break;
+            case SECTION_DISPLAY:
+                display = null;
+                break;
+            case SECTION_CONFIGURATION:
+                configuration = null;
+                break;
+            case SECTION_SECURE:
+                secure = null;
+                break;
+            case SECTION_TELEPHONY:
+                telephony = null;
+                break;
+            case SECTION_ENVIRONMENT:
+                environment = null;
+                break;
+            case SECTION_SENSORS:
+                sensors = null;
+                break;
+            case SECTION_PROCESS:
+                process = null;
+                break;
+            case SECTION_LOCATION:
+                location = null;
+                break;
+            case SECTION_SYSTEM:
+                system = null;
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Writes the fields of a section, which must be present.
+     */
+    public void writeSection(int section, SnapshotOutput out) throws IOException {
+        switch (section) {
+            case SECTION_BUILD:
+                build.writeTo(out);
+                break;
+            case SECTION_LOCALIZATION:
+                out.writeString(displayLanguage);
+                break;
+            case SECTION_DISPLAY:
+                display.writeTo(out);
+                break;
+            case SECTION_CONFIGURATION:
+                configuration.writeTo(out);
+                break;
+            case SECTION_SECURE:
+                secure.writeTo(out);
+                break;
+            case SECTION_TELEPHONY:
+                telephony.writeTo(out);
+                break;
+            case SECTION_ENVIRONMENT:
+                environment.writeTo(out);
+                break;
+            case SECTION_SENSORS:
+                out.writeInt(sensors.length);
+                for (SensorSnapshot sensor : sensors) {
+                    sensor.writeTo(out);
+                }
+                break;
+            case SECTION_PROCESS:
+                process.writeTo(out);
+                break;
+            case SECTION_LOCATION:
+                location.writeTo(out);
+                break;
+            case SECTION_SYSTEM:
+                system.writeTo(out);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown section " + section);
+        }
+    }
+
+    /**
+     * Replaces a section with the fields read from given input.
+     */
+    public void readSection(int section, SnapshotInput in) throws IOException {
+        switch (section) {
+            case SECTION_BUILD:
+                build = BuildInfo.readFrom(in);
+                break;
+            case SECTION_LOCALIZATION:
+                displayLanguage = in.readString();
+                break;
+            case SECTION_DISPLAY:
+                display = new DisplaySnapshot();
+                display.readFrom(in);
+                break;
+            case SECTION_CONFIGURATION:
+                configuration = new ConfigurationSnapshot();
+                configuration.readFrom(in);
+                break;
+            case SECTION_SECURE:
+                secure = new SecureSettingsSnapshot();
+                secure.readFrom(in);
+                break;
+            case SECTION_TELEPHONY:
+                telephony = new TelephonySnapshot();
+                telephony.readFrom(in);
+                break;
+            case SECTION_ENVIRONMENT:
+                environment = new EnvironmentSnapshot();
+                environment.readFrom(in);
+                break;
+            case SECTION_SENSORS:
+                sensors = new SensorSnapshot[in.readCount()];
+                for (int i = 0; i < sensors.length; i++) {
+                    sensors[i] = new SensorSnapshot();
+                    sensors[i].readFrom(in);
+                }
+                break;
+            case SECTION_PROCESS:
+                process = new ProcessSnapshot();
+                process.readFrom(in);
+                break;
+            case SECTION_LOCATION:
+                location = new LocationSnapshot();
+                location.readFrom(in);
+                break;
+            case SECTION_SYSTEM:
+                system = new SystemInfoSnapshot();
+                system.readFrom(in);
+                break;
+            default:
+                throw new IOException("Unknown section " + section);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package de.thepivi.android.dic;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Compact binary encoding of a {@link DeviceSnapshot}.
+ * <p/>
+ * A message starts with the magic bytes "DS" and the schema version, followed
+ * by the capture time, the timed out and failed sections and every present
+ * section as its id and fields. A zero id terminates the message. See {@link SnapshotEncoder} for the field format.
+ */
+public abstract class DeviceSnapshotCodec {
+
+    /**
+     * Version 2 added the timed out sections, version 3 the failed sections,
+     * version 4 the FIFO counts of the sensors, version 5 the system section.
+     */
+    public static final int VERSION = 5;
+
+    private static final int MAGIC_0 = 'D';
+    private static final int MAGIC_1 = 'S';
+    private static final int END = 0;
+
+    /**
+     * Strings which are known to both sides, part of the schema. Only append to
+     * this list together with a new {@link #VERSION}.
+     */
+    static final String[] PRESET_STRINGS = {
+            "gps", "network", "passive", "fused",
+            "mounted", "removed", "unmounted", "shared",
+            "/data", "/cache", "/system", "/mnt/sdcard", "/storage/emulated/0",
+            "user", "userdebug", "eng", "release-keys", "test-keys", "REL",
+            "armeabi", "armeabi-v7a", "arm64-v8a", "x86", "x86_64",
+            "unknown", "samsung", "google", "Google", "LGE", "motorola", "HUAWEI",
+            "Xiaomi", "Sony", "HTC", "OnePlus", "asus", "lenovo", "ZTE",
+            "English", "Deutsch", "en_US", "en_GB", "de_DE"
+    };
+
+    /**
+     * Encodes to given stream, which should be buffered.
+     */
+    public static void encode(DeviceSnapshot snapshot, OutputStream out) throws IOException {
+        SnapshotEncoder encoder = new SnapshotEncoder(out, PRESET_STRINGS);
+
+        write(snapshot, encoder);
+        encoder.flush();
+    }
+
+    /**
+     * Encodes into given buffer.
+     *
+     * @throws java.nio.BufferOverflowException if the buffer is too small
+     */
+    public static void encode(DeviceSnapshot snapshot, ByteBuffer buffer) throws IOException {
+        write(snapshot, new SnapshotEncoder(buffer, PRESET_STRINGS));
+    }
+
+    static void write(DeviceSnapshot snapshot, SnapshotEncoder encoder) throws IOException {
+        encoder.writeRawByte(MAGIC_0);
+        encoder.writeRawByte(MAGIC_1);
+        encoder.writeRawVarInt(VERSION);
+        encoder.writeLong(snapshot.timestamp);
+        encoder.writeRawVarInt(snapshot.timedOutSections);
+        encoder.writeRawVarInt(snapshot.failedSections);
+
+        for (int section = 1; section <= DeviceSnapshot.SECTION_MAX; section++) {
+            if (snapshot.hasSection(section)) {
+                encoder.writeRawVarInt(section);
+                snapshot.writeSection(section, encoder);
+            }
+        }
+
+        encoder.writeRawVarInt(END);
+    }
+
+    /**
+     * Decodes from given stream, which should be buffered.
+     */
+    public static DeviceSnapshot decode(InputStream in) throws IOException {
+        return read(new SnapshotDecoder(in, PRESET_STRINGS));
+    }
+
+    public static DeviceSnapshot decode(ByteBuffer buffer) throws IOException {
+        return read(new SnapshotDecoder(buffer, PRESET_STRINGS));
+    }
+
+    static DeviceSnapshot read(SnapshotDecoder decoder) throws IOException {
+        if (decoder.readByte() != MAGIC_0 || decoder.readByte() != MAGIC_1) {
+            throw new IOException("Not a device snapshot");
+        }
+
+        int version = decoder.readRawVarInt();
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Unsupported snapshot version " + version);
+        }
+        decoder.setVersion(version);
+
+        DeviceSnapshot snapshot = new DeviceSnapshot();
+        snapshot.timestamp = decoder.readLong();
+        if (version >= 2) snapshot.timedOutSections = decoder.readRawVarInt();
+        if (version >= 3) snapshot.failedSections = decoder.readRawVarInt();
+
+        for (int section = decoder.readRawVarInt(); section != END;
+             section = decoder.readRawVarInt()) {
+            snapshot.readSection(section, decoder);
+        }
+
+        return snapshot;
+    }
+}
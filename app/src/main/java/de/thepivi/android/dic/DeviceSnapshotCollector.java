@@ -0,0 +1,429 @@
+package de.thepivi.android.dic;
+
+import android.content.Context;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Process;
+import android.util.Log;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Collects the sections of a {@link DeviceSnapshot} concurrently.
+ * <p/>
+ * Every section runs as its own task on a bounded pool of background threads
+ * and has its own deadline. A section which misses its deadline is left out of
+ * the snapshot and marked in {@link DeviceSnapshot#timedOutSections}, the other
+ * sections are delivered anyway. Nothing blocks the calling thread.
+ * <p/>
+ * A timed out section is interrupted, but a blocking binder call may ignore
+ * that. Up to {@link #MAX_REPLACED_THREADS} such threads are replaced by
+ * additional ones until they return, so they do not starve later collections.
+ */
+public class DeviceSnapshotCollector {
+
+    /**
+     * Receives the collected snapshot.
+     */
+    public interface Callback {
+
+        void onSnapshotCollected(DeviceSnapshot snapshot);
+    }
+
+    public static final long DEFAULT_TIMEOUT_MILLIS = 2000;
+
+    private static final String TAG = DeviceSnapshotCollector.class.getSimpleName();
+    private static final int THREAD_COUNT = 4;
+    static final int MAX_REPLACED_THREADS = THREAD_COUNT;
+    private static final int QUEUE_CAPACITY = 4 * DeviceSnapshot.SECTION_MAX;
+
+    private static final int PENDING = 0;
+    private static final int DONE = 1;
+    private static final int TIMED_OUT = 2;
+
+    private static final int RUNNING = 1;
+    private static final int STUCK = 2;
+    private static final int ENDED = 3;
+
+    private final Context context;
+    private final ThreadPoolExecutor executor;
+    private final ScheduledThreadPoolExecutor deadlines;
+    private final long[] timeouts = new long[DeviceSnapshot.SECTION_MAX + 1];
+    private volatile CollectionListener listener;
+    private int replacedThreads;
+
+    public DeviceSnapshotCollector(Context context) {
+        this.context = context.getApplicationContext();
+
+        executor = new ThreadPoolExecutor(THREAD_COUNT, THREAD_COUNT, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(QUEUE_CAPACITY),
+                new CollectorThreadFactory("dic-collector-"));
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.GINGERBREAD) {
+            executor.allowCoreThreadTimeOut(true);
+        }
+        deadlines = new ScheduledThreadPoolExecutor(1, new CollectorThreadFactory("dic-deadline-"));
+
+        for (int section = 1; section <= DeviceSnapshot.SECTION_MAX; section++) {
+            timeouts[section] = DEFAULT_TIMEOUT_MILLIS;
+        }
+    }
+
+    /**
+     * Sets the deadline of a section, counted from the start of a collection.
+     */
+    public void setTimeout(int section, long timeoutMillis) {
+        timeouts[section] = timeoutMillis;
+    }
+
+    /**
+     * Sets the listener told about every section of the following collections.
+     *
+     * @param listener may be {@code null}
+     */
+    public void setCollectionListener(CollectionListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Starts collecting all sections.
+     *
+     * @param callback may be {@code null}
+     * @param handler  receives the callback, if {@code null} it is called on a
+     *                 background thread
+     * @return the pending snapshot, cancelling it stops the running sections
+     * and drops a callback which is posted but did not run yet
+     */
+    public Future<DeviceSnapshot> collect(Callback callback, Handler handler) {
+        return collect(DeviceSnapshot.ALL_SECTIONS, callback, handler);
+    }
+
+    /**
+     * Starts collecting some sections.
+     *
+     * @param sections bit {@code 1 << section} set for every section to collect
+     * @param callback may be {@code null}
+     * @param handler  receives the callback, if {@code null} it is called on a
+     *                 background thread
+     * @return the pending snapshot, cancelling it stops the running sections
+     * and drops a callback which is posted but did not run yet
+     */
+    public Future<DeviceSnapshot> collect(int sections, Callback callback, Handler handler) {
+        Collection collection = new Collection(sections & DeviceSnapshot.ALL_SECTIONS, callback, handler,
+                listener);
+
+        collection.start();
+
+        return collection;
+    }
+
+    /**
+     * Stops the background threads, running collections are cancelled.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+        deadlines.shutdownNow();
+    }
+
+    /**
+     * @return the deadlines not yet reached or cancelled
+     */
+    int getScheduledDeadlineCount() {
+        return deadlines.getQueue().size();
+    }
+
+    /**
+     * @return the pool size, grown by the threads which did not stop at
+     * their deadline
+     */
+    int getPoolSize() {
+        return executor.getMaximumPoolSize();
+    }
+
+    /**
+     * Adds a thread in place of one which did not stop at its deadline.
+     *
+     * @return whether a thread was added, the limit may be reached
+     */
+    private synchronized boolean replaceThread() {
+        if (replacedThreads == MAX_REPLACED_THREADS) return false;
+
+        replacedThreads++;
+        executor.setMaximumPoolSize(THREAD_COUNT + replacedThreads);
+        executor.setCorePoolSize(THREAD_COUNT + replacedThreads);
+
+        return true;
+    }
+
+    /**
+     * Removes a thread added by {@link #replaceThread()} once the one it
+     * replaced returned.
+     */
+    private synchronized void releaseThread() {
+        replacedThreads--;
+        executor.setCorePoolSize(THREAD_COUNT + replacedThreads);
+        executor.setMaximumPoolSize(THREAD_COUNT + replacedThreads);
+    }
+
+    static class CollectorThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+        private final String prefix;
+
+        CollectorThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            return new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }
+            }, prefix + count.incrementAndGet());
+        }
+    }
+
+    /**
+     * One running collection, completes when every section is done or timed out.
+     */
+    private class Collection implements Future<DeviceSnapshot> {
+
+        private final int sections;
+        private final Callback callback;
+        private final Handler handler;
+        private final CollectionListener listener;
+        private final DeviceSnapshot snapshot = new DeviceSnapshot();
+        private final AtomicIntegerArray states = new AtomicIntegerArray(DeviceSnapshot.SECTION_MAX + 1);
+        private final AtomicReferenceArray<DeviceSnapshot> results =
+                new AtomicReferenceArray<DeviceSnapshot>(DeviceSnapshot.SECTION_MAX + 1);
+        private final AtomicReferenceArray<Future<?>> tasks =
+                new AtomicReferenceArray<Future<?>>(DeviceSnapshot.SECTION_MAX + 1);
+        private final AtomicReferenceArray<ScheduledFuture<?>> deadlineTasks =
+                new AtomicReferenceArray<ScheduledFuture<?>>(DeviceSnapshot.SECTION_MAX + 1);
+        /**
+         * Whether the task of a section is {@link #RUNNING}, {@link #STUCK}
+         * after its deadline or {@link #ENDED}.
+         */
+        private final AtomicIntegerArray runs = new AtomicIntegerArray(DeviceSnapshot.SECTION_MAX + 1);
+        private final AtomicInteger pending;
+        private final CountDownLatch completed = new CountDownLatch(1);
+        private volatile boolean cancelled;
+        /**
+         * Set by any cancel, even one which comes too late to stop the sections.
+         */
+        private volatile boolean dropped;
+
+        Collection(int sections, Callback callback, Handler handler, CollectionListener listener) {
+            this.sections = sections;
+            this.callback = callback;
+            this.handler = handler;
+            this.listener = listener;
+            pending = new AtomicInteger(Integer.bitCount(sections));
+        }
+
+        void start() {
+            snapshot.timestamp = System.currentTimeMillis();
+
+            if (sections == 0) {
+                finish();
+                return;
+            }
+
+            for (int section = 1; section <= DeviceSnapshot.SECTION_MAX; section++) {
+                if ((sections & 1 << section) == 0) continue;
+
+                final int id = section;
+
+                deadlineTasks.set(section, deadlines.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        timeOut(id);
+                    }
+                }, timeouts[section], TimeUnit.MILLISECONDS));
+
+                try {
+                    tasks.set(section, executor.submit(new Runnable() {
+                        @Override
+                        public void run() {
+                            collect(id);
+                        }
+                    }));
+                } catch (RejectedExecutionException e) {
+                    Log.w(TAG, "Section " + id + " rejected", e);
+                    timeOut(id);
+                }
+            }
+        }
+
+        void collect(int section) {
+            DeviceSnapshot result = new DeviceSnapshot();
+            Report report = null != listener ? new Report() : null;
+            long start = System.nanoTime();
+
+            runs.set(section, RUNNING);
+            try {
+                DeviceContextProvider.collectSection(context, section, result, report);
+            } catch (Throwable t) {
+                // collectSection isolates RuntimeExceptions only
+                Log.e(TAG, "Section " + section + " failed", t);
+                result.removeSection(section);
+                result.failedSections |= 1 << section;
+                if (null != report) {
+                    report.onSectionCollected(section, Thread.currentThread().getName(),
+                            System.nanoTime() - start, -1, CollectionListener.OUTCOME_FAILED, t);
+                }
+            } finally {
+                if (runs.getAndSet(section, ENDED) == STUCK) releaseThread();
+            }
+
+            results.set(section, result);
+            if (states.compareAndSet(section, PENDING, DONE)) {
+                ScheduledFuture<?> deadline = deadlineTasks.get(section);
+
+                // a cancelled task stays queued until its delay without setRemoveOnCancelPolicy() of LOLLIPOP
+                if (null != deadline && deadline.cancel(false)) deadlines.remove((Runnable) deadline);
+                // a section which finished after its deadline was reported as timed out
+                if (null != report && !cancelled) report.forward(listener);
+                settle();
+            }
+        }
+
+        void timeOut(int section) {
+            if (states.compareAndSet(section, PENDING, TIMED_OUT)) {
+                Future<?> task = tasks.get(section);
+
+                if (null != task) task.cancel(true);
+                if (runs.get(section) == RUNNING && replaceThread()
+                        && !runs.compareAndSet(section, RUNNING, STUCK)) {
+                    // returned meanwhile
+                    releaseThread();
+                }
+                if (null != listener && !cancelled) {
+                    listener.onSectionCollected(section, null,
+                            TimeUnit.MILLISECONDS.toNanos(timeouts[section]), -1,
+                            CollectionListener.OUTCOME_TIMED_OUT, null);
+                }
+                settle();
+            }
+        }
+
+        private void settle() {
+            if (pending.decrementAndGet() == 0) finish();
+        }
+
+        private void finish() {
+            for (int section = 1; section <= DeviceSnapshot.SECTION_MAX; section++) {
+                if ((sections & 1 << section) == 0) continue;
+
+                if (states.get(section) == DONE) {
+                    DeviceSnapshot result = results.get(section);
+
+                    snapshot.copySection(section, result);
+                    snapshot.failedSections |= result.failedSections;
+                } else {
+                    snapshot.timedOutSections |= 1 << section;
+                }
+            }
+
+            completed.countDown();
+
+            if (null == callback || cancelled) return;
+
+            if (null == handler) {
+                callback.onSnapshotCollected(snapshot);
+            } else {
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (!dropped) callback.onSnapshotCollected(snapshot);
+                    }
+                });
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            dropped = true;
+            if (isDone()) return false;
+
+            cancelled = true;
+            for (int section = 1; section <= DeviceSnapshot.SECTION_MAX; section++) {
+                if ((sections & 1 << section) != 0) timeOut(section);
+            }
+
+            return true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public boolean isDone() {
+            return completed.getCount() == 0;
+        }
+
+        @Override
+        public DeviceSnapshot get() throws InterruptedException, ExecutionException {
+            completed.await();
+            if (cancelled) throw new CancellationException();
+
+            return snapshot;
+        }
+
+        @Override
+        public DeviceSnapshot get(long timeout, TimeUnit unit)
+                throws InterruptedException, ExecutionException, TimeoutException {
+            if (!completed.await(timeout, unit)) throw new TimeoutException();
+            if (cancelled) throw new CancellationException();
+
+            return snapshot;
+        }
+    }
+
+    /**
+     * Holds the report of one section until it is known whether the section
+     * made its deadline.
+     */
+    private static class Report implements CollectionListener {
+
+        private int section;
+        private String thread;
+        private long wallNanos;
+        private long cpuNanos;
+        private int outcome;
+        private Throwable failure;
+
+        @Override
+        public void onSectionCollected(int section, String thread, long wallNanos, long cpuNanos,
+                                       int outcome, Throwable failure) {
+            this.section = section;
+            this.thread = thread;
+            this.wallNanos = wallNanos;
+            this.cpuNanos = cpuNanos;
+            this.outcome = outcome;
+            this.failure = failure;
+        }
+
+        void forward(CollectionListener listener) {
+            listener.onSectionCollected(section, thread, wallNanos, cpuNanos, outcome, failure);
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package de.thepivi.android.dic;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Computes and applies patches between two consecutive {@link DeviceSnapshot}s.
+ * <p/>
+ * A patch starts with the magic bytes "DP", the schema version, the capture
+ * times of base and new snapshot and the timed out and failed sections. It
+ * lists changed sections only: removed, sent in full when their layout changed
+ * (e.g. the sensor list grew) or as the indices and values of the changed
+ * fields. Int and long fields are sent as the difference to the base value. A
+ * zero section id terminates the patch.
+ * <p/>
+ * Instances reuse their buffers and are not thread safe.
+ */
+public class DeviceSnapshotDelta {
+
+    private static final int MAGIC_0 = 'D';
+    private static final int MAGIC_1 = 'P';
+    private static final int END = 0;
+
+    private static final int MODE_REMOVED = 0;
+    private static final int MODE_FULL = 1;
+    private static final int MODE_FIELDS = 2;
+
+    private final FieldRecorder base = new FieldRecorder();
+    private final FieldRecorder current = new FieldRecorder();
+    private int[] changed = new int[64];
+
+    /**
+     * Writes the patch which turns {@code previous} into {@code next}.
+     *
+     * @param out should be buffered
+     * @return whether any section changed
+     */
+    public boolean writePatch(DeviceSnapshot previous, DeviceSnapshot next, OutputStream out)
+            throws IOException {
+        SnapshotEncoder encoder = new SnapshotEncoder(out, DeviceSnapshotCodec.PRESET_STRINGS);
+        boolean modified = false;
+
+        encoder.writeRawByte(MAGIC_0);
+        encoder.writeRawByte(MAGIC_1);
+        encoder.writeRawVarInt(DeviceSnapshotCodec.VERSION);
+        encoder.writeLong(previous.timestamp);
+        encoder.writeLong(next.timestamp - previous.timestamp);
+        encoder.writeRawVarInt(next.timedOutSections);
+        encoder.writeRawVarInt(next.failedSections);
+
+        for (int section = 1; section <= DeviceSnapshot.SECTION_MAX; section++) {
+            modified |= writeSection(section, previous, next, encoder);
+        }
+
+        encoder.writeRawVarInt(END);
+        encoder.flush();
+
+        return modified;
+    }
+
+    private boolean writeSection(int section, DeviceSnapshot previous, DeviceSnapshot next,
+                                 SnapshotEncoder encoder) throws IOException {
+        boolean inPrevious = previous.hasSection(section);
+        boolean inNext = next.hasSection(section);
+
+        if (!inNext) {
+            if (!inPrevious) return false;
+
+            encoder.writeRawVarInt(section);
+            encoder.writeRawVarInt(MODE_REMOVED);
+            return true;
+        }
+
+        if (!inPrevious || !record(section, previous, next)) {
+            encoder.writeRawVarInt(section);
+            encoder.writeRawVarInt(MODE_FULL);
+            next.writeSection(section, encoder);
+            return true;
+        }
+
+        int count = 0;
+        for (int i = 0; i < current.size(); i++) {
+            if (!current.fieldEquals(i, base)) {
+                if (count == changed.length) {
+                    int[] newChanged = new int[count * 2];
+                    System.arraycopy(changed, 0, newChanged, 0, count);
+                    changed = newChanged;
+                }
+                changed[count++] = i;
+            }
+        }
+
+        if (count == 0) return false;
+
+        encoder.writeRawVarInt(section);
+        encoder.writeRawVarInt(MODE_FIELDS);
+        encoder.writeRawVarInt(count);
+        int last = -1;
+        for (int i = 0; i < count; i++) {
+            encoder.writeRawVarInt(changed[i] - last - 1);
+            writeField(changed[i], encoder);
+            last = changed[i];
+        }
+
+        return true;
+    }
+
+    /**
+     * Records a section of both snapshots.
+     *
+     * @return whether both have the same field layout
+     */
+    private boolean record(int section, DeviceSnapshot previous, DeviceSnapshot next)
+            throws IOException {
+        base.clear();
+        current.clear();
+        previous.writeSection(section, base);
+        next.writeSection(section, current);
+
+        if (base.size() != current.size()) return false;
+
+        for (int i = 0; i < base.size(); i++) {
+            if (base.kind(i) != current.kind(i)) return false;
+        }
+
+        return true;
+    }
+
+    private void writeField(int index, SnapshotEncoder encoder) throws IOException {
+        long value = current.value(index);
+
+        switch (current.kind(index)) {
+            case FieldRecorder.BOOLEAN:
+                encoder.writeBoolean(value != 0);
+                break;
+            case FieldRecorder.INT:
+            case FieldRecorder.LONG:
+                encoder.writeLong(value - base.value(index));
+                break;
+            case FieldRecorder.FLOAT:
+                encoder.writeFloat(Float.intBitsToFloat((int) value));
+                break;
+            case FieldRecorder.DOUBLE:
+                encoder.writeDouble(Double.longBitsToDouble(value));
+                break;
+            default:
+                encoder.writeString(current.string(index));
+                break;
+        }
+    }
+
+    /**
+     * Applies a patch written by {@link #writePatch} to the snapshot it was
+     * computed against. Unchanged sections are shared with {@code previous}.
+     *
+     * @param in should be buffered
+     * @throws IOException if the patch is malformed or was computed against a
+     *                     different base
+     */
+    public DeviceSnapshot applyPatch(DeviceSnapshot previous, InputStream in) throws IOException {
+        SnapshotDecoder decoder = new SnapshotDecoder(in, DeviceSnapshotCodec.PRESET_STRINGS);
+
+        if (decoder.readByte() != MAGIC_0 || decoder.readByte() != MAGIC_1) {
+            throw new IOException("Not a device snapshot patch");
+        }
+
+        int version = decoder.readRawVarInt();
+        if (version < 1 || version > DeviceSnapshotCodec.VERSION) {
+            throw new IOException("Unsupported patch version " + version);
+        }
+        decoder.setVersion(version);
+
+        if (decoder.readLong() != previous.timestamp) {
+            throw new IOException("Patch does not apply to snapshot of " + previous.timestamp);
+        }
+
+        DeviceSnapshot next = copyOf(previous);
+        next.timestamp = previous.timestamp + decoder.readLong();
+        next.timedOutSections = version >= 2 ? decoder.readRawVarInt() : 0;
+        next.failedSections = version >= 3 ? decoder.readRawVarInt() : 0;
+
+        for (int section = decoder.readRawVarInt(); section != END;
+             section = decoder.readRawVarInt()) {
+            int mode = decoder.readRawVarInt();
+
+            if (mode == MODE_REMOVED) {
+                next.removeSection(section);
+            } else if (mode == MODE_FULL) {
+                next.readSection(section, decoder);
+            } else if (mode == MODE_FIELDS && previous.hasSection(section)) {
+                applyFields(section, previous, next, decoder);
+            } else {
+                throw new IOException("Malformed patch of section " + section);
+            }
+        }
+
+        return next;
+    }
+
+    private void applyFields(int section, DeviceSnapshot previous, DeviceSnapshot next,
+                             SnapshotDecoder decoder) throws IOException {
+        // the field indices count in the layout of the patch version
+        base.clear();
+        base.setVersion(decoder.getVersion());
+        try {
+            previous.writeSection(section, base);
+
+            int count = decoder.readRawVarInt();
+            for (int i = 0, index = -1; i < count; i++) {
+                index += decoder.readRawVarInt() + 1;
+                if (index >= base.size()) {
+                    throw new IOException("Field " + index + " out of section " + section);
+                }
+
+                readField(index, decoder);
+            }
+
+            base.rewind();
+            next.readSection(section, base);
+        } finally {
+            base.setVersion(DeviceSnapshotCodec.VERSION);
+        }
+    }
+
+    private void readField(int index, SnapshotDecoder decoder) throws IOException {
+        switch (base.kind(index)) {
+            case FieldRecorder.BOOLEAN:
+                base.set(index, decoder.readBoolean() ? 1 : 0, null);
+                break;
+            case FieldRecorder.INT:
+                base.set(index, (int) (base.value(index) + decoder.readLong()), null);
+                break;
+            case FieldRecorder.LONG:
+                base.set(index, base.value(index) + decoder.readLong(), null);
+                break;
+            case FieldRecorder.FLOAT:
+                base.set(index, Float.floatToIntBits(decoder.readFloat()), null);
+                break;
+            case FieldRecorder.DOUBLE:
+                base.set(index, Double.doubleToLongBits(decoder.readDouble()), null);
+                break;
+            default:
+                base.set(index, 0, decoder.readString());
+                break;
+        }
+    }
+
+    private static DeviceSnapshot copyOf(DeviceSnapshot snapshot) {
+        DeviceSnapshot copy = new DeviceSnapshot();
+
+        copy.timestamp = snapshot.timestamp;
+        copy.build = snapshot.build;
+        copy.displayLanguage = snapshot.displayLanguage;
+        copy.display = snapshot.display;
+        copy.configuration = snapshot.configuration;
+        copy.secure = snapshot.secure;
+        copy.telephony = snapshot.telephony;
+        copy.environment = snapshot.environment;
+        copy.sensors = snapshot.sensors;
+        copy.process = snapshot.process;
+        copy.location = snapshot.location;
+        copy.system = snapshot.system;
+
+        return copy;
+    }
+}
@@ -0,0 +1,346 @@
+package de.thepivi.android.dic;
+
+import android.content.res.Configuration;
+
+/**
+ * Renders a {@link DeviceSnapshot} as the human readable "KEY=value" report.
+ */
+public abstract class DeviceSnapshotFormatter {
+
+    public static String format(DeviceSnapshot snapshot) {
+        StringBuilder sb = new StringBuilder(8192);
+
+        for (int section = 1; section <= DeviceSnapshot.SECTION_MAX; section++) {
+            appendReportSection(sb, snapshot, section);
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Appends a section including its trailing blank line, a timed out or failed
+     * section is reported as such and a missing one is skipped.
+     */
+    static void appendReportSection(StringBuilder sb, DeviceSnapshot snapshot, int section) {
+        if (snapshot.hasSection(section)) {
+            appendSection(sb, snapshot, section);
+            sb.append("\n\n");
+        } else if (snapshot.isTimedOut(section)) {
+            sb.append(nameOfSection(section)).append(":\nTIMED OUT\n\n");
+        } else if (snapshot.isFailed(section)) {
+            sb.append(nameOfSection(section)).append(":\nFAILED\n\n");
+        }
+    }
+
+    static void appendSection(StringBuilder sb, DeviceSnapshot snapshot, int section) {
+        switch (section) {
+            case DeviceSnapshot.SECTION_BUILD:
+                sb.append(snapshot.build.toStringBuild()).append("\n\n");
+                sb.append(snapshot.build.toStringBuildVersion());
+                break;
+            case DeviceSnapshot.SECTION_LOCALIZATION:
+                appendLocalization(sb, snapshot.displayLanguage);
+                break;
+            case DeviceSnapshot.SECTION_DISPLAY:
+                appendDisplay(sb, snapshot.display);
+                break;
+            case DeviceSnapshot.SECTION_CONFIGURATION:
+                appendConfiguration(sb, snapshot.configuration);
+                break;
+            case DeviceSnapshot.SECTION_SECURE:
+                appendSecure(sb, snapshot.secure);
+                break;
+            case DeviceSnapshot.SECTION_TELEPHONY:
+                appendTelephony(sb, snapshot.telephony);
+                break;
+            case DeviceSnapshot.SECTION_ENVIRONMENT:
+                appendEnvironment(sb, snapshot.environment);
+                break;
+            case DeviceSnapshot.SECTION_SENSORS:
+                appendSensors(sb, snapshot.sensors);
+                break;
+            case DeviceSnapshot.SECTION_PROCESS:
+                appendProcess(sb, snapshot.process);
+                break;
+            case DeviceSnapshot.SECTION_LOCATION:
+                appendLocation(sb, snapshot.location);
+                break;
+            case DeviceSnapshot.SECTION_SYSTEM:
+                appendSystem(sb, snapshot.system);
+                break;
+            default:
+                break;
+        }
+    }
+
+    static void appendConfiguration(StringBuilder sb, ConfigurationSnapshot configuration) {
+        sb.append("CONFIGURATION:");
+        sb.append("\nFont Scale=").append(configuration.fontScale);
+        sb.append("\nHard Keyboard Hidden=").append(nameOfHardKeyboardHidden(configuration.hardKeyboardHidden));
+        sb.append("\nKeyboard=").append(nameOfKeyboard(configuration.keyboard));
+        sb.append("\nKeyboard Hidden=").append(configuration.keyboardHidden == Configuration.KEYBOARDHIDDEN_YES);
+        sb.append("\nLocale=").append(configuration.locale);
+        sb.append("\nMCC=").append(configuration.mcc);
+        sb.append("\nMNC=").append(configuration.mnc);
+        sb.append("\nNaviagtion=").append(nameOfNavigation(configuration.navigation));
+        sb.append("\nOrientation=").append(nameOfOrientation(configuration.orientation));
+        sb.append("\nScreenLayout=").append(nameOfScreenLayout(configuration.screenLayout));
+        sb.append("\nTouchscreen=").append(nameOfTouchscreen(configuration.touchscreen));
+    }
+
+    static void appendDisplay(StringBuilder sb, DisplaySnapshot display) {
+        sb.append("Display:");
+        sb.append("\nResolution=").append(display.widthPixels).append('x').append(display.heightPixels);
+        sb.append("\nScreen-Size=").append(display.getDiagonalInches()).append("\"");
+        sb.append("\nDensity=").append(display.getLogicalDensityDpi()).append("dpi");
+        sb.append("\nDensityHeight=").append(display.ydpi).append("dpi");
+        sb.append("\nDensityWidth=").append(display.xdpi).append("dpi");
+        sb.append("\nSmallestWidth=").append(display.getSmallestWidth()).append("dp");
+        sb.append("\nInchesWidth=").append(display.getInchesWidth()).append("in");
+        sb.append("\nInchesHeight=").append(display.getInchesHeight()).append("in");
+        sb.append("\nDpi-Classification=").append(display.getDensityBucket());
+    }
+
+    static void appendEnvironment(StringBuilder sb, EnvironmentSnapshot environment) {
+        sb.append("Environment:");
+        sb.append("\nDataDirectory=").append(environment.dataDirectory);
+        sb.append("\nDownloadCacheDirectory=").append(environment.downloadCacheDirectory);
+        sb.append("\nExternalStorageDirectory=").append(environment.externalStorageDirectory);
+        sb.append("\nExternalStorageState=").append(environment.externalStorageState);
+        sb.append("\nRootDirectory=").append(environment.rootDirectory);
+    }
+
+    static void appendLastKnownLocation(StringBuilder sb, LocationSnapshot location) {
+        if (!location.hasLastKnownLocation) {
+            sb.append("null");
+            return;
+        }
+
+        sb.append("Location:");
+        sb.append("\nAccuracy=").append(location.accuracy);
+        sb.append("\nAltitude=").append(location.altitude);
+        sb.append("\nBearing=").append(location.bearing);
+        sb.append("\nLatitude=").append(location.latitude);
+        sb.append("\nLongitude=").append(location.longitude);
+        sb.append("\nProvider=").append(location.provider);
+        sb.append("\nSpeed=").append(location.speed);
+        sb.append("\nTime=");
+        TimestampFormat.appendIso8601Local(sb, location.time);
+        sb.append("\nhasAccuracy=").append(location.hasAccuracy);
+        sb.append("\nhasAltitude=").append(location.hasAltitude);
+        sb.append("\nhasBearing=").append(location.hasBearing);
+        sb.append("\nhasSpeed=").append(location.hasSpeed);
+    }
+
+    static void appendLocalization(StringBuilder sb, String displayLanguage) {
+        sb.append("Localization:");
+        sb.append("\nCurrent System-Language=").append(displayLanguage);
+    }
+
+    static void appendLocation(StringBuilder sb, LocationSnapshot location) {
+        sb.append("LocationManager:");
+        sb.append("\nAllProviders=");
+        for (String provider : location.allProviders) {
+            sb.append("\n").append(provider);
+        }
+        sb.append("\nBestProvider=").append(location.bestProvider);
+        sb.append("\nGpsStatus=");
+        if (location.hasGpsStatus) {
+            sb.append("maxSatellites=").append(location.gpsMaxSatellites)
+                    .append(", timeToFirstFix=").append(location.gpsTimeToFirstFix);
+        } else {
+            sb.append("null");
+        }
+        sb.append("\nLastKnownLocation=");
+        appendLastKnownLocation(sb, location);
+    }
+
+    static void appendProcess(StringBuilder sb, ProcessSnapshot process) {
+        sb.append("Process:");
+        sb.append("\nElapsedCpuTime=").append(process.elapsedCpuTime).append("ms");
+        sb.append("\nMyPid=").append(process.pid);
+        sb.append("\nMyTid=").append(process.tid);
+        sb.append("\nMyUid=").append(process.uid);
+    }
+
+    static void appendSystem(StringBuilder sb, SystemInfoSnapshot system) {
+        sb.append("System:");
+        sb.append("\nHardware=").append(system.cpuHardware);
+        for (int cpu = 0; cpu < system.getCpuCount(); cpu++) {
+            sb.append("\nCpu").append(cpu).append('=');
+            if (system.isCpuOnline(cpu)) {
+                sb.append(system.cpuCurFreq[cpu]).append("kHz (")
+                        .append(system.cpuMinFreq[cpu]).append('-')
+                        .append(system.cpuMaxFreq[cpu]).append("kHz)");
+            } else {
+                sb.append("offline");
+            }
+        }
+        sb.append("\nMemTotal=").append(system.memTotal).append("kB");
+        sb.append("\nMemFree=").append(system.memFree).append("kB");
+        sb.append("\nMemAvailable=").append(system.memAvailable).append("kB");
+        sb.append("\nCached=").append(system.memCached).append("kB");
+        for (int zone = 0; zone < system.thermalType.length; zone++) {
+            String type = system.thermalType[zone];
+
+            sb.append("\nThermal").append(zone).append('=').append(null != type ? type : "unknown")
+                    .append(' ').append(system.thermalTemp[zone]).append("m\u00b0C");
+        }
+    }
+
+    static void appendSecure(StringBuilder sb, SecureSettingsSnapshot secure) {
+        sb.append("Secure:");
+        for (int i = 0; i < SecureSettingsSnapshot.KEYS.length; i++) {
+            String value = secure.values[i];
+
+            sb.append("\n").append(SecureSettingsSnapshot.LABELS[i]).append("=");
+            if (SecureSettingsSnapshot.isBoolean(SecureSettingsSnapshot.KEYS[i])) {
+                sb.append(DeviceContextProvider.parseStringIntToStringBool(value));
+            } else {
+                sb.append(value);
+            }
+        }
+    }
+
+    static void appendSensor(StringBuilder sb, SensorSnapshot sensor) {
+        sb.append("Sensor:");
+        sb.append("\nName=").append(sensor.name);
+        sb.append("\nTyp=").append(nameOfSensorType(sensor.type));
+        sb.append("\nVersion=").append(sensor.version);
+        sb.append("\nVendor=").append(sensor.vendor);
+        sb.append("\nResolution=").append(sensor.resolution);
+        sb.append("\nPower=").append(sensor.power).append("mA");
+        sb.append("\nMaximumRange=").append(sensor.maximumRange);
+        sb.append("\nFifoMaxEventCount=").append(sensor.fifoMaxEventCount);
+        sb.append("\nFifoReservedEventCount=").append(sensor.fifoReservedEventCount);
+    }
+
+    static void appendSensors(StringBuilder sb, SensorSnapshot[] sensors) {
+        sb.append("SensorManager:");
+        sb.append("\nSensorList=");
+        for (SensorSnapshot sensor : sensors) {
+            sb.append("\n");
+            appendSensor(sb, sensor);
+        }
+    }
+
+    static void appendTelephony(StringBuilder sb, TelephonySnapshot telephony) {
+        sb.append("TelephonyManager:");
+        sb.append("\nCallState=").append(nameOfCallState(telephony.callState));
+        sb.append("\nCellLocation=");
+        appendCellLocation(sb, telephony);
+        sb.append("\nDataActivity=").append(nameOfDataActivity(telephony.dataActivity));
+        sb.append("\nDataState=").append(nameOfDataState(telephony.dataState));
+        sb.append("\nDeviceId(IMEI)=").append(telephony.deviceId);
+        sb.append("\nLine1Number=").append(telephony.line1Number);
+        sb.append("\nNeighboringCellInfo=");
+        appendNeighboringCells(sb, telephony);
+        sb.append("\nNetworkCountryIso=").append(telephony.networkCountryIso);
+        sb.append("\nNetworkOperator=").append(telephony.networkOperator);
+        sb.append("\nNetworkOperatorName=").append(telephony.networkOperatorName);
+        sb.append("\nNetworkType=").append(nameOfNetworkType(telephony.networkType));
+        sb.append("\nPhoneType=").append(nameOfPhoneType(telephony.phoneType));
+        sb.append("\nSimCountryIso=").append(telephony.simCountryIso);
+        sb.append("\nSimOperator=").append(telephony.simOperator);
+        sb.append("\nSimOperatorName=").append(telephony.simOperatorName);
+        sb.append("\nSimSerialNumber=").append(telephony.simSerialNumber);
+        sb.append("\nSimState=").append(nameOfSimState(telephony.simState));
+        sb.append("\nSoftwareVersion=").append(telephony.softwareVersion);
+        sb.append("\nSubscriberId=").append(telephony.subscriberId);
+        sb.append("\nVoiceMailAlphaTag=").append(telephony.voiceMailAlphaTag);
+        sb.append("\nVoiceMailNumber=").append(telephony.voiceMailNumber);
+    }
+
+    static void appendCellLocation(StringBuilder sb, TelephonySnapshot telephony) {
+        switch (telephony.cellLocationType) {
+            case TelephonySnapshot.CELL_LOCATION_GSM:
+                sb.append('[').append(telephony.gsmLac)
+                        .append(',').append(telephony.gsmCid)
+                        .append(',').append(telephony.gsmPsc).append(']');
+                break;
+            case TelephonySnapshot.CELL_LOCATION_CDMA:
+                sb.append('[').append(telephony.cdmaBaseStationId)
+                        .append(',').append(telephony.cdmaBaseStationLatitude)
+                        .append(',').append(telephony.cdmaBaseStationLongitude)
+                        .append(',').append(telephony.cdmaSystemId)
+                        .append(',').append(telephony.cdmaNetworkId).append(']');
+                break;
+            default:
+                sb.append("null");
+                break;
+        }
+    }
+
+    static void appendNeighboringCells(StringBuilder sb, TelephonySnapshot telephony) {
+        for (int i = 0; i < telephony.neighboringCellRssi.length; i++) {
+            sb.append('[');
+            if (telephony.neighboringCellPsc[i] != -1) {
+                sb.append(telephony.neighboringCellPsc[i]);
+            } else {
+                sb.append(telephony.neighboringCellLac[i]).append(':')
+                        .append(telephony.neighboringCellCid[i]);
+            }
+            sb.append(" at ").append(telephony.neighboringCellRssi[i]).append("]\n");
+        }
+    }
+
+    public static String nameOfCallState(int callState) {
+        return ConstantNames.CALL_STATE.nameOf(callState);
+    }
+
+    public static String nameOfDataActivity(int dataActivity) {
+        return ConstantNames.DATA_ACTIVITY.nameOf(dataActivity);
+    }
+
+    public static String nameOfDataState(int dataState) {
+        return ConstantNames.DATA_STATE.nameOf(dataState);
+    }
+
+    public static String nameOfDensity(int densityDpi) {
+        return ConstantNames.DENSITY.nameOf(densityDpi);
+    }
+
+    public static String nameOfHardKeyboardHidden(int hardKeyboardHidden) {
+        return ConstantNames.HARD_KEYBOARD_HIDDEN.nameOf(hardKeyboardHidden);
+    }
+
+    public static String nameOfKeyboard(int keyboard) {
+        return ConstantNames.KEYBOARD.nameOf(keyboard);
+    }
+
+    public static String nameOfNavigation(int navigation) {
+        return ConstantNames.NAVIGATION.nameOf(navigation);
+    }
+
+    public static String nameOfNetworkType(int networkType) {
+        return ConstantNames.NETWORK_TYPE.nameOf(networkType);
+    }
+
+    public static String nameOfOrientation(int orientation) {
+        return ConstantNames.ORIENTATION.nameOf(orientation);
+    }
+
+    public static String nameOfPhoneType(int phoneType) {
+        return ConstantNames.PHONE_TYPE.nameOf(phoneType);
+    }
+
+    public static String nameOfSection(int section) {
+        return ConstantNames.SECTION.nameOf(section);
+    }
+
+    public static String nameOfScreenLayout(int screenLayout) {
+        return ConstantNames.SCREEN_LAYOUT_SIZE.nameOf(screenLayout & Configuration.SCREENLAYOUT_SIZE_MASK);
+    }
+
+    public static String nameOfSensorType(int type) {
+        return ConstantNames.SENSOR_TYPE.nameOf(type);
+    }
+
+    public static String nameOfSimState(int simState) {
+        return ConstantNames.SIM_STATE.nameOf(simState);
+    }
+
+    public static String nameOfTouchscreen(int touchscreen) {
+        return ConstantNames.TOUCHSCREEN.nameOf(touchscreen);
+    }
+}
@@ -0,0 +1,78 @@
+package de.thepivi.android.dic;
+
+import java.io.IOException;
+
+/**
+ * Typed snapshot of the default display metrics.
+ * <p/>
+ * All derived values are computed from the captured metrics, so one capture
+ * serves every display getter.
+ */
+public class DisplaySnapshot {
+
+    public int widthPixels;
+    public int heightPixels;
+    public float density;
+    public int densityDpi;
+    public float xdpi;
+    public float ydpi;
+
+    /**
+     * @return the screen diagonal in inches, truncated to two decimals.
+     */
+    public double getDiagonalInches() {
+        double a = Math.pow(getInchesWidth(), 2);
+        double b = Math.pow(getInchesHeight(), 2);
+        int c = (int) (Math.sqrt(a + b) * 100);
+
+        return (double) c / 100;
+    }
+
+    /**
+     * @return the name of the density bucket, e.g. "DENSITY_HIGH".
+     */
+    public String getDensityBucket() {
+        return DeviceSnapshotFormatter.nameOfDensity(densityDpi);
+    }
+
+    public float getInchesHeight() {
+        return heightPixels / ydpi;
+    }
+
+    public float getInchesWidth() {
+        return widthPixels / xdpi;
+    }
+
+    /**
+     * @return the logical density in dpi, i.e. {@link #density} scaled to the
+     * 160 dpi baseline.
+     */
+    public float getLogicalDensityDpi() {
+        return density * 160;
+    }
+
+    /**
+     * @return the smallest width in dp.
+     */
+    public float getSmallestWidth() {
+        return Math.min(widthPixels / density, heightPixels / density);
+    }
+
+    public void writeTo(SnapshotOutput out) throws IOException {
+        out.writeInt(widthPixels);
+        out.writeInt(heightPixels);
+        out.writeFloat(density);
+        out.writeInt(densityDpi);
+        out.writeFloat(xdpi);
+        out.writeFloat(ydpi);
+    }
+
+    public void readFrom(SnapshotInput in) throws IOException {
+        widthPixels = in.readInt();
+        heightPixels = in.readInt();
+        density = in.readFloat();
+        densityDpi = in.readInt();
+        xdpi = in.readFloat();
+        ydpi = in.readFloat();
+    }
+}
@@ -0,0 +1,31 @@
+package de.thepivi.android.dic;
+
+import java.io.IOException;
+
+/**
+ * Snapshot of the {@link android.os.Environment} directories and storage state.
+ */
+public class EnvironmentSnapshot {
+
+    public String dataDirectory;
+    public String downloadCacheDirectory;
+    public String externalStorageDirectory;
+    public String externalStorageState;
+    public String rootDirectory;
+
+    public void writeTo(SnapshotOutput out) throws IOException {
+        out.writeString(dataDirectory);
+        out.writeString(downloadCacheDirectory);
+        out.writeString(externalStorageDirectory);
+        out.writeString(externalStorageState);
+        out.writeString(rootDirectory);
+    }
+
+    public void readFrom(SnapshotInput in) throws IOException {
+        dataDirectory = in.readString();
+        downloadCacheDirectory = in.readString();
+        externalStorageDirectory = in.readString();
+        externalStorageState = in.readString();
+        rootDirectory = in.readString();
+    }
+}
@@ -0,0 +1,181 @@
+package de.thepivi.android.dic;
+
+import java.io.IOException;
+
+/**
+ * Records the fields of a snapshot section in memory and replays them.
+ * <p/>
+ * Values are kept in primitive arrays, so comparing two sections field by
+ * field does not box. The arrays are reused after {@link #clear()}.
+ */
+final class FieldRecorder implements SnapshotOutput, SnapshotInput {
+
+    static final byte BOOLEAN = 0;
+    static final byte INT = 1;
+    static final byte LONG = 2;
+    static final byte FLOAT = 3;
+    static final byte DOUBLE = 4;
+    static final byte STRING = 5;
+
+    private byte[] kinds = new byte[64];
+    private long[] values = new long[64];
+    private String[] strings = new String[64];
+    private int size;
+    private int position;
+    private int version = DeviceSnapshotCodec.VERSION;
+
+    void clear() {
+        for (int i = 0; i < size; i++) {
+            strings[i] = null;
+        }
+        size = 0;
+        position = 0;
+    }
+
+    void rewind() {
+        position = 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    byte kind(int index) {
+        return kinds[index];
+    }
+
+    long value(int index) {
+        return values[index];
+    }
+
+    String string(int index) {
+        return strings[index];
+    }
+
+    void set(int index, long value, String string) {
+        values[index] = value;
+        strings[index] = string;
+    }
+
+    /**
+     * @return whether given field holds the same kind and value in both recorders.
+     */
+    boolean fieldEquals(int index, FieldRecorder other) {
+        if (kinds[index] != other.kinds[index] || values[index] != other.values[index]) {
+            return false;
+        }
+
+        String a = strings[index];
+        String b = other.strings[index];
+
+        return null == a ? null == b : a.equals(b);
+    }
+
+    private void add(byte kind, long value, String string) {
+        if (size == kinds.length) {
+            int capacity = size * 2;
+            byte[] newKinds = new byte[capacity];
+            long[] newValues = new long[capacity];
+            String[] newStrings = new String[capacity];
+
+            System.arraycopy(kinds, 0, newKinds, 0, size);
+            System.arraycopy(values, 0, newValues, 0, size);
+            System.arraycopy(strings, 0, newStrings, 0, size);
+            kinds = newKinds;
+            values = newValues;
+            strings = newStrings;
+        }
+
+        kinds[size] = kind;
+        values[size] = value;
+        strings[size] = string;
+        size++;
+    }
+
+    private int next(byte kind) throws IOException {
+        if (position >= size || kinds[position] != kind) {
+            throw new IOException("Field " + position + " is not of kind " + kind);
+        }
+
+        return position++;
+    }
+
+    @Override
+    public void writeBoolean(boolean value) {
+        add(BOOLEAN, value ? 1 : 0, null);
+    }
+
+    @Override
+    public void writeInt(int value) {
+        add(INT, value, null);
+    }
+
+    @Override
+    public void writeLong(long value) {
+        add(LONG, value, null);
+    }
+
+    @Override
+    public void writeFloat(float value) {
+        add(FLOAT, Float.floatToIntBits(value), null);
+    }
+
+    @Override
+    public void writeDouble(double value) {
+        add(DOUBLE, Double.doubleToLongBits(value), null);
+    }
+
+    @Override
+    public void writeString(String value) {
+        add(STRING, 0, value);
+    }
+
+    @Override
+    public int getVersion() {
+        return version;
+    }
+
+    void setVersion(int version) {
+        this.version = version;
+    }
+
+    @Override
+    public boolean readBoolean() throws IOException {
+        return values[next(BOOLEAN)] != 0;
+    }
+
+    @Override
+    public int readInt() throws IOException {
+        return (int) values[next(INT)];
+    }
+
+    @Override
+    public long readLong() throws IOException {
+        return values[next(LONG)];
+    }
+
+    @Override
+    public float readFloat() throws IOException {
+        return Float.intBitsToFloat((int) values[next(FLOAT)]);
+    }
+
+    @Override
+    public double readDouble() throws IOException {
+        return Double.longBitsToDouble(values[next(DOUBLE)]);
+    }
+
+    @Override
+    public String readString() throws IOException {
+        return strings[next(STRING)];
+    }
+
+    @Override
+    public int readCount() throws IOException {
+        int count = readInt();
+
+        // every element takes at least one field
+        if (count < 0 || count > size - position) throw new IOException("Malformed count " + count);
+
+        return count;
+    }
+}
@@ -0,0 +1,103 @@
+package de.thepivi.android.dic;
+
+/**
+ * Satellites of one GPS status update of {@link GpsStatusCollector}, one
+ * record per satellite held in parallel primitive arrays.
+ */
+public class GpsSatelliteStatus {
+
+    public static final int CONSTELLATION_UNKNOWN = 0;
+    public static final int CONSTELLATION_GPS = 1;
+    public static final int CONSTELLATION_SBAS = 2;
+    public static final int CONSTELLATION_GLONASS = 3;
+    public static final int CONSTELLATION_QZSS = 4;
+    public static final int CONSTELLATION_BEIDOU = 5;
+    public static final int CONSTELLATION_GALILEO = 6;
+
+    /**
+     * {@link android.os.SystemClock#elapsedRealtime()} of the update.
+     */
+    public long timestamp;
+    public int count;
+    public int usedInFixCount;
+
+    public int[] prn;
+    public int[] constellation;
+    /**
+     * Signal to noise ratio, or C/N0, in dB-Hz.
+     */
+    public float[] snr;
+    public float[] azimuth;
+    public float[] elevation;
+    public boolean[] usedInFix;
+    public boolean[] hasAlmanac;
+    public boolean[] hasEphemeris;
+
+    public GpsSatelliteStatus(int capacity) {
+        prn = new int[capacity];
+        constellation = new int[capacity];
+        snr = new float[capacity];
+        azimuth = new float[capacity];
+        elevation = new float[capacity];
+        usedInFix = new boolean[capacity];
+        hasAlmanac = new boolean[capacity];
+        hasEphemeris = new boolean[capacity];
+    }
+
+    /**
+     * Appends a satellite, ignored once the capacity is reached.
+     */
+    public void add(int prn, float snr, float azimuth, float elevation, boolean usedInFix,
+                    boolean hasAlmanac, boolean hasEphemeris) {
+        if (count == this.prn.length) return;
+
+        int i = count++;
+        this.prn[i] = prn;
+        this.constellation[i] = constellationOf(prn);
+        this.snr[i] = snr;
+        this.azimuth[i] = azimuth;
+        this.elevation[i] = elevation;
+        this.usedInFix[i] = usedInFix;
+        this.hasAlmanac[i] = hasAlmanac;
+        this.hasEphemeris[i] = hasEphemeris;
+        if (usedInFix) usedInFixCount++;
+    }
+
+    /**
+     * Copies all satellites into another status, which must have at least the
+     * same capacity.
+     */
+    public void copyTo(GpsSatelliteStatus status) {
+        status.timestamp = timestamp;
+        status.count = count;
+        status.usedInFixCount = usedInFixCount;
+        System.arraycopy(prn, 0, status.prn, 0, count);
+        System.arraycopy(constellation, 0, status.constellation, 0, count);
+        System.arraycopy(snr, 0, status.snr, 0, count);
+        System.arraycopy(azimuth, 0, status.azimuth, 0, count);
+        System.arraycopy(elevation, 0, status.elevation, 0, count);
+        System.arraycopy(usedInFix, 0, status.usedInFix, 0, count);
+        System.arraycopy(hasAlmanac, 0, status.hasAlmanac, 0, count);
+        System.arraycopy(hasEphemeris, 0, status.hasEphemeris, 0, count);
+    }
+
+    public void clear() {
+        timestamp = 0;
+        count = 0;
+        usedInFixCount = 0;
+    }
+
+    /**
+     * @return the constellation of a satellite from the PRN ranges
+     * {@link android.location.GpsStatus} reports, which encode it
+     */
+    static int constellationOf(int prn) {
+        if (prn >= 1 && prn <= 32) return CONSTELLATION_GPS;
+        if (prn >= 33 && prn <= 64) return CONSTELLATION_SBAS;
+        if (prn >= 65 && prn <= 96) return CONSTELLATION_GLONASS;
+        if (prn >= 193 && prn <= 200) return CONSTELLATION_QZSS;
+        if (prn >= 201 && prn <= 235) return CONSTELLATION_BEIDOU;
+        if (prn >= 301 && prn <= 336) return CONSTELLATION_GALILEO;
+        return CONSTELLATION_UNKNOWN;
+    }
+}
@@ -0,0 +1,192 @@
+package de.thepivi.android.dic;
+
+import android.content.Context;
+import android.location.GpsSatellite;
+import android.location.GpsStatus;
+import android.location.LocationManager;
+import android.os.SystemClock;
+
+/**
+ * Collects the GPS status as a stream of per-satellite records instead of
+ * polling {@link LocationManager#getGpsStatus(GpsStatus)} with {@code null},
+ * which allocates a new status each time.
+ * <p/>
+ * The {@link GpsStatus} and the satellite records are reused between
+ * callbacks, the only allocation per update is the iterator of
+ * {@link GpsStatus#getSatellites()}, which has no indexed access. An update is
+ * filled into a buffer of the listener and published under one lock, so a
+ * reader never sees a partial satellite list. The time to first fix and the
+ * fix quality, as satellites used and their mean signal to noise ratio, are
+ * accumulated incrementally.
+ */
+public class GpsStatusCollector {
+
+    /**
+     * GPS status reports at most 255 satellites.
+     */
+    public static final int MAX_SATELLITES = 255;
+
+    private final LocationManager locationManager;
+    private final GpsSatelliteStatus satellites = new GpsSatelliteStatus(MAX_SATELLITES);
+    private final LatencyHistogram timesToFirstFix = new LatencyHistogram();
+    private GpsStatus status;
+    private Listener listener;
+
+    private int timeToFirstFix = -1;
+    private long updateCount;
+    private long usedInFixSum;
+    private long fixedUpdateCount;
+    private double usedSnrMean;
+    private long usedSnrCount;
+
+    public GpsStatusCollector(Context context) {
+        locationManager = DeviceContextProvider.getLocationmanager(context);
+    }
+
+    /**
+     * Starts listening to the GPS status. Must be called on a thread with a
+     * looper, usually the main thread.
+     *
+     * @return whether the listener was added, it is not without the fine
+     * location permission
+     */
+    public synchronized boolean start() {
+        if (null != listener) return true;
+
+        listener = new Listener();
+        boolean added;
+        try {
+            added = locationManager.addGpsStatusListener(listener);
+        } catch (SecurityException e) {
+            // the fine location permission is revoked or not granted yet
+            added = false;
+        }
+        if (!added) listener = null;
+
+        return added;
+    }
+
+    public synchronized void stop() {
+        if (null == listener) return;
+
+        locationManager.removeGpsStatusListener(listener);
+        listener = null;
+    }
+
+    /**
+     * Copies the satellites of the latest update.
+     *
+     * @param status must have a capacity of {@link #MAX_SATELLITES}
+     */
+    public synchronized void getSatellites(GpsSatelliteStatus status) {
+        satellites.copyTo(status);
+    }
+
+    /**
+     * @return the time to first fix of the current GPS session in
+     * milliseconds, -1 if there was none
+     */
+    public synchronized int getTimeToFirstFix() {
+        return timeToFirstFix;
+    }
+
+    /**
+     * @return the distribution of the times to first fix, recorded in
+     * nanoseconds
+     */
+    public LatencyHistogram getTimesToFirstFix() {
+        return timesToFirstFix;
+    }
+
+    /**
+     * @return the mean number of satellites used in fix over the updates with
+     * a fix
+     */
+    public synchronized double getMeanUsedInFix() {
+        return fixedUpdateCount > 0 ? (double) usedInFixSum / fixedUpdateCount : 0;
+    }
+
+    /**
+     * @return the mean signal to noise ratio of the satellites used in fix in
+     * dB-Hz
+     */
+    public synchronized double getMeanUsedSnr() {
+        return usedSnrMean;
+    }
+
+    /**
+     * @return the number of satellite updates
+     */
+    public synchronized long getUpdateCount() {
+        return updateCount;
+    }
+
+    /**
+     * Starts a new GPS session, which has no fix yet.
+     */
+    synchronized void onStarted() {
+        timeToFirstFix = -1;
+    }
+
+    synchronized void onStopped() {
+        satellites.clear();
+    }
+
+    synchronized void onFirstFix(int timeToFirstFix) {
+        this.timeToFirstFix = timeToFirstFix;
+        timesToFirstFix.record(timeToFirstFix * 1000000L);
+    }
+
+    /**
+     * Publishes a complete update, which is copied.
+     */
+    synchronized void update(GpsSatelliteStatus update) {
+        update.copyTo(satellites);
+        updateCount++;
+
+        for (int i = 0; i < update.count; i++) {
+            if (update.usedInFix[i]) {
+                usedSnrCount++;
+                usedSnrMean += (update.snr[i] - usedSnrMean) / usedSnrCount;
+            }
+        }
+        if (update.usedInFixCount > 0) {
+            fixedUpdateCount++;
+            usedInFixSum += update.usedInFixCount;
+        }
+    }
+
+    private class Listener implements GpsStatus.Listener {
+
+        private final GpsSatelliteStatus pending = new GpsSatelliteStatus(MAX_SATELLITES);
+
+        @Override
+        public void onGpsStatusChanged(int event) {
+            switch (event) {
+                case GpsStatus.GPS_EVENT_STARTED:
+                    onStarted();
+                    break;
+                case GpsStatus.GPS_EVENT_STOPPED:
+                    onStopped();
+                    break;
+                case GpsStatus.GPS_EVENT_FIRST_FIX:
+                    status = locationManager.getGpsStatus(status);
+                    onFirstFix(status.getTimeToFirstFix());
+                    break;
+                case GpsStatus.GPS_EVENT_SATELLITE_STATUS:
+                    status = locationManager.getGpsStatus(status);
+                    pending.clear();
+                    pending.timestamp = SystemClock.elapsedRealtime();
+                    for (GpsSatellite satellite : status.getSatellites()) {
+                        pending.add(satellite.getPrn(), satellite.getSnr(), satellite.getAzimuth(),
+                                satellite.getElevation(), satellite.usedInFix(), satellite.hasAlmanac(),
+                                satellite.hasEphemeris());
+                    }
+                    update(pending);
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+}
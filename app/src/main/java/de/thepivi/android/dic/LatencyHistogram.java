@@ -0,0 +1,93 @@
+package de.thepivi.android.dic;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fixed size log-linear histogram of durations in nanoseconds, in the spirit
+ * of HdrHistogram.
+ * <p/>
+ * Every power of two range is split into {@value #SUB_BUCKET_COUNT} linear
+ * buckets, so a recorded value is known within about 6%. Values from 0 to
+ * about 68 seconds are distinguished, larger values are counted in the last
+ * bucket. Recording is lock-free and does not allocate, it may race with
+ * reading, which then sees a slightly inconsistent picture.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_BIT = 35;
+    private static final int BUCKET_COUNT = (MAX_BIT - SUB_BUCKET_BITS + 2) * SUB_BUCKET_COUNT;
+
+    private final AtomicIntegerArray counts = new AtomicIntegerArray(BUCKET_COUNT);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long nanos) {
+        if (nanos < 0) return;
+
+        counts.incrementAndGet(indexOf(nanos));
+        totalCount.incrementAndGet();
+
+        for (long current = max.get(); nanos > current; current = max.get()) {
+            if (max.compareAndSet(current, nanos)) break;
+        }
+    }
+
+    public long getCount() {
+        return totalCount.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return the highest value equivalent to the recorded one at the
+     * percentile, 0 if nothing was recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        long count = totalCount.get();
+        if (count == 0) return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) return Math.min(highestValueOf(i), max.get());
+        }
+
+        return max.get();
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        totalCount.set(0);
+        max.set(0);
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT) return (int) value;
+
+        int bit = Math.min(63 - Long.numberOfLeadingZeros(value), MAX_BIT);
+        if (bit == MAX_BIT && value >= 1L << (MAX_BIT + 1)) return BUCKET_COUNT - 1;
+
+        int subBucket = (int) (value >>> (bit - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+
+        return (bit - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    static long highestValueOf(int index) {
+        if (index < SUB_BUCKET_COUNT) return index;
+
+        int bit = index / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+        long subBucket = index % SUB_BUCKET_COUNT;
+        long width = 1L << (bit - SUB_BUCKET_BITS);
+
+        return (1L << bit) + subBucket * width + width - 1;
+    }
+}
@@ -0,0 +1,81 @@
+package de.thepivi.android.dic;
+
+import java.io.IOException;
+
+/**
+ * Typed snapshot of the {@link android.location.LocationManager} state.
+ */
+public class LocationSnapshot {
+
+    public String[] allProviders = new String[0];
+    public String bestProvider;
+
+    public boolean hasGpsStatus;
+    public int gpsMaxSatellites;
+    public int gpsTimeToFirstFix;
+
+    /**
+     * Whether the last known location fields below are set.
+     */
+    public boolean hasLastKnownLocation;
+    public float accuracy;
+    public double altitude;
+    public float bearing;
+    public double latitude;
+    public double longitude;
+    public String provider;
+    public float speed;
+    public long time;
+    public boolean hasAccuracy;
+    public boolean hasAltitude;
+    public boolean hasBearing;
+    public boolean hasSpeed;
+
+    public void writeTo(SnapshotOutput out) throws IOException {
+        out.writeInt(allProviders.length);
+        for (String provider : allProviders) {
+            out.writeString(provider);
+        }
+        out.writeString(bestProvider);
+        out.writeBoolean(hasGpsStatus);
+        out.writeInt(gpsMaxSatellites);
+        out.writeInt(gpsTimeToFirstFix);
+        out.writeBoolean(hasLastKnownLocation);
+        out.writeFloat(accuracy);
+        out.writeDouble(altitude);
+        out.writeFloat(bearing);
+        out.writeDouble(latitude);
+        out.writeDouble(longitude);
+        out.writeString(provider);
+        out.writeFloat(speed);
+        out.writeLong(time);
+        out.writeBoolean(hasAccuracy);
+        out.writeBoolean(hasAltitude);
+        out.writeBoolean(hasBearing);
+        out.writeBoolean(hasSpeed);
+    }
+
+    public void readFrom(SnapshotInput in) throws IOException {
+        allProviders = new String[in.readCount()];
+        for (int i = 0; i < allProviders.length; i++) {
+            allProviders[i] = in.readString();
+        }
+        bestProvider = in.readString();
+        hasGpsStatus = in.readBoolean();
+        gpsMaxSatellites = in.readInt();
+        gpsTimeToFirstFix = in.readInt();
+        hasLastKnownLocation = in.readBoolean();
+        accuracy = in.readFloat();
+        altitude = in.readDouble();
+        bearing = in.readFloat();
+        latitude = in.readDouble();
+        longitude = in.readDouble();
+        provider = in.readString();
+        speed = in.readFloat();
+        time = in.readLong();
+        hasAccuracy = in.readBoolean();
+        hasAltitude = in.readBoolean();
+        hasBearing = in.readBoolean();
+        hasSpeed = in.readBoolean();
+    }
+}
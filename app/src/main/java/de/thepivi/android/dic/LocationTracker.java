@@ -0,0 +1,239 @@
+package de.thepivi.android.dic;
+
+import android.content.Context;
+import android.location.Location;
+import android.location.LocationListener;
+import android.location.LocationManager;
+import android.os.Bundle;
+
+/**
+ * Tracks the location of the device with an update interval adapted to the
+ * observed speed and accuracy: fast movement asks for frequent fixes, standing
+ * still or poor accuracy for rare ones.
+ * <p/>
+ * Fixes closer to the last stored one than the minimum distance and younger
+ * than the maximum interval are coalesced, the others are kept as primitive
+ * tuples in a ring buffer.
+ */
+public class LocationTracker {
+
+    public static final long DEFAULT_MIN_INTERVAL = 1000;
+    public static final long DEFAULT_MAX_INTERVAL = 60000;
+    public static final float DEFAULT_MIN_DISTANCE = 10;
+    public static final int DEFAULT_CAPACITY = 256;
+
+    /**
+     * Speed in m/s below which the device counts as standing still.
+     */
+    static final float STATIONARY_SPEED = 0.5f;
+
+    private static final double EARTH_RADIUS = 6371009;
+
+    private final LocationManager locationManager;
+    private final long minInterval;
+    private final long maxInterval;
+    private final float minDistance;
+
+    private final long[] times;
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final float[] accuracies;
+    private final float[] speeds;
+    private long fixCount;
+    private long coalescedCount;
+
+    private String provider;
+    private long interval;
+    private Listener listener;
+
+    public LocationTracker(Context context) {
+        this(context, DEFAULT_MIN_INTERVAL, DEFAULT_MAX_INTERVAL, DEFAULT_MIN_DISTANCE, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param minInterval shortest update interval in milliseconds
+     * @param maxInterval longest update interval in milliseconds
+     * @param minDistance distance in meters below which fixes are coalesced
+     * @param capacity    fixes kept
+     */
+    public LocationTracker(Context context, long minInterval, long maxInterval, float minDistance,
+                           int capacity) {
+        locationManager = DeviceContextProvider.getLocationmanager(context);
+        this.minInterval = minInterval;
+        this.maxInterval = maxInterval;
+        this.minDistance = minDistance;
+        times = new long[capacity];
+        latitudes = new double[capacity];
+        longitudes = new double[capacity];
+        accuracies = new float[capacity];
+        speeds = new float[capacity];
+        interval = minInterval;
+    }
+
+    /**
+     * Requests updates from the best enabled provider. Must be called on a
+     * thread with a looper, usually the main thread, the fixes are delivered
+     * on it.
+     *
+     * @return whether a provider is enabled
+     */
+    public synchronized boolean start() {
+        if (null != listener) return true;
+
+        provider = locationManager.getBestProvider(DeviceContextProvider.BEST_PROVIDER_CRITERIA, true);
+        if (null == provider) return false;
+
+        listener = new Listener();
+        locationManager.requestLocationUpdates(provider, interval, minDistance, listener);
+
+        return true;
+    }
+
+    public synchronized void stop() {
+        if (null == listener) return;
+
+        locationManager.removeUpdates(listener);
+        listener = null;
+    }
+
+    /**
+     * @return the update interval currently requested in milliseconds
+     */
+    public synchronized long getInterval() {
+        return interval;
+    }
+
+    /**
+     * @return the number of fixes stored since creation, including those which
+     * dropped out of the buffer
+     */
+    public synchronized long getFixCount() {
+        return fixCount;
+    }
+
+    /**
+     * @return the number of fixes dropped as redundant
+     */
+    public synchronized long getCoalescedCount() {
+        return coalescedCount;
+    }
+
+    /**
+     * Copies the latest fixes, oldest first, into given arrays. Unknown
+     * accuracies and speeds are {@link Float#NaN}.
+     *
+     * @return the number of fixes copied
+     */
+    public synchronized int getFixes(long[] times, double[] latitudes, double[] longitudes,
+                                     float[] accuracies, float[] speeds) {
+        int capacity = this.times.length;
+        int count = (int) Math.min(fixCount, capacity);
+        count = Math.min(count, Math.min(times.length, latitudes.length));
+        count = Math.min(count, Math.min(longitudes.length, Math.min(accuracies.length, speeds.length)));
+
+        for (int i = 0; i < count; i++) {
+            int index = (int) ((fixCount - count + i) % capacity);
+
+            times[i] = this.times[index];
+            latitudes[i] = this.latitudes[index];
+            longitudes[i] = this.longitudes[index];
+            accuracies[i] = this.accuracies[index];
+            speeds[i] = this.speeds[index];
+        }
+
+        return count;
+    }
+
+    /**
+     * Stores a fix unless it is redundant and adapts the interval.
+     *
+     * @param time     UTC time of the fix in milliseconds
+     * @param accuracy in meters, {@link Float#NaN} if unknown
+     * @param speed    in m/s, {@link Float#NaN} if unknown
+     * @return whether the fix was stored
+     */
+    synchronized boolean onFix(long time, double latitude, double longitude, float accuracy, float speed) {
+        if (fixCount > 0) {
+            int last = (int) ((fixCount - 1) % times.length);
+            long elapsed = time - times[last];
+            double distance = distanceBetween(latitudes[last], longitudes[last], latitude, longitude);
+
+            if (distance < minDistance && elapsed < maxInterval) {
+                coalescedCount++;
+                return false;
+            }
+
+            if (Float.isNaN(speed) && elapsed > 0) {
+                speed = (float) (distance * 1000 / elapsed);
+            }
+        }
+
+        int index = (int) (fixCount % times.length);
+        times[index] = time;
+        latitudes[index] = latitude;
+        longitudes[index] = longitude;
+        accuracies[index] = accuracy;
+        speeds[index] = speed;
+        fixCount++;
+
+        long next = intervalFor(speed, accuracy);
+        // re-requesting updates is costly, only follow large changes
+        if (next >= interval * 2 || next * 2 <= interval) {
+            interval = next;
+            if (null != listener) {
+                locationManager.requestLocationUpdates(provider, interval, minDistance, listener);
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @return the interval in milliseconds in which the device moves by the
+     * larger of the minimum distance and the accuracy
+     */
+    long intervalFor(float speed, float accuracy) {
+        if (Float.isNaN(speed)) return interval;
+        if (speed < STATIONARY_SPEED) return maxInterval;
+
+        float distance = Float.isNaN(accuracy) ? minDistance : Math.max(minDistance, accuracy);
+        long next = (long) (distance * 1000 / speed);
+
+        return Math.max(minInterval, Math.min(maxInterval, next));
+    }
+
+    /**
+     * @return the distance in meters on the equirectangular projection, exact
+     * enough for the short distances between fixes and free of allocation
+     */
+    static double distanceBetween(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double phi1 = Math.toRadians(latitude1);
+        double phi2 = Math.toRadians(latitude2);
+        double x = Math.toRadians(longitude2 - longitude1) * Math.cos((phi1 + phi2) / 2);
+        double y = phi2 - phi1;
+
+        return Math.sqrt(x * x + y * y) * EARTH_RADIUS;
+    }
+
+    private class Listener implements LocationListener {
+
+        @Override
+        public void onLocationChanged(Location location) {
+            onFix(location.getTime(), location.getLatitude(), location.getLongitude(),
+                    location.hasAccuracy() ? location.getAccuracy() : Float.NaN,
+                    location.hasSpeed() ? location.getSpeed() : Float.NaN);
+        }
+
+        @Override
+        public void onStatusChanged(String provider, int status, Bundle extras) {
+        }
+
+        @Override
+        public void onProviderEnabled(String provider) {
+        }
+
+        @Override
+        public void onProviderDisabled(String provider) {
+        }
+    }
+}
@@ -2,24 +2,95 @@ package de.thepivi.android.dic;
 
 import android.app.Activity;
 import android.os.Bundle;
+import android.os.Handler;
 import android.util.Log;
 import android.widget.TextView;
 
-public class MainActivity extends Activity {
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class MainActivity extends Activity implements DeviceSnapshotCollector.Callback {
 
     public static final String TAG = "DIC"; // Device Information Companion
 
+    private final CollectionMetrics metrics = new CollectionMetrics();
+    private DeviceSnapshotCollector collector;
+    private Future<DeviceSnapshot> pendingSnapshot;
+    /**
+     * Opens, appends to and closes the journal off the main thread, which
+     * maps the segments and forces them on rollover.
+     */
+    private ExecutorService journalExecutor;
+    /**
+     * Only touched on the journal executor.
+     */
+    private SnapshotJournal journal;
+    private boolean destroyed;
+
     @Override
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
+        TimestampFormat.watchTimeZone(this);
 
-        String deviceInformation = DeviceContextProvider.toString(getApplicationContext());
+        collector = new DeviceSnapshotCollector(getApplicationContext());
+        collector.setCollectionListener(metrics);
+        journalExecutor = Executors.newSingleThreadExecutor(
+                new DeviceSnapshotCollector.CollectorThreadFactory("dic-journal-"));
+        pendingSnapshot = collector.collect(this, new Handler());
+    }
+
+    @Override
+    protected void onDestroy() {
+        destroyed = true;
+        pendingSnapshot.cancel(true);
+        collector.shutdown();
+        journalExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (null == journal) return;
+
+                try {
+                    journal.close();
+                } catch (IOException e) {
+                    Log.e(TAG, "Closing the journal failed", e);
+                }
+            }
+        });
+        // runs the pending appends and the close, then ends the thread
+        journalExecutor.shutdown();
+
+        super.onDestroy();
+    }
+
+    @Override
+    public void onSnapshotCollected(final DeviceSnapshot snapshot) {
+        if (destroyed) return;
+
+        String deviceInformation = DeviceSnapshotFormatter.format(snapshot);
 
         TextView textView = (TextView) findViewById(R.id.main_text);
         textView.setText(deviceInformation);
 
         Log.v(TAG, deviceInformation);
+
+        StringBuilder sb = new StringBuilder(1024);
+        metrics.appendTo(sb);
+        Log.v(TAG, sb.toString());
+
+        journalExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (null == journal) journal = new SnapshotJournal(getApplicationContext());
+                    journal.append(snapshot);
+                } catch (IOException e) {
+                    Log.e(TAG, "Journaling the snapshot failed", e);
+                }
+            }
+        });
     }
 
 }
@@ -0,0 +1,277 @@
+package de.thepivi.android.dic;
+
+import android.os.Build;
+import android.os.Debug;
+import android.os.SystemClock;
+import android.system.Os;
+import android.system.OsConstants;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically samples the resource usage of the own process into fixed size
+ * time series, one per {@code METRIC_*}.
+ * <p/>
+ * CPU time and thread count are parsed from {@code /proc/self/stat}, the
+ * resident set size from {@code /proc/self/statm}. Both stay open and are
+ * re-read from position 0 into reused buffers, the only allocation of a
+ * sample is the GC count string of {@link Debug#getRuntimeStat(String)}.
+ * Values which cannot be read are -1.
+ */
+public class ProcessSampler {
+
+    /**
+     * {@link SystemClock#elapsedRealtime()} of the sample.
+     */
+    public static final int METRIC_TIME = 0;
+    public static final int METRIC_JAVA_HEAP_USED = 1;
+    public static final int METRIC_JAVA_HEAP_SIZE = 2;
+    public static final int METRIC_NATIVE_HEAP_ALLOCATED = 3;
+    public static final int METRIC_NATIVE_HEAP_SIZE = 4;
+    /**
+     * Garbage collections since start, -1 before MARSHMALLOW.
+     */
+    public static final int METRIC_GC_COUNT = 5;
+    public static final int METRIC_THREAD_COUNT = 6;
+    public static final int METRIC_USER_CPU_MILLIS = 7;
+    public static final int METRIC_SYSTEM_CPU_MILLIS = 8;
+    public static final int METRIC_RSS = 9;
+    public static final int METRIC_COUNT = 10;
+
+    public static final int DEFAULT_CAPACITY = 720;
+
+    private final long[][] series;
+    private final ByteBuffer direct = ByteBuffer.allocateDirect(1024);
+    private final byte[] buffer = new byte[1024];
+    private final SystemInfoReader.Source statFile =
+            new SystemInfoReader.Source(new File("/proc/self/stat"));
+    private final SystemInfoReader.Source statmFile =
+            new SystemInfoReader.Source(new File("/proc/self/statm"));
+    private final long[] stat = new long[3];
+    private final long clockTicks;
+    private final long pageSize;
+    private final ScheduledExecutorService executor;
+    private long sampleCount;
+    private ScheduledFuture<?> sampling;
+
+    private final Runnable sampleTask = new Runnable() {
+        @Override
+        public void run() {
+            sample();
+        }
+    };
+
+    public ProcessSampler() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity samples kept
+     */
+    public ProcessSampler(int capacity) {
+        series = new long[METRIC_COUNT][capacity];
+
+        long ticks = 0;
+        long page = 0;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            ticks = Os.sysconf(OsConstants._SC_CLK_TCK);
+            page = Os.sysconf(OsConstants._SC_PAGESIZE);
+        }
+        // the kernel defaults of Android
+        clockTicks = ticks > 0 ? ticks : 100;
+        pageSize = page > 0 ? page : 4096;
+
+        executor = new ScheduledThreadPoolExecutor(1,
+                new DeviceSnapshotCollector.CollectorThreadFactory("dic-process-"));
+    }
+
+    /**
+     * Starts sampling at a fixed rate.
+     */
+    public synchronized void start(long periodMillis) {
+        if (null != sampling) return;
+
+        sampling = executor.scheduleAtFixedRate(sampleTask, 0, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (null == sampling) return;
+
+        sampling.cancel(false);
+        sampling = null;
+    }
+
+    /**
+     * Stops sampling and the background thread and closes the files.
+     */
+    public void shutdown() {
+        stop();
+        executor.shutdownNow();
+
+        synchronized (this) {
+            statFile.close();
+            statmFile.close();
+        }
+    }
+
+    /**
+     * Takes one sample now.
+     */
+    public synchronized void sample() {
+        int index = (int) (sampleCount % series[0].length);
+        Runtime runtime = Runtime.getRuntime();
+
+        series[METRIC_TIME][index] = SystemClock.elapsedRealtime();
+        series[METRIC_JAVA_HEAP_USED][index] = runtime.totalMemory() - runtime.freeMemory();
+        series[METRIC_JAVA_HEAP_SIZE][index] = runtime.totalMemory();
+        series[METRIC_NATIVE_HEAP_ALLOCATED][index] = Debug.getNativeHeapAllocatedSize();
+        series[METRIC_NATIVE_HEAP_SIZE][index] = Debug.getNativeHeapSize();
+        series[METRIC_GC_COUNT][index] = gcCount();
+
+        if (parseStat(buffer, read(statFile), stat)) {
+            series[METRIC_USER_CPU_MILLIS][index] = stat[0] * 1000 / clockTicks;
+            series[METRIC_SYSTEM_CPU_MILLIS][index] = stat[1] * 1000 / clockTicks;
+            series[METRIC_THREAD_COUNT][index] = stat[2];
+        } else {
+            series[METRIC_USER_CPU_MILLIS][index] = -1;
+            series[METRIC_SYSTEM_CPU_MILLIS][index] = -1;
+            series[METRIC_THREAD_COUNT][index] = -1;
+        }
+
+        long resident = parseStatmResident(buffer, read(statmFile));
+        series[METRIC_RSS][index] = resident >= 0 ? resident * pageSize : -1;
+
+        sampleCount++;
+    }
+
+    /**
+     * @return the number of samples taken, including those which dropped out
+     * of the series
+     */
+    public synchronized long getSampleCount() {
+        return sampleCount;
+    }
+
+    /**
+     * Copies the latest values of a metric, oldest first.
+     *
+     * @return the number of values copied
+     */
+    public synchronized int getSeries(int metric, long[] values) {
+        long[] source = series[metric];
+        int count = (int) Math.min(Math.min(sampleCount, source.length), values.length);
+
+        for (int i = 0; i < count; i++) {
+            values[i] = source[(int) ((sampleCount - count + i) % source.length)];
+        }
+
+        return count;
+    }
+
+    /**
+     * Reads a small file into the buffer.
+     *
+     * @return the number of bytes read, -1 if it cannot be read
+     */
+    private int read(SystemInfoReader.Source file) {
+        int length = file.read(direct);
+
+        if (length > 0) {
+            direct.flip();
+            direct.get(buffer, 0, length);
+        }
+
+        return length;
+    }
+
+    private static long gcCount() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.M) return -1;
+
+        String count = Debug.getRuntimeStat("art.gc.gc-count");
+
+        return null != count ? parseLong(count) : -1;
+    }
+
+    private static long parseLong(String value) {
+        long result = 0;
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            result = result * 10 + c - '0';
+        }
+
+        return result;
+    }
+
+    /**
+     * Parses user and system CPU time in clock ticks and the thread count from
+     * the content of {@code /proc/self/stat}. The fields are counted after the
+     * command name, which may contain spaces and parentheses.
+     *
+     * @param result receives utime, stime and num_threads
+     * @return whether all fields were found
+     */
+    static boolean parseStat(byte[] buffer, int length, long[] result) {
+        int position = -1;
+        for (int i = length - 1; i >= 0; i--) {
+            if (buffer[i] == ')') {
+                position = i + 1;
+                break;
+            }
+        }
+        if (position < 0) return false;
+
+        // field 3, the state, follows the command name
+        int found = 0;
+        for (int field = 3; field <= 20 && position < length; field++) {
+            while (position < length && buffer[position] == ' ') position++;
+
+            int start = position;
+            long value = 0;
+            while (position < length && buffer[position] != ' ' && buffer[position] != '\n') {
+                value = value * 10 + buffer[position] - '0';
+                position++;
+            }
+            if (position == start) return false;
+
+            if (field == 14) {
+                result[0] = value;
+                found++;
+            } else if (field == 15) {
+                result[1] = value;
+                found++;
+            } else if (field == 20) {
+                result[2] = value;
+                found++;
+            }
+        }
+
+        return found == 3;
+    }
+
+    /**
+     * @return the resident pages, the second field of {@code /proc/self/statm},
+     * -1 if missing
+     */
+    static long parseStatmResident(byte[] buffer, int length) {
+        int position = 0;
+
+        while (position < length && buffer[position] != ' ') position++;
+        position++;
+
+        int start = position;
+        long value = 0;
+        while (position < length && buffer[position] >= '0' && buffer[position] <= '9') {
+            value = value * 10 + buffer[position] - '0';
+            position++;
+        }
+
+        return position > start ? value : -1;
+    }
+}
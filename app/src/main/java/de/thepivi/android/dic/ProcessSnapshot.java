@@ -0,0 +1,28 @@
+package de.thepivi.android.dic;
+
+import java.io.IOException;
+
+/**
+ * Snapshot of the {@link android.os.Process} counters of the calling process.
+ */
+public class ProcessSnapshot {
+
+    public long elapsedCpuTime;
+    public int pid;
+    public int tid;
+    public int uid;
+
+    public void writeTo(SnapshotOutput out) throws IOException {
+        out.writeLong(elapsedCpuTime);
+        out.writeInt(pid);
+        out.writeInt(tid);
+        out.writeInt(uid);
+    }
+
+    public void readFrom(SnapshotInput in) throws IOException {
+        elapsedCpuTime = in.readLong();
+        pid = in.readInt();
+        tid = in.readInt();
+        uid = in.readInt();
+    }
+}
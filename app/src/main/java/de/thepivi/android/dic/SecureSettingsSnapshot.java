@@ -0,0 +1,227 @@
+package de.thepivi.android.dic;
+
+import android.provider.Settings.Secure;
+
+import java.io.IOException;
+import java.util.HashMap;
+
+/**
+ * Snapshot of the raw {@link Secure} setting values reported by
+ * {@link DeviceContextProvider}, read in one batch by
+ * {@link DeviceContextProvider#getSecureSettingsSnapshot(android.content.Context)}.
+ */
+public class SecureSettingsSnapshot {
+
+    /**
+     * The keys of interest. Part of the binary schema, only append to this list.
+     */
+    public static final String[] KEYS = {
+            Secure.ANDROID_ID,
+            Secure.ACCESSIBILITY_ENABLED,
+            Secure.ADB_ENABLED,
+            Secure.ALLOW_MOCK_LOCATION,
+            Secure.BACKGROUND_DATA,
+            Secure.BLUETOOTH_ON,
+            Secure.DATA_ROAMING,
+            Secure.DEFAULT_INPUT_METHOD,
+            Secure.DEVICE_PROVISIONED,
+            Secure.ENABLED_ACCESSIBILITY_SERVICES,
+            Secure.ENABLED_INPUT_METHODS,
+            Secure.HTTP_PROXY,
+            Secure.INSTALL_NON_MARKET_APPS,
+            Secure.LOCATION_PROVIDERS_ALLOWED,
+            Secure.LOGGING_ID,
+            Secure.NETWORK_PREFERENCE,
+            Secure.PARENTAL_CONTROL_ENABLED,
+            Secure.PARENTAL_CONTROL_LAST_UPDATE,
+            Secure.PARENTAL_CONTROL_REDIRECT_URL,
+            Secure.SETTINGS_CLASSNAME,
+            Secure.SYS_PROP_SETTING_VERSION,
+            Secure.TTS_DEFAULT_COUNTRY,
+            Secure.TTS_DEFAULT_LANG,
+            Secure.TTS_DEFAULT_PITCH,
+            Secure.TTS_DEFAULT_RATE,
+            Secure.TTS_DEFAULT_SYNTH,
+            Secure.TTS_DEFAULT_VARIANT,
+            Secure.TTS_USE_DEFAULTS,
+            Secure.USB_MASS_STORAGE_ENABLED,
+            Secure.USE_GOOGLE_MAIL,
+            Secure.WIFI_MAX_DHCP_RETRY_COUNT,
+            Secure.WIFI_MOBILE_DATA_TRANSITION_WAKELOCK_TIMEOUT_MS,
+            Secure.WIFI_NETWORKS_AVAILABLE_NOTIFICATION_ON,
+            Secure.WIFI_NETWORKS_AVAILABLE_REPEAT_DELAY,
+            Secure.WIFI_WATCHDOG_BACKGROUND_CHECK_TIMEOUT_MS,
+            Secure.WIFI_WATCHDOG_INITIAL_IGNORED_PING_COUNT,
+            Secure.WIFI_WATCHDOG_MAX_AP_CHECKS,
+            Secure.WIFI_WATCHDOG_ON,
+            Secure.WIFI_WATCHDOG_PING_COUNT,
+            Secure.WIFI_WATCHDOG_PING_DELAY_MS,
+            Secure.WIFI_WATCHDOG_PING_TIMEOUT_MS,
+            Secure.WIFI_WATCHDOG_WATCH_LIST
+    };
+
+    /**
+     * Report labels, indexed like {@link #KEYS}.
+     */
+    static final String[] LABELS = {
+            "ANDROID_ID",
+            "ACCESSIBILITY_ENABLED",
+            "ADB_ENABLED",
+            "ALLOW_MOCK_LOCATION",
+            "BACKGROUND_DATA",
+            "BLUETOOTH_ON",
+            "DATA_ROAMING",
+            "DEFAULT_INPUT_METHOD",
+            "DEVICE_PROVISIONED",
+            "ENABLED_ACCESSIBILITY_SERVICES",
+            "ENABLED_INPUT_METHODS",
+            "HTTP_PROXY",
+            "INSTALL_NON_MARKET_APPS",
+            "LOCATION_PROVIDERS_ALLOWED",
+            "LOGGING_ID",
+            "NETWORK_PREFERENCE",
+            "PARENTAL_CONTROL_ENABLED",
+            "PARENTAL_CONTROL_LAST_UPDATE",
+            "PARENTAL_CONTROL_REDIRECT_URL",
+            "SETTINGS_CLASSNAME",
+            "SYS_PROP_SETTING_VERSION",
+            "TTS_DEFAULT_COUNTRY",
+            "TTS_DEFAULT_LANG",
+            "TTS_DEFAULT_PITCH",
+            "TTS_DEFAULT_RATE",
+            "TTS_DEFAULT_SYNTH",
+            "TTS_DEFAULT_VARIANT",
+            "TTS_USE_DEFAULTS",
+            "USB_MASS_STORAGE_ENABLED",
+            "USE_GOOGLE_MAIL",
+            "WIFI_MAX_DHCP_RETRY_COUNT",
+            "WIFI_MOBILE_DATA_TRANSITION_WAKELOCK_TIMEOUT_MS",
+            "WIFI_NETWORKS_AVAILABLE_NOTIFICATION_ON",
+            "WIFI_NETWORKS_AVAILABLE_REPEAT_DELAY",
+            "WIFI_WATCHDOG_BACKGROUND_CHECK_TIMEOUT_MS",
+            "WIFI_WATCHDOG_INITIAL_IGNORED_PING_COUNT",
+            "WIFI_WATCHDOG_MAX_AP_CHECKS",
+            "WIFI_WATCHDOG_ON",
+            "WIFI_WATCHDOG_PING_COUNT",
+            "WIFI_WATCHDOG_PING_DELAY_MS",
+            "WIFI_WATCHDOG_PING_TIMEOUT_MS",
+            "WIFI_WATCHDOG_WATCH_LIST"
+    };
+
+    private static final String[] BOOLEAN_KEYS = {
+            Secure.ACCESSIBILITY_ENABLED,
+            Secure.ADB_ENABLED,
+            Secure.ALLOW_MOCK_LOCATION,
+            Secure.BACKGROUND_DATA,
+            Secure.BLUETOOTH_ON,
+            Secure.DATA_ROAMING,
+            Secure.DEVICE_PROVISIONED,
+            Secure.INSTALL_NON_MARKET_APPS,
+            Secure.PARENTAL_CONTROL_ENABLED,
+            Secure.TTS_USE_DEFAULTS,
+            Secure.USB_MASS_STORAGE_ENABLED,
+            Secure.USE_GOOGLE_MAIL,
+            Secure.WIFI_NETWORKS_AVAILABLE_NOTIFICATION_ON,
+            Secure.WIFI_WATCHDOG_ON
+    };
+
+    private static final HashMap<String, Integer> INDEX = new HashMap<String, Integer>();
+
+    static {
+        for (int i = 0; i < KEYS.length; i++) {
+            INDEX.put(KEYS[i], i);
+        }
+    }
+
+    /**
+     * Raw values, indexed like {@link #KEYS}.
+     */
+    public final String[] values = new String[KEYS.length];
+
+    /**
+     * @return the index of given key in {@link #KEYS} or -1 if it is unknown.
+     */
+    public static int indexOf(String key) {
+        Integer index = INDEX.get(key);
+
+        return null != index ? index : -1;
+    }
+
+    /**
+     * @return the raw value of given key or {@code null} if it is unset or unknown.
+     */
+    public String getString(String key) {
+        int index = indexOf(key);
+
+        return index >= 0 ? values[index] : null;
+    }
+
+    /**
+     * Parses "1", "0", "true" and "false" like
+     * {@link DeviceContextProvider#parseStringIntToStringBool(String)}.
+     */
+    public boolean getBoolean(String key, boolean defaultValue) {
+        String value = getString(key);
+
+        if (null == value) return defaultValue;
+        if ("1".equals(value) || "true".equalsIgnoreCase(value)) return true;
+        if ("0".equals(value) || "false".equalsIgnoreCase(value)) return false;
+
+        return defaultValue;
+    }
+
+    public int getInt(String key, int defaultValue) {
+        String value = getString(key);
+
+        if (null == value) return defaultValue;
+
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    public long getLong(String key, long defaultValue) {
+        String value = getString(key);
+
+        if (null == value) return defaultValue;
+
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * @return whether the value of given key is reported as boolean.
+     */
+    static boolean isBoolean(String key) {
+        for (String booleanKey : BOOLEAN_KEYS) {
+            if (booleanKey.equals(key)) return true;
+        }
+
+        return false;
+    }
+
+    public void writeTo(SnapshotOutput out) throws IOException {
+        out.writeInt(values.length);
+        for (String value : values) {
+            out.writeString(value);
+        }
+    }
+
+    /**
+     * Reads the values in {@link #KEYS} order, values of keys unknown to this
+     * schema are skipped.
+     */
+    public void readFrom(SnapshotInput in) throws IOException {
+        int count = in.readInt();
+
+        for (int i = 0; i < count; i++) {
+            String value = in.readString();
+            if (i < values.length) values[i] = value;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package de.thepivi.android.dic;
+
+/**
+ * Windowed aggregate of one sensor value, filled by
+ * {@link SensorRingBuffer#aggregate}.
+ */
+public class SensorAggregate {
+
+    public int count;
+    public float min;
+    public float max;
+    public double mean;
+
+    /**
+     * Population variance of the values in the window.
+     */
+    public double variance;
+
+    /**
+     * Timestamps of the oldest and the newest sample in the window.
+     */
+    public long firstTimestamp;
+    public long lastTimestamp;
+
+    void clear() {
+        count = 0;
+        min = Float.POSITIVE_INFINITY;
+        max = Float.NEGATIVE_INFINITY;
+        mean = 0;
+        variance = 0;
+        firstTimestamp = 0;
+        lastTimestamp = 0;
+    }
+}
@@ -0,0 +1,205 @@
+package de.thepivi.android.dic;
+
+import android.content.Context;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Index of the sensors of the device for capability queries.
+ * <p/>
+ * The sensor list is read once per process. The sensors are grouped by type
+ * and sorted by power and by resolution, so every query is a binary search.
+ * The returned snapshots are shared and must not be modified.
+ */
+public class SensorIndex {
+
+    private static final SensorSnapshot[] NONE = new SensorSnapshot[0];
+
+    private static final Comparator<SensorSnapshot> BY_POWER = new Comparator<SensorSnapshot>() {
+        @Override
+        public int compare(SensorSnapshot a, SensorSnapshot b) {
+            return Float.compare(a.power, b.power);
+        }
+    };
+
+    private static final Comparator<SensorSnapshot> BY_RESOLUTION = new Comparator<SensorSnapshot>() {
+        @Override
+        public int compare(SensorSnapshot a, SensorSnapshot b) {
+            return Float.compare(a.resolution, b.resolution);
+        }
+    };
+
+    private static volatile SensorIndex instance;
+
+    private final SensorSnapshot[] sensors;
+    private final SensorSnapshot[] byResolution;
+    private final int[] types;
+    private final SensorSnapshot[][] byTypePower;
+    private final SensorSnapshot[][] byTypeResolution;
+
+    SensorIndex(SensorSnapshot[] sensors) {
+        this.sensors = sensors;
+
+        byResolution = sensors.clone();
+        Arrays.sort(byResolution, BY_RESOLUTION);
+
+        int[] allTypes = new int[sensors.length];
+        for (int i = 0; i < sensors.length; i++) {
+            allTypes[i] = sensors[i].type;
+        }
+        Arrays.sort(allTypes);
+
+        int typeCount = 0;
+        for (int i = 0; i < allTypes.length; i++) {
+            if (i == 0 || allTypes[i] != allTypes[i - 1]) allTypes[typeCount++] = allTypes[i];
+        }
+        types = new int[typeCount];
+        System.arraycopy(allTypes, 0, types, 0, typeCount);
+
+        byTypePower = new SensorSnapshot[typeCount][];
+        byTypeResolution = new SensorSnapshot[typeCount][];
+        for (int t = 0; t < typeCount; t++) {
+            int count = 0;
+            for (SensorSnapshot sensor : sensors) {
+                if (sensor.type == types[t]) count++;
+            }
+
+            SensorSnapshot[] ofType = new SensorSnapshot[count];
+            count = 0;
+            for (SensorSnapshot sensor : sensors) {
+                if (sensor.type == types[t]) ofType[count++] = sensor;
+            }
+
+            byTypePower[t] = ofType.clone();
+            Arrays.sort(byTypePower[t], BY_POWER);
+            byTypeResolution[t] = ofType;
+            Arrays.sort(byTypeResolution[t], BY_RESOLUTION);
+        }
+    }
+
+    /**
+     * @return the index of the device sensors, built on first call.
+     */
+    public static SensorIndex get(Context context) {
+        SensorIndex result = instance;
+
+        if (null == result) {
+            synchronized (SensorIndex.class) {
+                result = instance;
+                if (null == result) {
+                    result = instance = new SensorIndex(DeviceContextProvider.readSensorSnapshots(context));
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Drops the index of the process, the next call of {@link #get(Context)}
+     * reads the sensor list again.
+     */
+    static void clear() {
+        synchronized (SensorIndex.class) {
+            instance = null;
+        }
+    }
+
+    /**
+     * @return all sensors in the order of the platform.
+     */
+    public SensorSnapshot[] getSensors() {
+        return sensors;
+    }
+
+    /**
+     * @return the sensors of a type, ordered by ascending power.
+     */
+    public SensorSnapshot[] getSensors(int type) {
+        int t = Arrays.binarySearch(types, type);
+
+        return t >= 0 ? byTypePower[t] : NONE;
+    }
+
+    /**
+     * @return the sensor of a type drawing the least power, {@code null} if
+     * there is none.
+     */
+    public SensorSnapshot getLowestPower(int type) {
+        SensorSnapshot[] ofType = getSensors(type);
+
+        return ofType.length > 0 ? ofType[0] : null;
+    }
+
+    /**
+     * @return the sensor of a type with the finest resolution, {@code null} if
+     * there is none.
+     */
+    public SensorSnapshot getFinestResolution(int type) {
+        int t = Arrays.binarySearch(types, type);
+
+        return t >= 0 ? byTypeResolution[t][0] : null;
+    }
+
+    /**
+     * @return all sensors with a resolution below given one, ordered by
+     * ascending resolution.
+     */
+    public SensorSnapshot[] getResolutionBelow(float resolution) {
+        return head(byResolution, countBelow(byResolution, resolution, false));
+    }
+
+    /**
+     * @return the sensors of a type with a resolution below given one, ordered
+     * by ascending resolution.
+     */
+    public SensorSnapshot[] getResolutionBelow(int type, float resolution) {
+        int t = Arrays.binarySearch(types, type);
+        if (t < 0) return NONE;
+
+        return head(byTypeResolution[t], countBelow(byTypeResolution[t], resolution, false));
+    }
+
+    /**
+     * @return the sensors of a type drawing less than given power in mA,
+     * ordered by ascending power.
+     */
+    public SensorSnapshot[] getPowerBelow(int type, float power) {
+        int t = Arrays.binarySearch(types, type);
+        if (t < 0) return NONE;
+
+        return head(byTypePower[t], countBelow(byTypePower[t], power, true));
+    }
+
+    /**
+     * @return the number of leading sensors whose power or resolution is below
+     * {@code limit}, the array is sorted by it.
+     */
+    private static int countBelow(SensorSnapshot[] sorted, float limit, boolean power) {
+        int low = 0;
+        int high = sorted.length;
+
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            float value = power ? sorted[mid].power : sorted[mid].resolution;
+
+            if (Float.compare(value, limit) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        return low;
+    }
+
+    private static SensorSnapshot[] head(SensorSnapshot[] sorted, int count) {
+        if (count == 0) return NONE;
+
+        SensorSnapshot[] result = new SensorSnapshot[count];
+        System.arraycopy(sorted, 0, result, 0, count);
+
+        return result;
+    }
+}
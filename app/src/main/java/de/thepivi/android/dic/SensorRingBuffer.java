@@ -0,0 +1,165 @@
+package de.thepivi.android.dic;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Preallocated ring buffer of the readings of one sensor.
+ * <p/>
+ * Keeps the timestamps and the first {@value #VALUE_COUNT} values (e.g. x, y
+ * and z) of the latest samples in primitive arrays, so writing neither boxes
+ * nor allocates. There is one writer, the thread delivering the sensor events.
+ * Readers never block it: they copy or aggregate optimistically and retry if
+ * the writer moved in between, guarded by a sequence counter which is odd
+ * while a sample is written.
+ * <p/>
+ * The samples live in atomic arrays, the values as float bits. Plain array
+ * reads could be reordered after the second read of the sequence, so a torn
+ * sample could pass the check, and there is no load fence before API 28. With
+ * every access volatile they are all in one total order: a read which sees
+ * part of a sample still being written is preceded by the odd sequence of
+ * that write, so the re-check after it fails.
+ */
+public class SensorRingBuffer {
+
+    public static final int VALUE_COUNT = 3;
+
+    private static final int MAX_READ_ATTEMPTS = 16;
+
+    private final int capacity;
+    private final AtomicLongArray timestamps;
+    private final AtomicIntegerArray values;
+
+    private volatile int sequence;
+    private volatile long written;
+
+    public SensorRingBuffer(int capacity) {
+        this.capacity = capacity;
+        timestamps = new AtomicLongArray(capacity);
+        values = new AtomicIntegerArray(capacity * VALUE_COUNT);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Appends a sample, overwriting the oldest one when full. Must only be
+     * called by the writer thread.
+     *
+     * @param timestamp in nanoseconds, e.g. {@code SensorEvent.timestamp}
+     */
+    public void write(long timestamp, float[] sample) {
+        int slot = (int) (written % capacity);
+        int count = Math.min(sample.length, VALUE_COUNT);
+
+        sequence++;
+        timestamps.set(slot, timestamp);
+        for (int i = 0; i < VALUE_COUNT; i++) {
+            values.set(slot * VALUE_COUNT + i, Float.floatToRawIntBits(i < count ? sample[i] : 0f));
+        }
+        written++;
+        sequence++;
+    }
+
+    /**
+     * Aggregates one value of the samples taken within {@code windowNanos}
+     * before the latest sample.
+     *
+     * @param valueIndex below {@link #VALUE_COUNT}
+     * @param result     receives the aggregate, reusable
+     * @return false if the writer kept interfering, {@code result} is then
+     * undefined
+     * @throws IllegalArgumentException if {@code valueIndex} is out of range
+     */
+    public boolean aggregate(long windowNanos, int valueIndex, SensorAggregate result) {
+        if (valueIndex < 0 || valueIndex >= VALUE_COUNT) {
+            throw new IllegalArgumentException("Value index " + valueIndex + " out of range");
+        }
+
+        for (int attempt = 0; attempt < MAX_READ_ATTEMPTS; attempt++) {
+            int before = sequence;
+
+            if ((before & 1) == 0) {
+                aggregateUnsafe(windowNanos, valueIndex, result);
+                if (before == sequence) return true;
+            }
+
+            Thread.yield();
+        }
+
+        return false;
+    }
+
+    private void aggregateUnsafe(long windowNanos, int valueIndex, SensorAggregate result) {
+        long total = written;
+        int size = (int) Math.min(total, capacity);
+
+        result.clear();
+        if (size == 0) return;
+
+        int newest = (int) ((total - 1) % capacity);
+        long since = timestamps.get(newest) - windowNanos;
+        double mean = 0;
+        double squares = 0;
+
+        for (int i = 0; i < size; i++) {
+            int slot = (newest - i + capacity) % capacity;
+
+            long timestamp = timestamps.get(slot);
+            if (timestamp < since) break;
+
+            float value = Float.intBitsToFloat(values.get(slot * VALUE_COUNT + valueIndex));
+            int count = i + 1;
+            double delta = value - mean;
+
+            mean += delta / count;
+            squares += delta * (value - mean);
+            if (value < result.min) result.min = value;
+            if (value > result.max) result.max = value;
+            result.count = count;
+            result.firstTimestamp = timestamp;
+        }
+
+        result.lastTimestamp = timestamps.get(newest);
+        result.mean = mean;
+        result.variance = result.count > 1 ? squares / result.count : 0;
+    }
+
+    /**
+     * Copies the latest sample.
+     *
+     * @param sample receives {@link #VALUE_COUNT} values
+     * @return the timestamp of the sample, -1 if none was written yet or the
+     * writer kept interfering
+     */
+    public long readLatest(float[] sample) {
+        for (int attempt = 0; attempt < MAX_READ_ATTEMPTS; attempt++) {
+            int before = sequence;
+
+            if ((before & 1) == 0) {
+                long total = written;
+                if (total == 0) return -1;
+
+                int slot = (int) ((total - 1) % capacity);
+                long timestamp = timestamps.get(slot);
+                for (int i = 0; i < VALUE_COUNT; i++) {
+                    sample[i] = Float.intBitsToFloat(values.get(slot * VALUE_COUNT + i));
+                }
+
+                if (before == sequence) return timestamp;
+            }
+
+            Thread.yield();
+        }
+
+        return -1;
+    }
+
+    /**
+     * @return the number of samples written so far, including overwritten ones.
+     */
+    public long getWrittenCount() {
+        return written;
+    }
+}
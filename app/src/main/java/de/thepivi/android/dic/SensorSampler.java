@@ -0,0 +1,238 @@
+package de.thepivi.android.dic;
+
+import android.content.Context;
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+import android.hardware.SensorEventListener;
+import android.hardware.SensorManager;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.util.SparseArray;
+
+/**
+ * Samples the readings of sensors into one {@link SensorRingBuffer} each.
+ * <p/>
+ * Events are delivered on the looper of the given {@link Handler}, or on the
+ * main thread, and written without allocation. The buffers can be read from
+ * any thread.
+ * <p/>
+ * In batching mode events are delivered on a dedicated background thread and
+ * a {@link BatchListener} is told once per batch. Where the sensor has a
+ * hardware FIFO (KITKAT and later) it collects the events for up to the max
+ * report latency while the CPU sleeps. Otherwise the events are batched in
+ * software, which spares the listener but not the wake ups.
+ */
+public class SensorSampler {
+
+    /**
+     * Is told on the sampler thread when a batch of samples was written.
+     */
+    public interface BatchListener {
+
+        void onBatch(int sensorType, SensorRingBuffer buffer);
+    }
+
+    public static final int DEFAULT_CAPACITY = 512;
+
+    private final SensorManager sensorManager;
+    private final int capacity;
+    private final int sdkInt;
+    private final SparseArray<Channel> channels = new SparseArray<Channel>();
+    private HandlerThread thread;
+    private Handler threadHandler;
+
+    public SensorSampler(Context context) {
+        this(context, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity samples kept per sensor
+     */
+    public SensorSampler(Context context, int capacity) {
+        this(context, capacity, null, Build.VERSION.SDK_INT);
+    }
+
+    /**
+     * @param batchHandler receives the batched events instead of an own
+     *                     thread, may be {@code null}
+     * @param sdkInt       the platform version to assume
+     */
+    SensorSampler(Context context, int capacity, Handler batchHandler, int sdkInt) {
+        sensorManager = DeviceContextProvider.getSensorManager(context);
+        this.capacity = capacity;
+        this.sdkInt = sdkInt;
+        threadHandler = batchHandler;
+    }
+
+    /**
+     * Starts sampling the default sensor of a type.
+     *
+     * @param samplingPeriodUs one of the {@code SensorManager.SENSOR_DELAY_*}
+     *                         constants or, since GINGERBREAD, the period in
+     *                         microseconds
+     * @param handler          receives the events, may be {@code null}
+     * @return the buffer receiving the samples, {@code null} if there is no such
+     * sensor
+     */
+    public synchronized SensorRingBuffer start(int sensorType, int samplingPeriodUs, Handler handler) {
+        Channel channel = channels.get(sensorType);
+        if (null != channel) return channel.buffer;
+
+        Sensor sensor = sensorManager.getDefaultSensor(sensorType);
+        if (null == sensor) return null;
+
+        channel = new Channel(sensorType, new SensorRingBuffer(capacity), null, null, 0);
+        if (!sensorManager.registerListener(channel, sensor, samplingPeriodUs, handler)) return null;
+        channels.put(sensorType, channel);
+
+        return channel.buffer;
+    }
+
+    /**
+     * Starts sampling the default sensor of a type in batching mode. The
+     * buffer should hold the samples of more than one batch.
+     *
+     * @param samplingPeriodUs   see {@link #start}
+     * @param maxReportLatencyUs how long events may be held back
+     * @return the buffer receiving the samples, {@code null} if there is no such
+     * sensor
+     */
+    public synchronized SensorRingBuffer startBatched(int sensorType, int samplingPeriodUs,
+                                                      int maxReportLatencyUs, BatchListener listener) {
+        Channel channel = channels.get(sensorType);
+        if (null != channel) return channel.buffer;
+
+        Sensor sensor = sensorManager.getDefaultSensor(sensorType);
+        if (null == sensor) return null;
+
+        Handler handler = getThreadHandler();
+        boolean registered = false;
+
+        if (sdkInt >= Build.VERSION_CODES.KITKAT && sensor.getFifoMaxEventCount() > 0) {
+            // the hardware holds the batch back, it arrives as one burst
+            channel = new Channel(sensorType, new SensorRingBuffer(capacity), listener, handler, 0);
+            registered = sensorManager.registerListener(channel, sensor, samplingPeriodUs,
+                    maxReportLatencyUs, handler);
+        }
+        if (!registered) {
+            // without a FIFO, or if the sensor refused the report latency
+            channel = new Channel(sensorType, new SensorRingBuffer(capacity), listener, handler,
+                    Math.max(1, maxReportLatencyUs / 1000));
+            registered = sensorManager.registerListener(channel, sensor, samplingPeriodUs, handler);
+        }
+
+        if (!registered) return null;
+        channels.put(sensorType, channel);
+
+        return channel.buffer;
+    }
+
+    /**
+     * @return whether a sampled sensor type is batched by its hardware FIFO
+     */
+    public synchronized boolean isHardwareBatched(int sensorType) {
+        Channel channel = channels.get(sensorType);
+
+        return null != channel && null != channel.listener && channel.batchDelayMillis == 0;
+    }
+
+    public synchronized void stop(int sensorType) {
+        Channel channel = channels.get(sensorType);
+
+        if (null != channel) {
+            unregister(channel);
+            channels.remove(sensorType);
+        }
+    }
+
+    public synchronized void stopAll() {
+        for (int i = 0; i < channels.size(); i++) {
+            unregister(channels.valueAt(i));
+        }
+        channels.clear();
+    }
+
+    /**
+     * Stops all sensors and the sampler thread.
+     */
+    public synchronized void release() {
+        stopAll();
+
+        if (null != thread) {
+            thread.quit();
+            thread = null;
+            threadHandler = null;
+        }
+    }
+
+    /**
+     * @return the buffer of a sampled sensor type, {@code null} if it is not
+     * sampled
+     */
+    public synchronized SensorRingBuffer getBuffer(int sensorType) {
+        Channel channel = channels.get(sensorType);
+
+        return null != channel ? channel.buffer : null;
+    }
+
+    private void unregister(Channel channel) {
+        sensorManager.unregisterListener(channel);
+        if (null != channel.handler) channel.handler.removeCallbacks(channel);
+    }
+
+    private Handler getThreadHandler() {
+        if (null == threadHandler) {
+            thread = new HandlerThread("dic-sensors", Process.THREAD_PRIORITY_BACKGROUND);
+            thread.start();
+            threadHandler = new Handler(thread.getLooper());
+        }
+
+        return threadHandler;
+    }
+
+    private static class Channel implements SensorEventListener, Runnable {
+
+        final int sensorType;
+        final SensorRingBuffer buffer;
+        final BatchListener listener;
+        final Handler handler;
+        final long batchDelayMillis;
+
+        /**
+         * Only touched on the handler thread.
+         */
+        private boolean batchPending;
+
+        Channel(int sensorType, SensorRingBuffer buffer, BatchListener listener, Handler handler,
+                long batchDelayMillis) {
+            this.sensorType = sensorType;
+            this.buffer = buffer;
+            this.listener = listener;
+            this.handler = handler;
+            this.batchDelayMillis = batchDelayMillis;
+        }
+
+        @Override
+        public void onSensorChanged(SensorEvent event) {
+            buffer.write(event.timestamp, event.values);
+
+            if (null != listener && !batchPending) {
+                // runs after the events already queued, i.e. the rest of the burst
+                batchPending = true;
+                handler.postDelayed(this, batchDelayMillis);
+            }
+        }
+
+        @Override
+        public void run() {
+            batchPending = false;
+            listener.onBatch(sensorType, buffer);
+        }
+
+        @Override
+        public void onAccuracyChanged(Sensor sensor, int accuracy) {
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package de.thepivi.android.dic;
+
+import java.io.IOException;
+
+/**
+ * Typed snapshot of the static metadata of one {@link android.hardware.Sensor}.
+ */
+public class SensorSnapshot {
+
+    public String name;
+    public int type;
+    public int version;
+    public String vendor;
+    public float resolution;
+    public float power;
+    public float maximumRange;
+
+    /**
+     * Events the hardware FIFO can batch, shared with other sensors, and the
+     * part reserved for this sensor. 0 if there is no FIFO or before KITKAT.
+     */
+    public int fifoMaxEventCount;
+    public int fifoReservedEventCount;
+
+    public void writeTo(SnapshotOutput out) throws IOException {
+        out.writeString(name);
+        out.writeInt(type);
+        out.writeInt(version);
+        out.writeString(vendor);
+        out.writeFloat(resolution);
+        out.writeFloat(power);
+        out.writeFloat(maximumRange);
+        if (out.getVersion() >= 4) {
+            out.writeInt(fifoMaxEventCount);
+            out.writeInt(fifoReservedEventCount);
+        }
+    }
+
+    public void readFrom(SnapshotInput in) throws IOException {
+        name = in.readString();
+        type = in.readInt();
+        version = in.readInt();
+        vendor = in.readString();
+        resolution = in.readFloat();
+        power = in.readFloat();
+        maximumRange = in.readFloat();
+        if (in.getVersion() >= 4) {
+            fifoMaxEventCount = in.readInt();
+            fifoReservedEventCount = in.readInt();
+        }
+    }
+}
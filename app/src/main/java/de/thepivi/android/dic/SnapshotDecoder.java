@@ -0,0 +1,167 @@
+package de.thepivi.android.dic;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Binary {@link SnapshotInput} reading the format written by {@link SnapshotEncoder}.
+ */
+public class SnapshotDecoder implements SnapshotInput {
+
+    /**
+     * Bound of string lengths and counts read from a stream, whose remaining
+     * size is unknown.
+     */
+    static final int MAX_STREAM_LENGTH = 1 << 20;
+
+    private final ArrayList<String> dictionary = new ArrayList<String>();
+    private final InputStream in;
+    private final ByteBuffer buffer;
+    private byte[] bytes = new byte[64];
+    private int version;
+
+    public SnapshotDecoder(InputStream in, String[] preset) {
+        this.in = in;
+        this.buffer = null;
+        dictionary.addAll(Arrays.asList(preset));
+    }
+
+    public SnapshotDecoder(ByteBuffer buffer, String[] preset) {
+        this.in = null;
+        this.buffer = buffer;
+        dictionary.addAll(Arrays.asList(preset));
+    }
+
+    @Override
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
+    public int readByte() throws IOException {
+        if (null != buffer) {
+            try {
+                return buffer.get() & 0xFF;
+            } catch (BufferUnderflowException e) {
+                throw new EOFException();
+            }
+        }
+
+        int value = in.read();
+        if (value < 0) throw new EOFException();
+
+        return value;
+    }
+
+    public int readRawVarInt() throws IOException {
+        int value = 0;
+
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = readByte();
+
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+
+        throw new IOException("Malformed varint");
+    }
+
+    public long readRawVarLong() throws IOException {
+        long value = 0;
+
+        for (int shift = 0; shift < 70; shift += 7) {
+            int b = readByte();
+
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+
+        throw new IOException("Malformed varlong");
+    }
+
+    @Override
+    public boolean readBoolean() throws IOException {
+        return readByte() != 0;
+    }
+
+    @Override
+    public int readInt() throws IOException {
+        int value = readRawVarInt();
+
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    @Override
+    public long readLong() throws IOException {
+        long value = readRawVarLong();
+
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    @Override
+    public float readFloat() throws IOException {
+        return Float.intBitsToFloat(readByte() | readByte() << 8 | readByte() << 16
+                | readByte() << 24);
+    }
+
+    @Override
+    public double readDouble() throws IOException {
+        long bits = 0;
+
+        for (int i = 0; i < 64; i += 8) {
+            bits |= (long) readByte() << i;
+        }
+
+        return Double.longBitsToDouble(bits);
+    }
+
+    @Override
+    public String readString() throws IOException {
+        int tag = readRawVarInt();
+
+        if (tag == 0) return null;
+
+        if ((tag & 1) == 0) {
+            int index = (tag >>> 1) - 1;
+
+            if (index >= dictionary.size()) {
+                throw new IOException("Unknown string reference " + index);
+            }
+
+            return dictionary.get(index);
+        }
+
+        int length = checkLength(tag >>> 1, "string");
+        if (bytes.length < length) bytes = new byte[Math.max(length, bytes.length * 2)];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) readByte();
+        }
+
+        String value = new String(bytes, 0, length, "UTF-8");
+        dictionary.add(value);
+
+        return value;
+    }
+
+    @Override
+    public int readCount() throws IOException {
+        // every element takes at least one byte
+        return checkLength(readInt(), "count");
+    }
+
+    private int checkLength(int length, String kind) throws IOException {
+        int max = null != buffer ? buffer.remaining() : MAX_STREAM_LENGTH;
+
+        if (length < 0 || length > max) throw new IOException("Malformed " + kind + " " + length);
+
+        return length;
+    }
+}
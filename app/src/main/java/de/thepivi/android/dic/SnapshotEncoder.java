@@ -0,0 +1,207 @@
+package de.thepivi.android.dic;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+
+/**
+ * Streaming binary {@link SnapshotOutput}.
+ * <p/>
+ * Ints and longs are written as zigzag varints, floats and doubles as little
+ * endian IEEE 754 bits. Strings are written once as UTF-8 and afterwards
+ * referenced by their index in a dictionary, which is primed with a preset of
+ * well known values shared with {@link SnapshotDecoder}.
+ */
+public class SnapshotEncoder implements SnapshotOutput {
+
+    private static final int BUFFER_SIZE = 512;
+
+    private final String[] preset;
+    private final HashMap<String, Integer> dictionary = new HashMap<String, Integer>();
+
+    private OutputStream out;
+    private ByteBuffer buffer;
+    private final byte[] bytes = new byte[BUFFER_SIZE];
+    private int position;
+
+    public SnapshotEncoder(OutputStream out, String[] preset) {
+        this.preset = preset;
+        reset(out);
+    }
+
+    public SnapshotEncoder(ByteBuffer buffer, String[] preset) {
+        this.preset = preset;
+        reset(buffer);
+    }
+
+    /**
+     * Starts a new message on given stream, the dictionary is reset to the preset.
+     */
+    public void reset(OutputStream out) {
+        this.out = out;
+        this.buffer = null;
+        resetDictionary();
+    }
+
+    /**
+     * Starts a new message on given buffer, the dictionary is reset to the preset.
+     */
+    public void reset(ByteBuffer buffer) {
+        this.out = null;
+        this.buffer = buffer;
+        resetDictionary();
+    }
+
+    private void resetDictionary() {
+        position = 0;
+        dictionary.clear();
+        for (int i = 0; i < preset.length; i++) {
+            dictionary.put(preset[i], i);
+        }
+    }
+
+    /**
+     * Writes buffered bytes to the underlying stream.
+     */
+    public void flush() throws IOException {
+        if (null != out && position > 0) {
+            out.write(bytes, 0, position);
+            position = 0;
+        }
+    }
+
+    private void writeByte(int value) throws IOException {
+        if (null != buffer) {
+            buffer.put((byte) value);
+        } else {
+            if (position == BUFFER_SIZE) flush();
+            bytes[position++] = (byte) value;
+        }
+    }
+
+    public void writeRawByte(int value) throws IOException {
+        writeByte(value);
+    }
+
+    public void writeRawVarInt(int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        writeByte(value);
+    }
+
+    public void writeRawVarLong(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        writeByte((int) value);
+    }
+
+    @Override
+    public int getVersion() {
+        return DeviceSnapshotCodec.VERSION;
+    }
+
+    @Override
+    public void writeBoolean(boolean value) throws IOException {
+        writeByte(value ? 1 : 0);
+    }
+
+    @Override
+    public void writeInt(int value) throws IOException {
+        writeRawVarInt((value << 1) ^ (value >> 31));
+    }
+
+    @Override
+    public void writeLong(long value) throws IOException {
+        writeRawVarLong((value << 1) ^ (value >> 63));
+    }
+
+    @Override
+    public void writeFloat(float value) throws IOException {
+        int bits = Float.floatToIntBits(value);
+
+        writeByte(bits);
+        writeByte(bits >> 8);
+        writeByte(bits >> 16);
+        writeByte(bits >> 24);
+    }
+
+    @Override
+    public void writeDouble(double value) throws IOException {
+        long bits = Double.doubleToLongBits(value);
+
+        for (int i = 0; i < 64; i += 8) {
+            writeByte((int) (bits >> i));
+        }
+    }
+
+    /**
+     * Writes {@code 0} for {@code null}, {@code (index + 1) << 1} for a
+     * dictionary reference and {@code (length << 1) | 1} followed by the UTF-8
+     * bytes for a new string.
+     */
+    @Override
+    public void writeString(String value) throws IOException {
+        if (null == value) {
+            writeRawVarInt(0);
+            return;
+        }
+
+        Integer index = dictionary.get(value);
+        if (null != index) {
+            writeRawVarInt((index + 1) << 1);
+            return;
+        }
+
+        dictionary.put(value, dictionary.size());
+        writeRawVarInt((utf8Length(value) << 1) | 1);
+        writeUtf8(value);
+    }
+
+    private static int utf8Length(String value) {
+        int length = 0;
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+
+            if (c < 0x80) length += 1;
+            else if (c < 0x800) length += 2;
+            else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else length += 3;
+        }
+
+        return length;
+    }
+
+    private void writeUtf8(String value) throws IOException {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+
+            if (c < 0x80) {
+                writeByte(c);
+            } else if (c < 0x800) {
+                writeByte(0xC0 | (c >> 6));
+                writeByte(0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+
+                writeByte(0xF0 | (codePoint >> 18));
+                writeByte(0x80 | ((codePoint >> 12) & 0x3F));
+                writeByte(0x80 | ((codePoint >> 6) & 0x3F));
+                writeByte(0x80 | (codePoint & 0x3F));
+            } else {
+                writeByte(0xE0 | (c >> 12));
+                writeByte(0x80 | ((c >> 6) & 0x3F));
+                writeByte(0x80 | (c & 0x3F));
+            }
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package de.thepivi.android.dic;
+
+import java.io.IOException;
+
+/**
+ * Source for the fields of a snapshot section, mirrors {@link SnapshotOutput}.
+ */
+public interface SnapshotInput {
+
+    /**
+     * @return the schema version the fields were written with.
+     */
+    int getVersion();
+
+    boolean readBoolean() throws IOException;
+
+    int readInt() throws IOException;
+
+    long readLong() throws IOException;
+
+    float readFloat() throws IOException;
+
+    double readDouble() throws IOException;
+
+    String readString() throws IOException;
+
+    /**
+     * Reads the element count of an array.
+     *
+     * @throws IOException if the count is negative or exceeds the input
+     */
+    int readCount() throws IOException;
+}
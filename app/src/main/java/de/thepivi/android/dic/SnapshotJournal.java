@@ -0,0 +1,313 @@
+package de.thepivi.android.dic;
+
+import android.content.Context;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of records in app-private storage, written through a
+ * {@link MappedByteBuffer}.
+ * <p/>
+ * The journal is a sequence of segment files of fixed size. A segment starts
+ * with a magic number and holds records of a length, the CRC32 of the data and
+ * the data. A zero length ends the segment. Appending copies into the mapped
+ * segment without a system call, the page cache writes it out and survives a
+ * crash of the app. Segments are only forced to disk when full or on
+ * {@link #flush()}.
+ * <p/>
+ * On opening, the tail of the last segment is recovered: records are read up
+ * to the first one which is incomplete or fails its CRC, the rest is
+ * overwritten by the next append. When a segment is full the journal
+ * rolls over to a new one and deletes the oldest segments beyond the disk
+ * budget.
+ */
+public class SnapshotJournal {
+
+    public interface RecordHandler {
+
+        /**
+         * @param record the data of the record, only valid during the call
+         */
+        void onRecord(ByteBuffer record) throws IOException;
+    }
+
+    public static final int DEFAULT_SEGMENT_SIZE = 1024 * 1024;
+    public static final long DEFAULT_DISK_BUDGET = 16L * DEFAULT_SEGMENT_SIZE;
+
+    static final String SUFFIX = ".journal";
+
+    private static final int MAGIC = 0x44534a31; // "DSJ1"
+    private static final int SEGMENT_HEADER_SIZE = 8;
+    private static final int RECORD_HEADER_SIZE = 8;
+
+    private final File directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final CRC32 crc = new CRC32();
+    private ByteBuffer encodeBuffer = ByteBuffer.allocate(4096);
+    private byte[] readBuffer = new byte[4096];
+
+    private long[] sequences;
+    private long sequence;
+    private RandomAccessFile file;
+    private MappedByteBuffer segment;
+
+    /**
+     * Opens the journal in {@code journal} of the app files directory with the
+     * default segment size and disk budget.
+     */
+    public SnapshotJournal(Context context) throws IOException {
+        this(new File(context.getFilesDir(), "journal"), DEFAULT_SEGMENT_SIZE, DEFAULT_DISK_BUDGET);
+    }
+
+    /**
+     * @param segmentSize size of a segment file in bytes, also bounds the size
+     *                    of a record
+     * @param diskBudget  bytes the segments may take, at least two segments are
+     *                    kept
+     */
+    public SnapshotJournal(File directory, int segmentSize, long diskBudget) throws IOException {
+        if (segmentSize <= SEGMENT_HEADER_SIZE + RECORD_HEADER_SIZE) {
+            throw new IllegalArgumentException("Segment size " + segmentSize + " too small");
+        }
+
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        maxSegments = (int) Math.max(2, diskBudget / segmentSize);
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+
+        sequences = listSegments(directory);
+        if (sequences.length == 0 || !recover(sequences[sequences.length - 1])) {
+            roll();
+        }
+    }
+
+    /**
+     * Encodes a snapshot with the {@link DeviceSnapshotCodec} and appends it.
+     */
+    public synchronized void append(DeviceSnapshot snapshot) throws IOException {
+        while (true) {
+            encodeBuffer.clear();
+            try {
+                DeviceSnapshotCodec.encode(snapshot, encodeBuffer);
+                break;
+            } catch (BufferOverflowException e) {
+                encodeBuffer = ByteBuffer.allocate(encodeBuffer.capacity() * 2);
+            }
+        }
+
+        append(encodeBuffer.array(), 0, encodeBuffer.position());
+    }
+
+    /**
+     * Appends a record, rolling over to a new segment if it does not fit the
+     * current one.
+     *
+     * @throws IllegalArgumentException if the record is larger than a segment
+     */
+    public synchronized void append(byte[] data, int offset, int length) throws IOException {
+        if (null == segment) throw new IOException("Journal closed");
+        if (length > segmentSize - SEGMENT_HEADER_SIZE - RECORD_HEADER_SIZE) {
+            throw new IllegalArgumentException("Record of " + length + " bytes exceeds the segment");
+        }
+        if (length == 0) return;
+
+        if (segment.remaining() < RECORD_HEADER_SIZE + length) roll();
+
+        crc.reset();
+        crc.update(data, offset, length);
+
+        // the length goes last, a record torn before it reads as the end
+        int position = segment.position();
+        segment.position(position + RECORD_HEADER_SIZE);
+        segment.put(data, offset, length);
+        segment.putInt(position + 4, (int) crc.getValue());
+        segment.putInt(position, length);
+    }
+
+    /**
+     * Forces the current segment to disk.
+     */
+    public synchronized void flush() {
+        if (null != segment) segment.force();
+    }
+
+    /**
+     * Reads all records, oldest first. Works after {@link #close()} as well.
+     */
+    public synchronized void read(RecordHandler handler) throws IOException {
+        for (long s : sequences) {
+            boolean live = s == sequence && null != segment;
+            MappedByteBuffer buffer = live ? segment : null;
+            RandomAccessFile in = null;
+
+            try {
+                if (null == buffer) {
+                    in = new RandomAccessFile(fileOf(s), "r");
+                    buffer = in.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, in.length());
+                }
+
+                ByteBuffer records = buffer.duplicate();
+                records.position(0);
+                if (live) records.limit(segment.position());
+                if (records.remaining() < SEGMENT_HEADER_SIZE || records.getInt() != MAGIC) continue;
+                records.position(SEGMENT_HEADER_SIZE);
+
+                for (int length = nextRecord(records); length > 0; length = nextRecord(records)) {
+                    ByteBuffer record = records.slice();
+                    record.limit(length);
+                    handler.onRecord(record.asReadOnlyBuffer());
+                    records.position(records.position() + length);
+                }
+            } finally {
+                if (null != in) in.close();
+            }
+        }
+    }
+
+    /**
+     * @return the total size of the segments in bytes
+     */
+    public synchronized long getDiskUsage() {
+        return (long) sequences.length * segmentSize;
+    }
+
+    /**
+     * Forces the current segment to disk and closes the journal.
+     */
+    public synchronized void close() throws IOException {
+        if (null == segment) return;
+
+        segment.force();
+        segment = null;
+        file.close();
+        file = null;
+    }
+
+    /**
+     * Checks the record at the position of given buffer and moves past its
+     * header.
+     *
+     * @return the length of the record, 0 at the end or at an invalid record
+     */
+    private int nextRecord(ByteBuffer records) {
+        int position = records.position();
+        if (records.remaining() < RECORD_HEADER_SIZE) return 0;
+
+        int length = records.getInt(position);
+        if (length <= 0 || length > records.remaining() - RECORD_HEADER_SIZE) return 0;
+
+        if (readBuffer.length < length) readBuffer = new byte[Math.max(length, readBuffer.length * 2)];
+        records.position(position + RECORD_HEADER_SIZE);
+        records.get(readBuffer, 0, length);
+        crc.reset();
+        crc.update(readBuffer, 0, length);
+
+        if ((int) crc.getValue() != records.getInt(position + 4)) {
+            records.position(position);
+            return 0;
+        }
+
+        records.position(position + RECORD_HEADER_SIZE);
+        return length;
+    }
+
+    /**
+     * Maps the last segment and moves behind its last valid record.
+     *
+     * @return whether the segment is usable
+     */
+    private boolean recover(long s) throws IOException {
+        RandomAccessFile segmentFile = new RandomAccessFile(fileOf(s), "rw");
+        boolean usable = false;
+
+        try {
+            if (segmentFile.length() != segmentSize) return false;
+
+            MappedByteBuffer buffer = segmentFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+            if (buffer.getInt(0) != MAGIC) return false;
+
+            buffer.position(SEGMENT_HEADER_SIZE);
+            for (int length = nextRecord(buffer); length > 0; length = nextRecord(buffer)) {
+                buffer.position(buffer.position() + length);
+            }
+
+            file = segmentFile;
+            segment = buffer;
+            sequence = s;
+            usable = true;
+
+            return true;
+        } finally {
+            if (!usable) segmentFile.close();
+        }
+    }
+
+    /**
+     * Finishes the current segment, starts a new one and deletes the oldest
+     * segments beyond the budget.
+     */
+    private void roll() throws IOException {
+        long next = sequences.length > 0 ? sequences[sequences.length - 1] + 1 : 1;
+
+        if (null != segment) {
+            segment.force();
+            file.close();
+        }
+
+        file = new RandomAccessFile(fileOf(next), "rw");
+        file.setLength(segmentSize);
+        segment = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        segment.putInt(0, MAGIC);
+        segment.position(SEGMENT_HEADER_SIZE);
+        sequence = next;
+
+        int drop = Math.max(0, sequences.length + 1 - maxSegments);
+        for (int i = 0; i < drop; i++) {
+            if (!fileOf(sequences[i]).delete()) drop = i;
+        }
+
+        long[] kept = new long[sequences.length - drop + 1];
+        System.arraycopy(sequences, drop, kept, 0, sequences.length - drop);
+        kept[kept.length - 1] = next;
+        sequences = kept;
+    }
+
+    private File fileOf(long s) {
+        return new File(directory, s + SUFFIX);
+    }
+
+    private static long[] listSegments(File directory) {
+        String[] names = directory.list();
+        long[] sequences = new long[null != names ? names.length : 0];
+        int count = 0;
+
+        for (int i = 0; i < sequences.length; i++) {
+            if (!names[i].endsWith(SUFFIX)) continue;
+
+            try {
+                sequences[count] = Long.parseLong(names[i].substring(0, names[i].length() - SUFFIX.length()));
+                count++;
+            } catch (NumberFormatException e) {
+                // not a segment
+            }
+        }
+
+        long[] result = new long[count];
+        System.arraycopy(sequences, 0, result, 0, count);
+        Arrays.sort(result);
+
+        return result;
+    }
+}
@@ -0,0 +1,31 @@
+package de.thepivi.android.dic;
+
+import java.io.IOException;
+
+/**
+ * Sink for the fields of a snapshot section. Sections write their fields in a
+ * fixed order, see {@link SnapshotInput} for the reading side.
+ */
+public interface SnapshotOutput {
+
+    /**
+     * @return the schema version to write, sections leave out the fields it
+     * does not have.
+     */
+    int getVersion();
+
+    void writeBoolean(boolean value) throws IOException;
+
+    void writeInt(int value) throws IOException;
+
+    void writeLong(long value) throws IOException;
+
+    void writeFloat(float value) throws IOException;
+
+    void writeDouble(double value) throws IOException;
+
+    /**
+     * @param value may be {@code null}
+     */
+    void writeString(String value) throws IOException;
+}
@@ -0,0 +1,271 @@
+package de.thepivi.android.dic;
+
+import android.util.Log;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Uploads the batches of a {@link CollectionScheduler} to an HTTP endpoint.
+ * <p/>
+ * A request body is the batch as consecutive {@link DeviceSnapshotCodec}
+ * messages, deflated in zlib format with the preset {@link #DICTIONARY}. The
+ * body is encoded and compressed while it is streamed in chunks, it is never
+ * held in memory as a whole. Requests split a batch after
+ * {@link #DEFAULT_MAX_SNAPSHOTS} snapshots.
+ * <p/>
+ * Failed requests are retried with exponential backoff and jitter, on network
+ * errors, 429 and 5xx responses. Other responses drop the batch. At most
+ * {@link #MAX_PENDING_BATCHES} batches wait for upload, later ones are
+ * dropped.
+ */
+public class SnapshotUploader implements CollectionScheduler.Sink {
+
+    public static final String CONTENT_TYPE = "application/x-dic-snapshots";
+    /**
+     * Tells the version of the dictionary, the zlib stream carries its
+     * Adler-32 as well.
+     */
+    public static final String HEADER_DICTIONARY = "X-Dic-Dictionary";
+    public static final int DICTIONARY_VERSION = 1;
+
+    /**
+     * Preset dictionary of the compression. The codec references the preset
+     * strings by index already, so the dictionary holds strings which the
+     * snapshots carry verbatim: sensor names and vendors, input methods,
+     * build tags. The most frequent come last. Only change together with
+     * {@link #DICTIONARY_VERSION}.
+     */
+    public static final byte[] DICTIONARY = dictionary(
+            "Gyroscope Uncalibrated", "Magnetic Field Uncalibrated", "Game Rotation Vector",
+            "Geomagnetic Rotation Vector", "Significant Motion", "Step Detector", "Step Counter",
+            "Tilt Detector", "Wake Up", "Non-wakeup", "Ambient Temperature", "Relative Humidity",
+            "Pressure Sensor", "Barometer", "Proximity Sensor", "Light Sensor", "Orientation Sensor",
+            "Rotation Vector Sensor", "Gravity Sensor", "Linear Acceleration Sensor",
+            "Bosch", "BMP280", "BMI160", "STMicroelectronics", "LSM6DS3", "Sensirion", "AMS", "TMD2772",
+            "Avago Technologies", "Yamaha", "YAS537", "Asahi Kasei", "AK09911", "AKM", "AK8963",
+            "Qualcomm", "InvenSense", "MPU6515", "MPU6500",
+            "com.google.android.inputmethod.latin/com.android.inputmethod.latin.LatinIME",
+            "com.android.inputmethod.latin/.LatinIME", "com.sec.android.inputmethod/.SamsungKeypad",
+            "dev-keys", "test-keys", "release-keys", "userdebug", "user", "unknown",
+            "Accelerometer", "Magnetometer", "Gyroscope", "Sensor");
+
+    public static final int DEFAULT_MAX_SNAPSHOTS = 64;
+    public static final long DEFAULT_BASE_DELAY = 1000;
+    public static final long DEFAULT_MAX_DELAY = 5 * 60 * 1000;
+    public static final int DEFAULT_MAX_ATTEMPTS = 8;
+    public static final int MAX_PENDING_BATCHES = 16;
+
+    private static final String TAG = SnapshotUploader.class.getSimpleName();
+    private static final int CONNECT_TIMEOUT = 15000;
+    private static final int READ_TIMEOUT = 30000;
+
+    private final URL endpoint;
+    private final long baseDelay;
+    private final long maxDelay;
+    private final int maxAttempts;
+    private final int maxSnapshots;
+    private final ScheduledExecutorService executor;
+    private final Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+    private final Random random = new Random();
+    private final AtomicInteger pending = new AtomicInteger();
+
+    public SnapshotUploader(URL endpoint) {
+        this(endpoint, DEFAULT_MAX_SNAPSHOTS, DEFAULT_BASE_DELAY, DEFAULT_MAX_DELAY, DEFAULT_MAX_ATTEMPTS);
+    }
+
+    /**
+     * @param maxSnapshots snapshots per request
+     * @param baseDelay    delay in milliseconds before the first retry, doubled
+     *                     for every further one
+     * @param maxDelay     longest delay between retries in milliseconds
+     * @param maxAttempts  attempts per request before it is dropped
+     */
+    public SnapshotUploader(URL endpoint, int maxSnapshots, long baseDelay, long maxDelay, int maxAttempts) {
+        this.endpoint = endpoint;
+        this.maxSnapshots = maxSnapshots;
+        this.baseDelay = baseDelay;
+        this.maxDelay = maxDelay;
+        this.maxAttempts = maxAttempts;
+        executor = new ScheduledThreadPoolExecutor(1,
+                new DeviceSnapshotCollector.CollectorThreadFactory("dic-upload-")) {
+            @Override
+            protected void terminated() {
+                // after the last upload, which may still be running when shut down
+                deflater.end();
+            }
+        };
+    }
+
+    /**
+     * Queues a batch for upload, returns right away.
+     */
+    @Override
+    public void onBatch(List<DeviceSnapshot> snapshots) {
+        for (int from = 0; from < snapshots.size(); from += maxSnapshots) {
+            if (pending.incrementAndGet() > MAX_PENDING_BATCHES) {
+                pending.decrementAndGet();
+                Log.w(TAG, "Upload queue full, dropped " + (snapshots.size() - from) + " snapshots");
+                return;
+            }
+
+            try {
+                executor.execute(new Upload(snapshots.subList(from, Math.min(snapshots.size(), from + maxSnapshots))));
+            } catch (RejectedExecutionException e) {
+                pending.decrementAndGet();
+                Log.w(TAG, "Uploader shut down, dropped " + (snapshots.size() - from) + " snapshots");
+                return;
+            }
+        }
+    }
+
+    /**
+     * Stops the upload thread and releases the compressor, pending and later
+     * uploads are dropped.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return the number of requests waiting for upload or retry
+     */
+    public int getPendingCount() {
+        return pending.get();
+    }
+
+    /**
+     * Sends one request.
+     *
+     * @return the HTTP status code
+     */
+    int post(List<DeviceSnapshot> snapshots) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) endpoint.openConnection();
+
+        try {
+            connection.setConnectTimeout(CONNECT_TIMEOUT);
+            connection.setReadTimeout(READ_TIMEOUT);
+            connection.setDoOutput(true);
+            connection.setChunkedStreamingMode(0);
+            connection.setRequestMethod("POST");
+            connection.setRequestProperty("Content-Type", CONTENT_TYPE);
+            connection.setRequestProperty(HEADER_DICTIONARY, String.valueOf(DICTIONARY_VERSION));
+
+            deflater.reset();
+            deflater.setDictionary(DICTIONARY);
+            OutputStream out = new BufferedOutputStream(
+                    new DeflaterOutputStream(connection.getOutputStream(), deflater, 4096), 4096);
+            try {
+                for (int i = 0; i < snapshots.size(); i++) {
+                    DeviceSnapshotCodec.encode(snapshots.get(i), out);
+                }
+            } finally {
+                out.close();
+            }
+
+            int status = connection.getResponseCode();
+
+            // drain the response so the connection can be reused
+            InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+            if (null != in) {
+                byte[] buffer = new byte[256];
+                while (in.read(buffer) >= 0) {
+                    // discard
+                }
+                in.close();
+            }
+
+            return status;
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * @return the delay in milliseconds before given retry, counted from 1,
+     * with a jitter of up to half of it
+     */
+    long delayFor(int retry) {
+        long delay = baseDelay << Math.min(retry - 1, 30);
+        if (delay <= 0 || delay > maxDelay) delay = maxDelay;
+
+        return delay / 2 + (long) (random.nextDouble() * (delay / 2 + 1));
+    }
+
+    private static byte[] dictionary(String... words) {
+        StringBuilder sb = new StringBuilder();
+
+        for (String word : words) {
+            sb.append(word).append('\0');
+        }
+
+        try {
+            return sb.toString().getBytes("UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static boolean isRetryable(int status) {
+        return status == 429 || status >= 500;
+    }
+
+    private class Upload implements Runnable {
+
+        private final List<DeviceSnapshot> snapshots;
+        private int attempt;
+
+        Upload(List<DeviceSnapshot> snapshots) {
+            this.snapshots = snapshots;
+        }
+
+        @Override
+        public void run() {
+            attempt++;
+            boolean rescheduled = false;
+
+            try {
+                boolean retry;
+
+                try {
+                    int status = post(snapshots);
+
+                    retry = isRetryable(status);
+                    if (status >= 300 && !retry) {
+                        Log.w(TAG, "Upload of " + snapshots.size() + " snapshots rejected with " + status);
+                    }
+                } catch (IOException e) {
+                    Log.w(TAG, "Upload attempt " + attempt + " failed", e);
+                    retry = true;
+                }
+
+                if (retry && attempt < maxAttempts) {
+                    executor.schedule(this, delayFor(attempt), TimeUnit.MILLISECONDS);
+                    rescheduled = true;
+                } else if (retry) {
+                    Log.w(TAG, "Dropped " + snapshots.size() + " snapshots after " + attempt + " attempts");
+                }
+            } catch (RejectedExecutionException e) {
+                // shut down
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Dropped " + snapshots.size() + " snapshots", e);
+            } finally {
+                if (!rescheduled) pending.decrementAndGet();
+            }
+        }
+    }
+}
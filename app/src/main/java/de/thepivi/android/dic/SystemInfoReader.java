@@ -0,0 +1,387 @@
+package de.thepivi.android.dic;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Reads the CPU, memory and thermal state from {@code /proc} and {@code /sys}
+ * into a {@link SystemInfoSnapshot}.
+ * <p/>
+ * The cores and thermal zones are discovered once, their files stay open and
+ * are re-read from position 0 into a single direct buffer, which a small
+ * tokenizer parses in place. Reading into a snapshot of matching size does
+ * not allocate, so it can poll every second. The CPU hardware and the zone
+ * types do not change and are read once.
+ */
+public class SystemInfoReader {
+
+    public static final int BUFFER_SIZE = 32 * 1024;
+
+    /**
+     * A missing file, e.g. the frequencies of an offline core, is looked for
+     * again every that many reads.
+     */
+    static final int MISSING_RETRY_READS = 16;
+
+    private static final byte[] MEM_TOTAL = ascii("MemTotal:");
+    private static final byte[] MEM_FREE = ascii("MemFree:");
+    private static final byte[] MEM_AVAILABLE = ascii("MemAvailable:");
+    private static final byte[] CACHED = ascii("Cached:");
+    private static final byte[] HARDWARE = ascii("Hardware");
+    private static final byte[] MODEL_NAME = ascii("model name");
+
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final Source meminfo;
+    private final Source online;
+    private final Source[] curFreq;
+    private final Source[] minFreq;
+    private final Source[] maxFreq;
+    private final Source[] thermalTemp;
+    private final String cpuHardware;
+    private final String[] thermalType;
+
+    public SystemInfoReader() {
+        this(new File("/proc"), new File("/sys"));
+    }
+
+    /**
+     * @param proc root of the proc file system, e.g. a fixture tree in tests
+     * @param sys  root of the sys file system
+     */
+    public SystemInfoReader(File proc, File sys) {
+        meminfo = new Source(new File(proc, "meminfo"));
+
+        File cpuDirectory = new File(sys, "devices/system/cpu");
+        online = new Source(new File(cpuDirectory, "online"));
+        int cpuCount = maxIndex(cpuDirectory, "cpu") + 1;
+        curFreq = new Source[cpuCount];
+        minFreq = new Source[cpuCount];
+        maxFreq = new Source[cpuCount];
+        for (int cpu = 0; cpu < cpuCount; cpu++) {
+            File cpufreq = new File(cpuDirectory, "cpu" + cpu + "/cpufreq");
+            curFreq[cpu] = new Source(new File(cpufreq, "scaling_cur_freq"));
+            minFreq[cpu] = new Source(new File(cpufreq, "cpuinfo_min_freq"));
+            maxFreq[cpu] = new Source(new File(cpufreq, "cpuinfo_max_freq"));
+        }
+
+        File thermalDirectory = new File(sys, "class/thermal");
+        int zoneCount = maxIndex(thermalDirectory, "thermal_zone") + 1;
+        thermalTemp = new Source[zoneCount];
+        thermalType = new String[zoneCount];
+        for (int zone = 0; zone < zoneCount; zone++) {
+            File zoneDirectory = new File(thermalDirectory, "thermal_zone" + zone);
+            thermalTemp[zone] = new Source(new File(zoneDirectory, "temp"));
+
+            Source type = new Source(new File(zoneDirectory, "type"));
+            int length = type.read(buffer);
+            thermalType[zone] = length > 0 ? string(buffer, 0, lineEnd(buffer, 0, length)) : null;
+            type.close();
+        }
+
+        Source cpuinfo = new Source(new File(proc, "cpuinfo"));
+        int length = cpuinfo.read(buffer);
+        String hardware = value(buffer, length, HARDWARE);
+        cpuHardware = null != hardware ? hardware : value(buffer, length, MODEL_NAME);
+        cpuinfo.close();
+    }
+
+    /**
+     * @return a new snapshot of the current state
+     */
+    public SystemInfoSnapshot read() {
+        SystemInfoSnapshot snapshot = new SystemInfoSnapshot();
+
+        read(snapshot);
+
+        return snapshot;
+    }
+
+    /**
+     * Reads the current state into given snapshot, its arrays are only
+     * replaced if their size, or for the zone types their content, does not
+     * match.
+     */
+    public synchronized void read(SystemInfoSnapshot snapshot) {
+        int cpuCount = curFreq.length;
+        if (snapshot.cpuCurFreq.length != cpuCount) {
+            snapshot.cpuCurFreq = new int[cpuCount];
+            snapshot.cpuMinFreq = new int[cpuCount];
+            snapshot.cpuMaxFreq = new int[cpuCount];
+        }
+        if (snapshot.thermalTemp.length != thermalTemp.length) {
+            snapshot.thermalTemp = new int[thermalTemp.length];
+        }
+        if (!Arrays.equals(snapshot.thermalType, thermalType)) {
+            snapshot.thermalType = thermalType.clone();
+        }
+        snapshot.cpuHardware = cpuHardware;
+
+        int length = online.read(buffer);
+        snapshot.cpuOnline = length > 0 ? parseCpuList(buffer, length) : 0;
+
+        for (int cpu = 0; cpu < cpuCount; cpu++) {
+            snapshot.cpuCurFreq[cpu] = (int) readLong(curFreq[cpu], -1);
+            snapshot.cpuMinFreq[cpu] = (int) readLong(minFreq[cpu], -1);
+            snapshot.cpuMaxFreq[cpu] = (int) readLong(maxFreq[cpu], -1);
+        }
+
+        length = meminfo.read(buffer);
+        snapshot.memTotal = lineValue(buffer, length, MEM_TOTAL);
+        snapshot.memFree = lineValue(buffer, length, MEM_FREE);
+        snapshot.memAvailable = lineValue(buffer, length, MEM_AVAILABLE);
+        snapshot.memCached = lineValue(buffer, length, CACHED);
+
+        for (int zone = 0; zone < thermalTemp.length; zone++) {
+            snapshot.thermalTemp[zone] = (int) readLong(thermalTemp[zone], Integer.MIN_VALUE);
+        }
+    }
+
+    /**
+     * Closes all files.
+     */
+    public synchronized void close() {
+        meminfo.close();
+        online.close();
+        for (int cpu = 0; cpu < curFreq.length; cpu++) {
+            curFreq[cpu].close();
+            minFreq[cpu].close();
+            maxFreq[cpu].close();
+        }
+        for (Source source : thermalTemp) {
+            source.close();
+        }
+    }
+
+    private long readLong(Source source, long unknown) {
+        int length = source.read(buffer);
+        if (length <= 0) return unknown;
+
+        long value = parseLong(buffer, 0, length);
+
+        return value != Long.MIN_VALUE ? value : unknown;
+    }
+
+    /**
+     * @return the number at the start of the line which starts with
+     * {@code key}, -1 if there is none
+     */
+    static long lineValue(ByteBuffer buffer, int length, byte[] key) {
+        int start = lineStart(buffer, length, key);
+        if (start < 0) return -1;
+
+        long value = parseLong(buffer, start + key.length, lineEnd(buffer, start, length));
+
+        return value != Long.MIN_VALUE ? value : -1;
+    }
+
+    /**
+     * @return the text after the colon of the line which starts with
+     * {@code key}, {@code null} if there is none
+     */
+    static String value(ByteBuffer buffer, int length, byte[] key) {
+        int start = lineStart(buffer, length, key);
+        if (start < 0) return null;
+
+        int end = lineEnd(buffer, start, length);
+        int position = start + key.length;
+        while (position < end && buffer.get(position) != ':') position++;
+        position++;
+        while (position < end && isSpace(buffer.get(position))) position++;
+
+        return position < end ? string(buffer, position, end) : null;
+    }
+
+    /**
+     * @return the first decimal number between {@code from} and {@code to},
+     * {@link Long#MIN_VALUE} if there is none
+     */
+    static long parseLong(ByteBuffer buffer, int from, int to) {
+        int position = from;
+        while (position < to && isSpace(buffer.get(position))) position++;
+
+        boolean negative = position < to && buffer.get(position) == '-';
+        if (negative) position++;
+
+        int start = position;
+        long value = 0;
+        while (position < to) {
+            int digit = buffer.get(position) - '0';
+            if (digit < 0 || digit > 9) break;
+            value = value * 10 + digit;
+            position++;
+        }
+
+        if (position == start) return Long.MIN_VALUE;
+
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parses a CPU list like {@code 0-3,6}.
+     *
+     * @return bit {@code 1 << cpu} set for every listed core below 64
+     */
+    static long parseCpuList(ByteBuffer buffer, int length) {
+        long mask = 0;
+        int position = 0;
+
+        while (position < length) {
+            int first = 0;
+            int start = position;
+            while (position < length && isDigit(buffer.get(position))) {
+                first = first * 10 + buffer.get(position++) - '0';
+            }
+            if (position == start) break;
+
+            int last = first;
+            if (position < length && buffer.get(position) == '-') {
+                position++;
+                last = 0;
+                while (position < length && isDigit(buffer.get(position))) {
+                    last = last * 10 + buffer.get(position++) - '0';
+                }
+            }
+
+            for (int cpu = first; cpu <= last && cpu < 64; cpu++) {
+                mask |= 1L << cpu;
+            }
+
+            if (position < length && buffer.get(position) == ',') {
+                position++;
+            } else {
+                break;
+            }
+        }
+
+        return mask;
+    }
+
+    private static int lineStart(ByteBuffer buffer, int length, byte[] key) {
+        for (int start = 0; start + key.length <= length; ) {
+            int i = 0;
+            while (i < key.length && buffer.get(start + i) == key[i]) i++;
+            if (i == key.length) return start;
+
+            start = lineEnd(buffer, start, length) + 1;
+        }
+
+        return -1;
+    }
+
+    private static int lineEnd(ByteBuffer buffer, int from, int length) {
+        int position = from;
+        while (position < length && buffer.get(position) != '\n') position++;
+
+        return position;
+    }
+
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t';
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static String string(ByteBuffer buffer, int from, int to) {
+        char[] chars = new char[to - from];
+
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) (buffer.get(from + i) & 0xff);
+        }
+
+        return new String(chars).trim();
+    }
+
+    private static byte[] ascii(String value) {
+        byte[] bytes = new byte[value.length()];
+
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) value.charAt(i);
+        }
+
+        return bytes;
+    }
+
+    /**
+     * @return the highest n of the entries named {@code prefix} followed by n,
+     * -1 if there is none
+     */
+    private static int maxIndex(File directory, String prefix) {
+        String[] names = directory.list();
+        if (null == names) return -1;
+
+        Arrays.sort(names);
+        int max = -1;
+        for (String name : names) {
+            if (!name.startsWith(prefix) || name.length() == prefix.length()) continue;
+
+            int index = 0;
+            for (int i = prefix.length(); i < name.length() && index >= 0; i++) {
+                char c = name.charAt(i);
+                index = c >= '0' && c <= '9' ? index * 10 + c - '0' : -1;
+            }
+            max = Math.max(max, index);
+        }
+
+        return max;
+    }
+
+    /**
+     * A file which stays open and is read from position 0 each time.
+     */
+    static class Source {
+
+        private final File file;
+        private FileChannel channel;
+        private int misses;
+
+        Source(File file) {
+            this.file = file;
+        }
+
+        /**
+         * Reads the file into the buffer from its start.
+         *
+         * @return the number of bytes read, -1 if the file cannot be read
+         */
+        int read(ByteBuffer buffer) {
+            buffer.clear();
+
+            try {
+                if (null == channel) {
+                    if (misses++ % MISSING_RETRY_READS != 0 || !file.exists()) return -1;
+                    channel = new FileInputStream(file).getChannel();
+                    misses = 0;
+                }
+
+                long position = 0;
+                while (buffer.hasRemaining()) {
+                    int count = channel.read(buffer, position);
+                    if (count <= 0) break;
+                    position += count;
+                }
+
+                return buffer.position();
+            } catch (IOException e) {
+                close();
+                return -1;
+            }
+        }
+
+        void close() {
+            if (null == channel) return;
+
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // ignore
+            }
+            channel = null;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package de.thepivi.android.dic;
+
+import java.io.IOException;
+
+/**
+ * Snapshot of the CPU, memory and thermal state read from {@code /proc} and
+ * {@code /sys} by {@link SystemInfoReader}. Unknown values are -1, unknown
+ * temperatures {@link Integer#MIN_VALUE}.
+ */
+public class SystemInfoSnapshot {
+
+    public String cpuHardware;
+
+    /**
+     * Bit {@code 1 << cpu} is set for every online core.
+     */
+    public long cpuOnline;
+
+    /**
+     * Frequencies in kHz, indexed by core.
+     */
+    public int[] cpuCurFreq = new int[0];
+    public int[] cpuMinFreq = new int[0];
+    public int[] cpuMaxFreq = new int[0];
+
+    /**
+     * Memory in kB.
+     */
+    public long memTotal = -1;
+    public long memFree = -1;
+    public long memAvailable = -1;
+    public long memCached = -1;
+
+    public String[] thermalType = new String[0];
+    /**
+     * Temperatures in millidegree Celsius, indexed like {@link #thermalType}.
+     */
+    public int[] thermalTemp = new int[0];
+
+    public int getCpuCount() {
+        return cpuCurFreq.length;
+    }
+
+    public boolean isCpuOnline(int cpu) {
+        return cpu < 64 && (cpuOnline & (1L << cpu)) != 0;
+    }
+
+    public void writeTo(SnapshotOutput out) throws IOException {
+        out.writeString(cpuHardware);
+        out.writeLong(cpuOnline);
+        out.writeInt(cpuCurFreq.length);
+        for (int i = 0; i < cpuCurFreq.length; i++) {
+            out.writeInt(cpuCurFreq[i]);
+            out.writeInt(cpuMinFreq[i]);
+            out.writeInt(cpuMaxFreq[i]);
+        }
+        out.writeLong(memTotal);
+        out.writeLong(memFree);
+        out.writeLong(memAvailable);
+        out.writeLong(memCached);
+        out.writeInt(thermalType.length);
+        for (int i = 0; i < thermalType.length; i++) {
+            out.writeString(thermalType[i]);
+            out.writeInt(thermalTemp[i]);
+        }
+    }
+
+    public void readFrom(SnapshotInput in) throws IOException {
+        cpuHardware = in.readString();
+        cpuOnline = in.readLong();
+        int count = in.readInt();
+        cpuCurFreq = new int[count];
+        cpuMinFreq = new int[count];
+        cpuMaxFreq = new int[count];
+        for (int i = 0; i < count; i++) {
+            cpuCurFreq[i] = in.readInt();
+            cpuMinFreq[i] = in.readInt();
+            cpuMaxFreq[i] = in.readInt();
+        }
+        memTotal = in.readLong();
+        memFree = in.readLong();
+        memAvailable = in.readLong();
+        memCached = in.readLong();
+        count = in.readInt();
+        thermalType = new String[count];
+        thermalTemp = new int[count];
+        for (int i = 0; i < count; i++) {
+            thermalType[i] = in.readString();
+            thermalTemp[i] = in.readInt();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package de.thepivi.android.dic;
+
+import java.io.IOException;
+
+/**
+ * Typed snapshot of the {@link android.telephony.TelephonyManager} state. Int
+ * fields hold the raw TelephonyManager constants.
+ */
+public class TelephonySnapshot {
+
+    public static final int CELL_LOCATION_NONE = 0;
+    public static final int CELL_LOCATION_GSM = 1;
+    public static final int CELL_LOCATION_CDMA = 2;
+
+    public int callState;
+
+    public int cellLocationType = CELL_LOCATION_NONE;
+    public int gsmLac = -1;
+    public int gsmCid = -1;
+    public int gsmPsc = -1;
+    public int cdmaBaseStationId = -1;
+    public int cdmaBaseStationLatitude = Integer.MAX_VALUE;
+    public int cdmaBaseStationLongitude = Integer.MAX_VALUE;
+    public int cdmaSystemId = -1;
+    public int cdmaNetworkId = -1;
+
+    public int dataActivity;
+    public int dataState;
+    public String deviceId;
+    public String line1Number;
+
+    /**
+     * Neighboring cells, all arrays have the same length.
+     */
+    public int[] neighboringCellCid = new int[0];
+    public int[] neighboringCellLac = new int[0];
+    public int[] neighboringCellPsc = new int[0];
+    public int[] neighboringCellRssi = new int[0];
+    public int[] neighboringCellNetworkType = new int[0];
+
+    public String networkCountryIso;
+    public String networkOperator;
+    public String networkOperatorName;
+    public int networkType;
+    public int phoneType;
+    public String simCountryIso;
+    public String simOperator;
+    public String simOperatorName;
+    public String simSerialNumber;
+    public int simState;
+    public String softwareVersion;
+    public String subscriberId;
+    public String voiceMailAlphaTag;
+    public String voiceMailNumber;
+
+    public void writeTo(SnapshotOutput out) throws IOException {
+        out.writeInt(callState);
+        out.writeInt(cellLocationType);
+        out.writeInt(gsmLac);
+        out.writeInt(gsmCid);
+        out.writeInt(gsmPsc);
+        out.writeInt(cdmaBaseStationId);
+        out.writeInt(cdmaBaseStationLatitude);
+        out.writeInt(cdmaBaseStationLongitude);
+        out.writeInt(cdmaSystemId);
+        out.writeInt(cdmaNetworkId);
+        out.writeInt(dataActivity);
+        out.writeInt(dataState);
+        out.writeString(deviceId);
+        out.writeString(line1Number);
+        out.writeInt(neighboringCellRssi.length);
+        for (int i = 0; i < neighboringCellRssi.length; i++) {
+            out.writeInt(neighboringCellCid[i]);
+            out.writeInt(neighboringCellLac[i]);
+            out.writeInt(neighboringCellPsc[i]);
+            out.writeInt(neighboringCellRssi[i]);
+            out.writeInt(neighboringCellNetworkType[i]);
+        }
+        out.writeString(networkCountryIso);
+        out.writeString(networkOperator);
+        out.writeString(networkOperatorName);
+        out.writeInt(networkType);
+        out.writeInt(phoneType);
+        out.writeString(simCountryIso);
+        out.writeString(simOperator);
+        out.writeString(simOperatorName);
+        out.writeString(simSerialNumber);
+        out.writeInt(simState);
+        out.writeString(softwareVersion);
+        out.writeString(subscriberId);
+        out.writeString(voiceMailAlphaTag);
+        out.writeString(voiceMailNumber);
+    }
+
+    public void readFrom(SnapshotInput in) throws IOException {
+        callState = in.readInt();
+        cellLocationType = in.readInt();
+        gsmLac = in.readInt();
+        gsmCid = in.readInt();
+        gsmPsc = in.readInt();
+        cdmaBaseStationId = in.readInt();
+        cdmaBaseStationLatitude = in.readInt();
+        cdmaBaseStationLongitude = in.readInt();
+        cdmaSystemId = in.readInt();
+        cdmaNetworkId = in.readInt();
+        dataActivity = in.readInt();
+        dataState = in.readInt();
+        deviceId = in.readString();
+        line1Number = in.readString();
+        int count = in.readInt();
+        neighboringCellCid = new int[count];
+        neighboringCellLac = new int[count];
+        neighboringCellPsc = new int[count];
+        neighboringCellRssi = new int[count];
+        neighboringCellNetworkType = new int[count];
+        for (int i = 0; i < count; i++) {
+            neighboringCellCid[i] = in.readInt();
+            neighboringCellLac[i] = in.readInt();
+            neighboringCellPsc[i] = in.readInt();
+            neighboringCellRssi[i] = in.readInt();
+            neighboringCellNetworkType[i] = in.readInt();
+        }
+        networkCountryIso = in.readString();
+        networkOperator = in.readString();
+        networkOperatorName = in.readString();
+        networkType = in.readInt();
+        phoneType = in.readInt();
+        simCountryIso = in.readString();
+        simOperator = in.readString();
+        simOperatorName = in.readString();
+        simSerialNumber = in.readString();
+        simState = in.readInt();
+        softwareVersion = in.readString();
+        subscriberId = in.readString();
+        voiceMailAlphaTag = in.readString();
+        voiceMailNumber = in.readString();
+    }
+}
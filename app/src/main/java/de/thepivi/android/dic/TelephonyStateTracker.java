@@ -0,0 +1,357 @@
+package de.thepivi.android.dic;
+
+import android.content.Context;
+import android.os.Build;
+import android.os.SystemClock;
+import android.telephony.CellLocation;
+import android.telephony.PhoneStateListener;
+import android.telephony.SignalStrength;
+import android.telephony.TelephonyManager;
+import android.telephony.cdma.CdmaCellLocation;
+import android.telephony.gsm.GsmCellLocation;
+
+/**
+ * Tracks the volatile telephony state through a {@link PhoneStateListener}
+ * instead of polling the {@link TelephonyManager} getters, each of which is a
+ * binder call.
+ * <p/>
+ * The latest values are published as an immutable {@link State}, so reading
+ * them is free from any thread. The last transitions are kept in a bounded
+ * history.
+ */
+public class TelephonyStateTracker {
+
+    public static final int TRANSITION_CALL_STATE = 0;
+    public static final int TRANSITION_DATA_ACTIVITY = 1;
+    public static final int TRANSITION_DATA_STATE = 2;
+    public static final int TRANSITION_NETWORK_TYPE = 3;
+    public static final int TRANSITION_CELL = 4;
+    public static final int TRANSITION_SIGNAL_LEVEL = 5;
+
+    public static final int DEFAULT_HISTORY_CAPACITY = 64;
+
+    /**
+     * Telephony state at one point in time. Published instances are never
+     * modified.
+     */
+    public static class State {
+
+        /**
+         * {@link SystemClock#elapsedRealtime()} of the last change.
+         */
+        public long timestamp;
+
+        public int callState = TelephonyManager.CALL_STATE_IDLE;
+        public int dataActivity = TelephonyManager.DATA_ACTIVITY_NONE;
+        public int dataState = TelephonyManager.DATA_DISCONNECTED;
+        public int networkType = TelephonyManager.NETWORK_TYPE_UNKNOWN;
+
+        public int cellLocationType = TelephonySnapshot.CELL_LOCATION_NONE;
+        public int gsmLac = -1;
+        public int gsmCid = -1;
+        public int gsmPsc = -1;
+        public int cdmaBaseStationId = -1;
+        public int cdmaSystemId = -1;
+        public int cdmaNetworkId = -1;
+
+        /**
+         * Signal level from 0 to 4, -1 if unknown.
+         */
+        public int signalLevel = -1;
+        public int gsmSignalStrength = 99;
+        public int cdmaDbm = -1;
+        public int evdoDbm = -1;
+
+        private State copy() {
+            State state = new State();
+
+            state.timestamp = timestamp;
+            state.callState = callState;
+            state.dataActivity = dataActivity;
+            state.dataState = dataState;
+            state.networkType = networkType;
+            state.cellLocationType = cellLocationType;
+            state.gsmLac = gsmLac;
+            state.gsmCid = gsmCid;
+            state.gsmPsc = gsmPsc;
+            state.cdmaBaseStationId = cdmaBaseStationId;
+            state.cdmaSystemId = cdmaSystemId;
+            state.cdmaNetworkId = cdmaNetworkId;
+            state.signalLevel = signalLevel;
+            state.gsmSignalStrength = gsmSignalStrength;
+            state.cdmaDbm = cdmaDbm;
+            state.evdoDbm = evdoDbm;
+
+            return state;
+        }
+    }
+
+    private final TelephonyManager telephonyManager;
+    private final long[] historyTimestamps;
+    private final int[] historyKinds;
+    private final int[] historyValues;
+    private long transitionCount;
+    private volatile State state = new State();
+    private Listener listener;
+
+    public TelephonyStateTracker(Context context) {
+        this(context, DEFAULT_HISTORY_CAPACITY);
+    }
+
+    /**
+     * @param historyCapacity transitions kept
+     */
+    public TelephonyStateTracker(Context context, int historyCapacity) {
+        telephonyManager = DeviceContextProvider.getTelephonyManager(context);
+        historyTimestamps = new long[historyCapacity];
+        historyKinds = new int[historyCapacity];
+        historyValues = new int[historyCapacity];
+    }
+
+    /**
+     * Subscribes to the telephony state. Must be called on a thread with a
+     * looper, usually the main thread, the changes are delivered on it. The
+     * platform reports the current values right after subscribing.
+     *
+     * @return whether the device has telephony
+     */
+    @SuppressWarnings("deprecation")
+    public synchronized boolean start() {
+        if (null == telephonyManager) return false;
+        if (null != listener) return true;
+
+        int events = PhoneStateListener.LISTEN_CALL_STATE
+                | PhoneStateListener.LISTEN_DATA_ACTIVITY
+                | PhoneStateListener.LISTEN_DATA_CONNECTION_STATE
+                | PhoneStateListener.LISTEN_CELL_LOCATION;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ECLAIR_MR1) {
+            events |= PhoneStateListener.LISTEN_SIGNAL_STRENGTHS;
+        } else {
+            events |= PhoneStateListener.LISTEN_SIGNAL_STRENGTH;
+        }
+
+        listener = new Listener();
+        telephonyManager.listen(listener, events);
+
+        return true;
+    }
+
+    public synchronized void stop() {
+        if (null == listener) return;
+
+        telephonyManager.listen(listener, PhoneStateListener.LISTEN_NONE);
+        listener = null;
+    }
+
+    /**
+     * @return the latest state, must not be modified
+     */
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * @return the number of transitions since creation, including those which
+     * dropped out of the history
+     */
+    public synchronized long getTransitionCount() {
+        return transitionCount;
+    }
+
+    /**
+     * Copies the latest transitions, oldest first, into given arrays. The
+     * {@code TRANSITION_*} kind tells what the value is: the new state or
+     * network type, the cell id or the signal level.
+     *
+     * @return the number of transitions copied
+     */
+    public synchronized int getHistory(long[] timestamps, int[] kinds, int[] values) {
+        int capacity = historyKinds.length;
+        int count = (int) Math.min(Math.min(transitionCount, capacity),
+                Math.min(timestamps.length, Math.min(kinds.length, values.length)));
+
+        for (int i = 0; i < count; i++) {
+            int index = (int) ((transitionCount - count + i) % capacity);
+
+            timestamps[i] = historyTimestamps[index];
+            kinds[i] = historyKinds[index];
+            values[i] = historyValues[index];
+        }
+
+        return count;
+    }
+
+    private synchronized void record(long timestamp, int kind, int value) {
+        int index = (int) (transitionCount % historyKinds.length);
+
+        historyTimestamps[index] = timestamp;
+        historyKinds[index] = kind;
+        historyValues[index] = value;
+        transitionCount++;
+    }
+
+    private void publish(State next, State previous) {
+        long timestamp = next.timestamp;
+
+        if (next.callState != previous.callState) {
+            record(timestamp, TRANSITION_CALL_STATE, next.callState);
+        }
+        if (next.dataActivity != previous.dataActivity) {
+            record(timestamp, TRANSITION_DATA_ACTIVITY, next.dataActivity);
+        }
+        if (next.dataState != previous.dataState) {
+            record(timestamp, TRANSITION_DATA_STATE, next.dataState);
+        }
+        if (next.networkType != previous.networkType) {
+            record(timestamp, TRANSITION_NETWORK_TYPE, next.networkType);
+        }
+        if (next.gsmCid != previous.gsmCid || next.cdmaBaseStationId != previous.cdmaBaseStationId) {
+            record(timestamp, TRANSITION_CELL,
+                    next.cellLocationType == TelephonySnapshot.CELL_LOCATION_CDMA
+                            ? next.cdmaBaseStationId : next.gsmCid);
+        }
+        if (next.signalLevel != previous.signalLevel) {
+            record(timestamp, TRANSITION_SIGNAL_LEVEL, next.signalLevel);
+        }
+
+        state = next;
+    }
+
+    private static void readCellLocation(CellLocation cellLocation, State state) {
+        state.cellLocationType = TelephonySnapshot.CELL_LOCATION_NONE;
+        state.gsmLac = -1;
+        state.gsmCid = -1;
+        state.gsmPsc = -1;
+        state.cdmaBaseStationId = -1;
+        state.cdmaSystemId = -1;
+        state.cdmaNetworkId = -1;
+
+        if (cellLocation instanceof GsmCellLocation) {
+            GsmCellLocation gsm = (GsmCellLocation) cellLocation;
+
+            state.cellLocationType = TelephonySnapshot.CELL_LOCATION_GSM;
+            state.gsmLac = gsm.getLac();
+            state.gsmCid = gsm.getCid();
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.GINGERBREAD) {
+                state.gsmPsc = gsm.getPsc();
+            }
+        } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ECLAIR) {
+            readCdmaCellLocation(cellLocation, state);
+        }
+    }
+
+    private static void readCdmaCellLocation(CellLocation cellLocation, State state) {
+        if (cellLocation instanceof CdmaCellLocation) {
+            CdmaCellLocation cdma = (CdmaCellLocation) cellLocation;
+
+            state.cellLocationType = TelephonySnapshot.CELL_LOCATION_CDMA;
+            state.cdmaBaseStationId = cdma.getBaseStationId();
+            state.cdmaSystemId = cdma.getSystemId();
+            state.cdmaNetworkId = cdma.getNetworkId();
+        }
+    }
+
+    /**
+     * @return the level from 0 to 4 of a GSM signal in asu, -1 if unknown
+     */
+    private static int levelOfAsu(int asu) {
+        if (asu == 99) return -1;
+        if (asu <= 2) return 0;
+        if (asu >= 12) return 4;
+        if (asu >= 8) return 3;
+        if (asu >= 5) return 2;
+        return 1;
+    }
+
+    /**
+     * Receives the changes on the looper {@link #start()} was called on. All
+     * callbacks are on that one thread, so each publishes a changed copy of
+     * the last state.
+     */
+    private class Listener extends PhoneStateListener {
+
+        private State next() {
+            State next = state.copy();
+
+            next.timestamp = SystemClock.elapsedRealtime();
+
+            return next;
+        }
+
+        @Override
+        public void onCallStateChanged(int callState, String incomingNumber) {
+            State previous = state;
+            State next = next();
+
+            next.callState = callState;
+            publish(next, previous);
+        }
+
+        @Override
+        public void onDataActivity(int direction) {
+            State previous = state;
+            State next = next();
+
+            next.dataActivity = direction;
+            publish(next, previous);
+        }
+
+        @Override
+        public void onDataConnectionStateChanged(int dataState) {
+            // since ECLAIR_MR1 this follows the two argument variant
+            if (dataState == state.dataState) return;
+
+            State previous = state;
+            State next = next();
+
+            next.dataState = dataState;
+            publish(next, previous);
+        }
+
+        @Override
+        public void onDataConnectionStateChanged(int dataState, int networkType) {
+            State previous = state;
+            State next = next();
+
+            next.dataState = dataState;
+            next.networkType = networkType;
+            publish(next, previous);
+        }
+
+        @Override
+        public void onCellLocationChanged(CellLocation location) {
+            State previous = state;
+            State next = next();
+
+            readCellLocation(location, next);
+            publish(next, previous);
+        }
+
+        @Override
+        @SuppressWarnings("deprecation")
+        public void onSignalStrengthChanged(int asu) {
+            State previous = state;
+            State next = next();
+
+            next.gsmSignalStrength = asu;
+            next.signalLevel = levelOfAsu(asu);
+            publish(next, previous);
+        }
+
+        @Override
+        public void onSignalStrengthsChanged(SignalStrength signalStrength) {
+            State previous = state;
+            State next = next();
+
+            next.gsmSignalStrength = signalStrength.getGsmSignalStrength();
+            next.cdmaDbm = signalStrength.getCdmaDbm();
+            next.evdoDbm = signalStrength.getEvdoDbm();
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+                next.signalLevel = signalStrength.getLevel();
+            } else if (signalStrength.isGsm()) {
+                next.signalLevel = levelOfAsu(next.gsmSignalStrength);
+            }
+            publish(next, previous);
+        }
+    }
+}
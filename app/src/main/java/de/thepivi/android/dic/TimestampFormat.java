@@ -0,0 +1,169 @@
+package de.thepivi.android.dic;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * Formats timestamps in milliseconds since the epoch straight into a
+ * {@link StringBuilder}, thread-safe.
+ * <p/>
+ * UTC times are computed arithmetically without allocation. Local times read
+ * the fields from a {@link Calendar} kept per thread, in the default time zone
+ * as of the first local format after {@link #resetTimeZone()}. Neither
+ * allocates once the zone is cached.
+ */
+public final class TimestampFormat {
+
+    private static final ThreadLocal<Calendar> CALENDAR = new ThreadLocal<Calendar>() {
+        @Override
+        protected Calendar initialValue() {
+            return Calendar.getInstance();
+        }
+    };
+
+    private static final long MILLIS_PER_DAY = 86400000L;
+
+    /**
+     * The default time zone, {@link TimeZone#getDefault()} returns a copy.
+     */
+    private static volatile TimeZone zone;
+    private static BroadcastReceiver zoneReceiver;
+
+    private TimestampFormat() {
+    }
+
+    /**
+     * Drops the cached default time zone, the next local format reads it again.
+     */
+    public static void resetTimeZone() {
+        zone = null;
+    }
+
+    /**
+     * Resets the cached time zone whenever the time zone of the device changes.
+     */
+    public static synchronized void watchTimeZone(Context context) {
+        if (null != zoneReceiver) return;
+
+        zoneReceiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                resetTimeZone();
+            }
+        };
+        context.getApplicationContext().registerReceiver(zoneReceiver,
+                new IntentFilter(Intent.ACTION_TIMEZONE_CHANGED));
+        resetTimeZone();
+    }
+
+    /**
+     * Appends an ISO 8601 UTC time, e.g. {@code 2015-10-16T12:53:10.000Z}.
+     */
+    public static StringBuilder appendIso8601(StringBuilder sb, long millis) {
+        long days = floorDiv(millis, MILLIS_PER_DAY);
+        int millisOfDay = (int) (millis - days * MILLIS_PER_DAY);
+
+        // civil from days, see http://howardhinnant.github.io/date_algorithms.html
+        long z = days + 719468;
+        long era = floorDiv(z, 146097);
+        long dayOfEra = z - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        appendDate(sb, year, month, day);
+        appendTime(sb, millisOfDay / 3600000, millisOfDay / 60000 % 60, millisOfDay / 1000 % 60,
+                millisOfDay % 1000);
+
+        return sb.append('Z');
+    }
+
+    /**
+     * Appends an ISO 8601 local time with its offset, e.g.
+     * {@code 2015-10-16T14:53:10.000+02:00}.
+     */
+    public static StringBuilder appendIso8601Local(StringBuilder sb, long millis) {
+        Calendar calendar = CALENDAR.get();
+        TimeZone zone = TimestampFormat.zone;
+
+        if (null == zone) {
+            zone = TimeZone.getDefault();
+            TimestampFormat.zone = zone;
+        }
+        if (calendar.getTimeZone() != zone) calendar.setTimeZone(zone);
+        calendar.setTimeInMillis(millis);
+
+        int era = calendar.get(Calendar.ERA);
+        int year = calendar.get(Calendar.YEAR);
+        appendDate(sb, era == 0 ? 1 - year : year, calendar.get(Calendar.MONTH) + 1,
+                calendar.get(Calendar.DAY_OF_MONTH));
+        appendTime(sb, calendar.get(Calendar.HOUR_OF_DAY), calendar.get(Calendar.MINUTE),
+                calendar.get(Calendar.SECOND), calendar.get(Calendar.MILLISECOND));
+
+        int offsetMinutes = (calendar.get(Calendar.ZONE_OFFSET) + calendar.get(Calendar.DST_OFFSET)) / 60000;
+        if (offsetMinutes == 0) return sb.append('Z');
+
+        sb.append(offsetMinutes < 0 ? '-' : '+');
+        offsetMinutes = Math.abs(offsetMinutes);
+        appendPadded(sb, offsetMinutes / 60, 2);
+        sb.append(':');
+
+        return appendPadded(sb, offsetMinutes % 60, 2);
+    }
+
+    /**
+     * Appends the milliseconds since the epoch.
+     */
+    public static StringBuilder appendEpochMillis(StringBuilder sb, long millis) {
+        return sb.append(millis);
+    }
+
+    private static void appendDate(StringBuilder sb, long year, int month, int day) {
+        if (year < 0) {
+            sb.append('-');
+            year = -year;
+        }
+        if (year > 9999) {
+            sb.append(year);
+        } else {
+            appendPadded(sb, (int) year, 4);
+        }
+        sb.append('-');
+        appendPadded(sb, month, 2);
+        sb.append('-');
+        appendPadded(sb, day, 2);
+    }
+
+    private static void appendTime(StringBuilder sb, int hour, int minute, int second, int millis) {
+        sb.append('T');
+        appendPadded(sb, hour, 2);
+        sb.append(':');
+        appendPadded(sb, minute, 2);
+        sb.append(':');
+        appendPadded(sb, second, 2);
+        sb.append('.');
+        appendPadded(sb, millis, 3);
+    }
+
+    private static StringBuilder appendPadded(StringBuilder sb, int value, int digits) {
+        for (int limit = 10; digits > 1; digits--, limit *= 10) {
+            if (value < limit) sb.append('0');
+        }
+
+        return sb.append(value);
+    }
+
+    private static long floorDiv(long x, long y) {
+        long q = x / y;
+
+        return (x % y != 0 && (x ^ y) < 0) ? q - 1 : q;
+    }
+}
@@ -0,0 +1,99 @@
+package de.thepivi.android.dic;
+
+import android.content.Context;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class CellScannerTest {
+
+    private final CellScanner scanner = new CellScanner(mock(Context.class));
+
+    @Test
+    public void mergesDuplicateCells() {
+        CellScan cells = new CellScan(1);
+        cells.add(CellScan.TYPE_LTE, false, 262, 1, 4711, 123456, 42, -101, CellScan.UNKNOWN);
+        cells.add(CellScan.TYPE_LTE, true, 262, 1, 4711, 123456, 42, -95, 7);
+        cells.add(CellScan.TYPE_LTE, false, CellScan.UNKNOWN, CellScan.UNKNOWN, CellScan.UNKNOWN,
+                CellScan.UNKNOWN, 17, -110, CellScan.UNKNOWN);
+
+        CellScan scan = scanner.update(cells, 1000, false);
+
+        assertEquals(2, scan.count);
+        assertTrue(scan.registered[0]);
+        assertEquals(-95, scan.dbm[0]);
+        assertEquals(7, scan.timingAdvance[0]);
+        assertEquals(0, scan.change[0]);
+        assertEquals(2, scanner.getDistinctCellCount());
+    }
+
+    @Test
+    public void reportsChangesIncrementally() {
+        CellScan first = new CellScan();
+        first.add(CellScan.TYPE_GSM, true, 262, 2, 100, 1, CellScan.UNKNOWN, -80, CellScan.UNKNOWN);
+        first.add(CellScan.TYPE_GSM, false, 262, 2, 100, 2, CellScan.UNKNOWN, -90, CellScan.UNKNOWN);
+        first.add(CellScan.TYPE_GSM, false, 262, 2, 100, 3, CellScan.UNKNOWN, -99, CellScan.UNKNOWN);
+        assertEquals(3, scanner.update(first, 1000, true).count);
+
+        CellScan second = new CellScan();
+        second.add(CellScan.TYPE_GSM, true, 262, 2, 100, 1, CellScan.UNKNOWN, -81, CellScan.UNKNOWN);
+        second.add(CellScan.TYPE_GSM, false, 262, 2, 100, 2, CellScan.UNKNOWN, -84, CellScan.UNKNOWN);
+        second.add(CellScan.TYPE_WCDMA, false, 262, 2, 100, 4, 300, -70, CellScan.UNKNOWN);
+
+        CellScan diff = scanner.update(second, 2000, true);
+
+        assertEquals(3, diff.count);
+        assertEquals(2, diff.cellId[0]);
+        assertEquals(CellScan.CHANGE_UPDATED, diff.change[0]);
+        assertEquals(4, diff.cellId[1]);
+        assertEquals(CellScan.CHANGE_ADDED, diff.change[1]);
+        assertEquals(3, diff.cellId[2]);
+        assertEquals(CellScan.CHANGE_REMOVED, diff.change[2]);
+        assertEquals(4, scanner.getDistinctCellCount());
+    }
+
+    @Test
+    public void keysTellCellsApart() {
+        long gsm = CellScan.keyOf(CellScan.TYPE_GSM, 262, 1, 100, 1, CellScan.UNKNOWN);
+
+        assertNotEquals(gsm, CellScan.keyOf(CellScan.TYPE_GSM, 262, 1, 101, 1, CellScan.UNKNOWN));
+        assertNotEquals(gsm, CellScan.keyOf(CellScan.TYPE_GSM, 262, 2, 100, 1, CellScan.UNKNOWN));
+        assertNotEquals(gsm, CellScan.keyOf(CellScan.TYPE_WCDMA, 262, 1, 100, 1, CellScan.UNKNOWN));
+        assertNotEquals(CellScan.keyOf(CellScan.TYPE_LTE, 262, 1, 1, CellScan.UNKNOWN, 5),
+                CellScan.keyOf(CellScan.TYPE_LTE, 262, 1, 1, CellScan.UNKNOWN, 6));
+        assertNotEquals(CellScan.keyOf(CellScan.TYPE_LTE, 262, 1, 1, CellScan.UNKNOWN, 5),
+                CellScan.keyOf(CellScan.TYPE_LTE, 262, 1, 2, CellScan.UNKNOWN, 5));
+        assertEquals(CellScan.NO_KEY, CellScan.keyOf(CellScan.TYPE_GSM, 262, 1, 100, CellScan.UNKNOWN,
+                CellScan.UNKNOWN));
+        assertEquals(CellScan.NO_KEY, CellScan.keyOf(CellScan.TYPE_CDMA, 310, 4, CellScan.UNKNOWN,
+                CellScan.UNKNOWN, CellScan.UNKNOWN));
+    }
+
+    @Test
+    public void keepsCellsWithoutIdentity() {
+        CellScan first = new CellScan();
+        first.add(CellScan.TYPE_GSM, true, 262, 2, 100, 1, CellScan.UNKNOWN, -80, CellScan.UNKNOWN);
+        first.add(CellScan.TYPE_GSM, false, CellScan.UNKNOWN, CellScan.UNKNOWN, CellScan.UNKNOWN,
+                CellScan.UNKNOWN, CellScan.UNKNOWN, -95, CellScan.UNKNOWN);
+        first.add(CellScan.TYPE_GSM, false, CellScan.UNKNOWN, CellScan.UNKNOWN, CellScan.UNKNOWN,
+                CellScan.UNKNOWN, CellScan.UNKNOWN, -101, CellScan.UNKNOWN);
+
+        assertEquals(3, scanner.update(first, 1000, true).count);
+        assertEquals(1, scanner.getDistinctCellCount());
+
+        CellScan second = new CellScan();
+        second.add(CellScan.TYPE_GSM, true, 262, 2, 100, 1, CellScan.UNKNOWN, -80, CellScan.UNKNOWN);
+        second.add(CellScan.TYPE_GSM, false, CellScan.UNKNOWN, CellScan.UNKNOWN, CellScan.UNKNOWN,
+                CellScan.UNKNOWN, CellScan.UNKNOWN, -97, CellScan.UNKNOWN);
+
+        CellScan diff = scanner.update(second, 2000, true);
+
+        assertEquals(1, diff.count);
+        assertEquals(-97, diff.dbm[0]);
+        assertEquals(CellScan.CHANGE_ADDED, diff.change[0]);
+    }
+}
@@ -0,0 +1,137 @@
+package de.thepivi.android.dic;
+
+import android.content.Context;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Measures the collection, report and encoding paths on the plain JVM against
+ * a {@link StubDevice}. Prints latency, throughput and allocation per
+ * operation.
+ * <p/>
+ * Skipped unless run with {@code ./gradlew testDebugUnitTest -Pbenchmark},
+ * the iterations can be set with {@code -Pbenchmark.iterations=n}.
+ */
+public class CollectionBenchmark {
+
+    private static final int SENSOR_COUNT = 24;
+
+    private static MicroBenchmark benchmark;
+    private static Context context;
+
+    @BeforeClass
+    public static void setUp() {
+        assumeTrue(Boolean.getBoolean("dic.benchmark"));
+
+        int iterations = Integer.getInteger("dic.benchmark.iterations", 2000);
+        benchmark = new MicroBenchmark(iterations / 2, iterations);
+        context = StubDevice.create(SENSOR_COUNT);
+        SensorIndex.clear();
+    }
+
+    @Test
+    public void collectSections() {
+        for (int section = 1; section <= DeviceSnapshot.SECTION_MAX; section++) {
+            final int id = section;
+
+            report(benchmark.measure("collect " + DeviceSnapshotFormatter.nameOfSection(section),
+                    new MicroBenchmark.Operation() {
+                        @Override
+                        public void run() {
+                            DeviceContextProvider.collectSection(context, id, new DeviceSnapshot());
+                        }
+                    }));
+        }
+    }
+
+    @Test
+    public void collectReport() {
+        report(benchmark.measure("DeviceContextProvider.toString", new MicroBenchmark.Operation() {
+            @Override
+            public void run() {
+                DeviceContextProvider.toString(context);
+            }
+        }));
+    }
+
+    @Test
+    public void formatReport() {
+        final DeviceSnapshot snapshot = TestSnapshots.create();
+        final DeviceReportWriter writer = new DeviceReportWriter(new NullWriter());
+
+        report(benchmark.measure("DeviceSnapshotFormatter.format", new MicroBenchmark.Operation() {
+            @Override
+            public void run() {
+                DeviceSnapshotFormatter.format(snapshot);
+            }
+        }));
+        report(benchmark.measure("DeviceReportWriter.write", new MicroBenchmark.Operation() {
+            @Override
+            public void run() throws IOException {
+                writer.write(snapshot);
+            }
+        }));
+    }
+
+    @Test
+    public void encodeSnapshot() throws IOException {
+        final DeviceSnapshot snapshot = TestSnapshots.create();
+        final DeviceSnapshot next = TestSnapshots.create();
+        final ByteBuffer buffer = ByteBuffer.allocate(16384);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(1024);
+        final DeviceSnapshotDelta delta = new DeviceSnapshotDelta();
+        final byte[] encoded = TestSnapshots.encode(snapshot);
+
+        next.timestamp += 60000;
+        next.process.elapsedCpuTime += 1200;
+
+        report(benchmark.measure("DeviceSnapshotCodec.encode", new MicroBenchmark.Operation() {
+            @Override
+            public void run() throws IOException {
+                buffer.clear();
+                DeviceSnapshotCodec.encode(snapshot, buffer);
+            }
+        }));
+        report(benchmark.measure("DeviceSnapshotCodec.decode", new MicroBenchmark.Operation() {
+            @Override
+            public void run() throws IOException {
+                DeviceSnapshotCodec.decode(new ByteArrayInputStream(encoded));
+            }
+        }));
+        report(benchmark.measure("DeviceSnapshotDelta.writePatch", new MicroBenchmark.Operation() {
+            @Override
+            public void run() throws IOException {
+                out.reset();
+                delta.writePatch(snapshot, next, out);
+            }
+        }));
+    }
+
+    private static void report(MicroBenchmark.Result result) {
+        System.out.println(result);
+    }
+
+    private static class NullWriter extends Writer {
+
+        @Override
+        public void write(char[] buffer, int offset, int count) {
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package de.thepivi.android.dic;
+
+import android.content.ComponentCallbacks;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.pm.ActivityInfo;
+import android.content.res.Configuration;
+import android.os.Build;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CollectionSchedulerTest {
+
+    private static final String FINGERPRINT = "google/hammerhead/hammerhead:6.0.1/M4B30Z/3437181:user/release-keys";
+
+    private static final int BUILD = 1 << DeviceSnapshot.SECTION_BUILD;
+    private static final int CONFIGURATION = 1 << DeviceSnapshot.SECTION_CONFIGURATION;
+    private static final int TELEPHONY = 1 << DeviceSnapshot.SECTION_TELEPHONY;
+    private static final int PROCESS = 1 << DeviceSnapshot.SECTION_PROCESS;
+    private static final int LOCATION = 1 << DeviceSnapshot.SECTION_LOCATION;
+
+    private Context context;
+    private SharedPreferences preferences;
+    private SharedPreferences.Editor editor;
+    private CollectionScheduler.Sink sink;
+    private CollectionScheduler scheduler;
+
+    @Before
+    public void setUp() {
+        DeviceContextProvider.clearCaches();
+        context = StubDevice.create(0);
+        preferences = mock(SharedPreferences.class);
+        editor = mock(SharedPreferences.Editor.class);
+        when(preferences.edit()).thenReturn(editor);
+        when(editor.putString(anyString(), anyString())).thenReturn(editor);
+        when(context.getSharedPreferences(anyString(), anyInt())).thenReturn(preferences);
+        sink = mock(CollectionScheduler.Sink.class);
+        scheduler = createScheduler(FINGERPRINT);
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdown();
+        DeviceContextProvider.clearCaches();
+    }
+
+    @Test
+    public void collectsEverythingAtStart() {
+        scheduler.setCadence(DeviceSnapshot.SECTION_BUILD, CollectionScheduler.CADENCE_ONCE);
+        scheduler.setCadence(DeviceSnapshot.SECTION_PROCESS, 60000);
+        scheduler.schedule(1000);
+
+        int sections = scheduler.dueSections(1000);
+        assertEquals(BUILD | PROCESS, sections);
+
+        scheduler.collected(sections, 1000);
+        assertEquals(61000, scheduler.nextWakeup());
+        assertEquals(0, scheduler.dueSections(30000));
+        // the build section was not received yet
+        assertEquals(BUILD | PROCESS, scheduler.dueSections(61000));
+    }
+
+    @Test
+    public void coalescesSectionsWithinFlex() {
+        scheduler.setCadence(DeviceSnapshot.SECTION_TELEPHONY, 30000);
+        scheduler.setCadence(DeviceSnapshot.SECTION_LOCATION, 40000);
+        scheduler.setCadence(DeviceSnapshot.SECTION_PROCESS, 60000);
+        scheduler.schedule(0);
+        scheduler.collected(scheduler.dueSections(0), 0);
+
+        // location is due at 40000 but within its flex of 10000
+        assertEquals(30000, scheduler.nextWakeup());
+        int sections = scheduler.dueSections(30000);
+        assertEquals(TELEPHONY | LOCATION, sections);
+        scheduler.collected(sections, 30000);
+
+        // telephony and location stay aligned, process joins them
+        assertEquals(60000, scheduler.nextWakeup());
+        assertEquals(TELEPHONY | LOCATION | PROCESS, scheduler.dueSections(60000));
+    }
+
+    @Test
+    public void skipsDisabledSections() {
+        scheduler.schedule(0);
+
+        assertEquals(0, scheduler.dueSections(Long.MAX_VALUE / 2));
+        assertEquals(Long.MAX_VALUE, scheduler.nextWakeup());
+    }
+
+    @Test
+    public void handsOverFullBatch() {
+        DeviceSnapshot first = new DeviceSnapshot();
+        DeviceSnapshot second = new DeviceSnapshot();
+        scheduler.setBatch(2, 60000);
+        scheduler.start();
+
+        scheduler.add(first, 1000);
+        verify(sink, never()).onBatch(anyListOf(DeviceSnapshot.class));
+
+        scheduler.add(second, 2000);
+        verify(sink).onBatch(Arrays.asList(first, second));
+    }
+
+    @Test
+    public void handsOverBatchByAge() {
+        DeviceSnapshot snapshot = new DeviceSnapshot();
+        scheduler.setBatch(16, 60000);
+        scheduler.start();
+        scheduler.add(snapshot, 1000);
+
+        scheduler.wakeUp(60999);
+        verify(sink, never()).onBatch(anyListOf(DeviceSnapshot.class));
+
+        scheduler.wakeUp(61000);
+        verify(sink).onBatch(Collections.singletonList(snapshot));
+    }
+
+    @Test
+    public void flushesOnStop() {
+        DeviceSnapshot snapshot = new DeviceSnapshot();
+        scheduler.start();
+        scheduler.add(snapshot, 1000);
+
+        scheduler.stop();
+
+        verify(sink).onBatch(Collections.singletonList(snapshot));
+    }
+
+    @Test
+    public void keepsOnceSectionsPerBuild() {
+        scheduler.setCadence(DeviceSnapshot.SECTION_BUILD, CollectionScheduler.CADENCE_ONCE);
+        scheduler.start();
+
+        verify(editor, timeout(2000)).putString("once_" + DeviceSnapshot.SECTION_BUILD, FINGERPRINT);
+        verify(editor, timeout(2000)).commit();
+        assertEquals(Long.MAX_VALUE, scheduler.nextWakeup());
+
+        when(preferences.getString(eq("once_" + DeviceSnapshot.SECTION_BUILD), anyString()))
+                .thenReturn(FINGERPRINT);
+        assertEquals(0, scheduledOnce(FINGERPRINT));
+        assertEquals(BUILD, scheduledOnce(FINGERPRINT.replace("M4B30Z", "M4B30Y")));
+    }
+
+    @Test
+    public void retriesOnceSectionUntilReceived() {
+        scheduler.setCadence(DeviceSnapshot.SECTION_BUILD, CollectionScheduler.CADENCE_ONCE);
+        scheduler.schedule(0);
+        scheduler.collected(scheduler.dueSections(0), 0);
+
+        // the build section failed or timed out
+        scheduler.add(new DeviceSnapshot(), 1000);
+
+        assertEquals(60000, scheduler.nextWakeup());
+        assertEquals(BUILD, scheduler.dueSections(60000));
+    }
+
+    @Test
+    public void collectsOnChange() {
+        ArgumentCaptor<ComponentCallbacks> callbacks = ArgumentCaptor.forClass(ComponentCallbacks.class);
+        DeviceContextProvider.getConfigurationSnapshot(context, Build.VERSION_CODES.ICE_CREAM_SANDWICH);
+        verify(context).registerComponentCallbacks(callbacks.capture());
+        scheduler.setCadence(DeviceSnapshot.SECTION_CONFIGURATION, CollectionScheduler.CADENCE_ON_CHANGE);
+        scheduler.schedule(0);
+
+        int sections = scheduler.dueSections(0);
+        assertEquals(CONFIGURATION, sections);
+        scheduler.collected(sections, 0);
+        assertEquals(0, scheduler.dueSections(1000));
+        assertEquals(Long.MAX_VALUE, scheduler.nextWakeup());
+
+        Configuration changed = mock(Configuration.class);
+        when(changed.diff(any(Configuration.class))).thenReturn(ActivityInfo.CONFIG_ORIENTATION);
+        callbacks.getValue().onConfigurationChanged(changed);
+
+        assertEquals(CONFIGURATION, scheduler.dueSections(2000));
+    }
+
+    /**
+     * @return the sections due at the start of a scheduler collecting the build
+     * section once on the given system build
+     */
+    private int scheduledOnce(String fingerprint) {
+        CollectionScheduler restarted = createScheduler(fingerprint);
+        restarted.setCadence(DeviceSnapshot.SECTION_BUILD, CollectionScheduler.CADENCE_ONCE);
+
+        try {
+            restarted.schedule(0);
+            return restarted.dueSections(0);
+        } finally {
+            restarted.shutdown();
+        }
+    }
+
+    private CollectionScheduler createScheduler(String fingerprint) {
+        CollectionScheduler scheduler = new CollectionScheduler(context, sink, fingerprint);
+        for (int section = 1; section <= DeviceSnapshot.SECTION_MAX; section++) {
+            scheduler.setCadence(section, CollectionScheduler.CADENCE_DISABLED);
+        }
+
+        return scheduler;
+    }
+}
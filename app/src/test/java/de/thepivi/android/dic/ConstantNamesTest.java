@@ -0,0 +1,36 @@
+package de.thepivi.android.dic;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class ConstantNamesTest {
+
+    @Test
+    public void namesKnownConstants() {
+        assertEquals("NETWORK_TYPE_LTE", ConstantNames.NETWORK_TYPE.nameOf(13));
+        assertEquals("DENSITY_XXHIGH", ConstantNames.DENSITY.nameOf(480));
+        assertEquals("TYPE_HEART_RATE", ConstantNames.SENSOR_TYPE.nameOf(21));
+        assertEquals("SCREENLAYOUT_SIZE_XLARGE", DeviceSnapshotFormatter.nameOfScreenLayout(0x14));
+    }
+
+    @Test
+    public void fallsBackForUnknownConstants() {
+        assertEquals("UNKNOWN", ConstantNames.SENSOR_TYPE.nameOf(-1));
+        assertEquals("UNKNOWN", ConstantNames.SENSOR_TYPE.nameOf(65536));
+        assertEquals("DENSITY_DEFAULT", ConstantNames.DENSITY.nameOf(300));
+    }
+
+    @Test
+    public void lookupReturnsSharedNames() {
+        assertSame(ConstantNames.SIM_STATE.nameOf(5), ConstantNames.SIM_STATE.nameOf(5));
+    }
+
+    @Test
+    public void reverseLookup() {
+        assertEquals(13, ConstantNames.NETWORK_TYPE.valueOf("NETWORK_TYPE_LTE", -1));
+        assertEquals(640, ConstantNames.DENSITY.valueOf("DENSITY_XXXHIGH", -1));
+        assertEquals(-1, ConstantNames.DENSITY.valueOf("DENSITY_DEFAULT", -1));
+    }
+}
@@ -0,0 +1,264 @@
+package de.thepivi.android.dic;
+
+import android.content.ComponentCallbacks;
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.pm.ActivityInfo;
+import android.content.res.Configuration;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Build;
+import android.provider.Settings.Secure;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+public class DeviceContextProviderTest {
+
+    @Before
+    public void setUp() {
+        SensorIndex.clear();
+        DeviceContextProvider.clearCaches();
+    }
+
+    @Test
+    public void failingSectionIsIsolated() {
+        Context context = StubDevice.create(3);
+        CollectionMetrics metrics = new CollectionMetrics();
+
+        when(context.getSystemService(Context.TELEPHONY_SERVICE))
+                .thenThrow(new SecurityException("READ_PHONE_STATE"));
+
+        DeviceSnapshot snapshot = DeviceContextProvider.getDeviceSnapshot(context, metrics);
+
+        assertNull(snapshot.telephony);
+        assertTrue(snapshot.isFailed(DeviceSnapshot.SECTION_TELEPHONY));
+        assertFalse(snapshot.isFailed(DeviceSnapshot.SECTION_SENSORS));
+        assertEquals(3, snapshot.sensors.length);
+        assertTrue(snapshot.hasSection(DeviceSnapshot.SECTION_LOCATION));
+        assertEquals(1, metrics.getFailures(DeviceSnapshot.SECTION_TELEPHONY));
+        assertEquals(1, metrics.getWallTimes(DeviceSnapshot.SECTION_LOCATION).getCount());
+        assertTrue(DeviceSnapshotFormatter.format(snapshot).contains("TelephonyManager:\nFAILED"));
+    }
+
+    @Test
+    public void readsSettingsTablesInOneQueryEach() {
+        ContentResolver resolver = mock(ContentResolver.class);
+        Cursor global = cursor(Secure.ADB_ENABLED, "1", "airplane_mode_on", "0", Secure.DATA_ROAMING, "0");
+        Cursor secure = cursor(Secure.ADB_ENABLED, "0", Secure.DEFAULT_INPUT_METHOD, "latin",
+                Secure.ANDROID_ID, "9774d56d682e549c");
+        when(query(resolver)).thenReturn(global, secure);
+        DeviceContextProvider.SettingReader keyReader = mock(DeviceContextProvider.SettingReader.class);
+        when(keyReader.getString(resolver, Secure.ANDROID_ID)).thenReturn("d2bba7ccb5f5fa01");
+
+        SecureSettingsSnapshot snapshot = DeviceContextProvider.readSecureSettings(resolver,
+                Build.VERSION_CODES.JELLY_BEAN_MR1, keyReader);
+
+        assertEquals("1", value(snapshot, Secure.ADB_ENABLED));
+        assertEquals("0", value(snapshot, Secure.DATA_ROAMING));
+        assertEquals("latin", value(snapshot, Secure.DEFAULT_INPUT_METHOD));
+        assertEquals("d2bba7ccb5f5fa01", value(snapshot, Secure.ANDROID_ID));
+        assertNull(value(snapshot, Secure.HTTP_PROXY));
+        verify(resolver, times(2)).query(any(Uri.class), any(String[].class), (String) isNull(),
+                (String[]) isNull(), (String) isNull());
+        verify(keyReader).getString(resolver, Secure.ANDROID_ID);
+        verifyNoMoreInteractions(keyReader);
+        verify(global).close();
+        verify(secure).close();
+    }
+
+    @Test
+    public void readsKeysTheTablesMissed() {
+        ContentResolver resolver = mock(ContentResolver.class);
+        Cursor global = cursor(Secure.ADB_ENABLED, "1");
+        when(query(resolver)).thenReturn(global).thenThrow(new SecurityException("restricted"));
+        DeviceContextProvider.SettingReader keyReader = keyReader();
+
+        SecureSettingsSnapshot snapshot = DeviceContextProvider.readSecureSettings(resolver,
+                Build.VERSION_CODES.JELLY_BEAN_MR1, keyReader);
+
+        assertEquals("1", value(snapshot, Secure.ADB_ENABLED));
+        assertEquals("key " + Secure.HTTP_PROXY, value(snapshot, Secure.HTTP_PROXY));
+        assertEquals("key " + Secure.ANDROID_ID, value(snapshot, Secure.ANDROID_ID));
+        verify(keyReader, never()).getString(resolver, Secure.ADB_ENABLED);
+        verify(keyReader).getString(resolver, Secure.ANDROID_ID);
+    }
+
+    @Test
+    public void readsKeysWithoutCursor() {
+        ContentResolver resolver = mock(ContentResolver.class);
+        when(query(resolver)).thenReturn(null);
+        DeviceContextProvider.SettingReader keyReader = keyReader();
+
+        SecureSettingsSnapshot snapshot = DeviceContextProvider.readSecureSettings(resolver, 0, keyReader);
+
+        for (int i = 0; i < SecureSettingsSnapshot.KEYS.length; i++) {
+            assertEquals("key " + SecureSettingsSnapshot.KEYS[i], snapshot.values[i]);
+        }
+        verify(resolver).query(any(Uri.class), any(String[].class), anyString(), any(String[].class),
+                anyString());
+    }
+
+    @Test
+    public void discardsReadRacingChange() {
+        Context context = StubDevice.create(0);
+        ContentResolver resolver = context.getContentResolver();
+        final ContentObserver[] observer = new ContentObserver[1];
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                observer[0] = (ContentObserver) invocation.getArguments()[2];
+                return null;
+            }
+        }).when(resolver).registerContentObserver(any(Uri.class), anyBoolean(), any(ContentObserver.class));
+        when(query(resolver)).thenAnswer(new Answer<Cursor>() {
+            private boolean first = true;
+
+            @Override
+            public Cursor answer(InvocationOnMock invocation) {
+                // a setting changes while the first read runs
+                if (first) observer[0].onChange(false);
+                first = false;
+                return cursor(Secure.ADB_ENABLED, "1");
+            }
+        });
+
+        DeviceContextProvider.getSecureSettingsSnapshot(context);
+        DeviceContextProvider.getSecureSettingsSnapshot(context);
+        SecureSettingsSnapshot snapshot = DeviceContextProvider.getSecureSettingsSnapshot(context);
+        verify(resolver, times(2)).query(any(Uri.class), any(String[].class), anyString(),
+                any(String[].class), anyString());
+
+        observer[0].onChange(false);
+        DeviceContextProvider.getSecureSettingsSnapshot(context);
+
+        assertEquals("1", value(snapshot, Secure.ADB_ENABLED));
+        verify(resolver, times(3)).query(any(Uri.class), any(String[].class), anyString(),
+                any(String[].class), anyString());
+    }
+
+    @Test
+    public void cachesConfigurationUntilItChanges() {
+        Context context = StubDevice.create(0);
+        final ComponentCallbacks[] callbacks = new ComponentCallbacks[1];
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                callbacks[0] = (ComponentCallbacks) invocation.getArguments()[0];
+                return null;
+            }
+        }).when(context).registerComponentCallbacks(any(ComponentCallbacks.class));
+        int ics = Build.VERSION_CODES.ICE_CREAM_SANDWICH;
+
+        ConfigurationSnapshot configuration = DeviceContextProvider.getConfigurationSnapshot(context, ics);
+        DisplaySnapshot display = DeviceContextProvider.getDisplaySnapshot(context, ics);
+        int generation = DeviceContextProvider.getConfigurationGeneration();
+        assertSame(configuration, DeviceContextProvider.getConfigurationSnapshot(context, ics));
+        assertSame(display, DeviceContextProvider.getDisplaySnapshot(context, ics));
+        assertEquals(Configuration.ORIENTATION_PORTRAIT, configuration.orientation);
+
+        callbacks[0].onConfigurationChanged(changedConfiguration(0));
+        assertSame(configuration, DeviceContextProvider.getConfigurationSnapshot(context, ics));
+        assertSame(display, DeviceContextProvider.getDisplaySnapshot(context, ics));
+        assertEquals(generation, DeviceContextProvider.getConfigurationGeneration());
+
+        callbacks[0].onConfigurationChanged(changedConfiguration(ActivityInfo.CONFIG_ORIENTATION));
+        ConfigurationSnapshot changed = DeviceContextProvider.getConfigurationSnapshot(context, ics);
+
+        assertEquals(Configuration.ORIENTATION_LANDSCAPE, changed.orientation);
+        assertEquals(generation + 1, DeviceContextProvider.getConfigurationGeneration());
+        assertNotSame(display, DeviceContextProvider.getDisplaySnapshot(context, ics));
+        verify(context).registerComponentCallbacks(any(ComponentCallbacks.class));
+    }
+
+    @Test
+    public void readsConfigurationEveryTimeBeforeIcs() {
+        Context context = StubDevice.create(0);
+        int gingerbread = Build.VERSION_CODES.GINGERBREAD;
+
+        assertNotSame(DeviceContextProvider.getConfigurationSnapshot(context, gingerbread),
+                DeviceContextProvider.getConfigurationSnapshot(context, gingerbread));
+        assertNotSame(DeviceContextProvider.getDisplaySnapshot(context, gingerbread),
+                DeviceContextProvider.getDisplaySnapshot(context, gingerbread));
+        verify(context, never()).registerComponentCallbacks(any(ComponentCallbacks.class));
+    }
+
+    /**
+     * @param diff what {@link Configuration#diff} reports against the previous one
+     */
+    private static Configuration changedConfiguration(int diff) {
+        Configuration configuration = mock(Configuration.class);
+        configuration.orientation = Configuration.ORIENTATION_LANDSCAPE;
+        when(configuration.diff(any(Configuration.class))).thenReturn(diff);
+
+        return configuration;
+    }
+
+    private static Cursor query(ContentResolver resolver) {
+        return resolver.query(any(Uri.class), any(String[].class), anyString(), any(String[].class),
+                anyString());
+    }
+
+    /**
+     * @param rows name and value of each row
+     */
+    private static Cursor cursor(String... rows) {
+        Cursor cursor = mock(Cursor.class);
+        final String[] values = rows;
+        final int[] row = {-1};
+
+        when(cursor.moveToNext()).thenAnswer(new Answer<Boolean>() {
+            @Override
+            public Boolean answer(InvocationOnMock invocation) {
+                return ++row[0] < values.length / 2;
+            }
+        });
+        when(cursor.getString(anyInt())).thenAnswer(new Answer<String>() {
+            @Override
+            public String answer(InvocationOnMock invocation) {
+                return values[2 * row[0] + (Integer) invocation.getArguments()[0]];
+            }
+        });
+
+        return cursor;
+    }
+
+    private static DeviceContextProvider.SettingReader keyReader() {
+        DeviceContextProvider.SettingReader keyReader = mock(DeviceContextProvider.SettingReader.class);
+
+        when(keyReader.getString(any(ContentResolver.class), anyString())).thenAnswer(new Answer<String>() {
+            @Override
+            public String answer(InvocationOnMock invocation) {
+                return "key " + invocation.getArguments()[1];
+            }
+        });
+
+        return keyReader;
+    }
+
+    private static String value(SecureSettingsSnapshot snapshot, String key) {
+        return snapshot.values[SecureSettingsSnapshot.indexOf(key)];
+    }
+}
@@ -0,0 +1,43 @@
+package de.thepivi.android.dic;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.junit.Assert.assertEquals;
+
+public class DeviceReportWriterTest {
+
+    @Test
+    public void writesSameReportAsFormatter() throws IOException {
+        DeviceSnapshot snapshot = TestSnapshots.create();
+        StringWriter out = new StringWriter();
+
+        new DeviceReportWriter(out).write(snapshot);
+
+        assertEquals(DeviceSnapshotFormatter.format(snapshot), out.toString());
+    }
+
+    @Test
+    public void writesIntoStringBuilder() throws IOException {
+        DeviceSnapshot snapshot = TestSnapshots.create();
+        StringBuilder out = new StringBuilder("Report\n");
+
+        new DeviceReportWriter(out).write(snapshot);
+
+        assertEquals("Report\n" + DeviceSnapshotFormatter.format(snapshot), out.toString());
+    }
+
+    @Test
+    public void reportsTimedOutSection() throws IOException {
+        DeviceSnapshot snapshot = TestSnapshots.create();
+        StringWriter out = new StringWriter();
+
+        snapshot.removeSection(DeviceSnapshot.SECTION_SENSORS);
+        snapshot.timedOutSections |= 1 << DeviceSnapshot.SECTION_SENSORS;
+        new DeviceReportWriter(out).writeSection(snapshot, DeviceSnapshot.SECTION_SENSORS);
+
+        assertEquals("SensorManager:\nTIMED OUT\n\n", out.toString());
+    }
+}
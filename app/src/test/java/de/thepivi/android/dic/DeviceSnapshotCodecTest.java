@@ -0,0 +1,170 @@
+package de.thepivi.android.dic;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class DeviceSnapshotCodecTest {
+
+    @Test
+    public void roundTripThroughStream() throws IOException {
+        DeviceSnapshot snapshot = TestSnapshots.create();
+        byte[] encoded = TestSnapshots.encode(snapshot);
+
+        DeviceSnapshot decoded = DeviceSnapshotCodec.decode(new ByteArrayInputStream(encoded));
+
+        assertArrayEquals(encoded, TestSnapshots.encode(decoded));
+        assertEquals(snapshot.timestamp, decoded.timestamp);
+        assertEquals("LGE", decoded.build.manufacturer);
+        assertEquals(23, decoded.build.versionSdkInt);
+        assertEquals(442.451f, decoded.display.xdpi, 0f);
+        assertEquals(26363658, decoded.telephony.gsmCid);
+        assertArrayEquals(new int[]{-1, 301}, decoded.telephony.neighboringCellPsc);
+        assertEquals("Gestensensor \u00fcber \u00e4u\u00dfere \ud83d\udc4b", decoded.sensors[2].name);
+        assertEquals(3000, decoded.sensors[0].fifoReservedEventCount);
+        assertEquals(52.520008, decoded.location.latitude, 0d);
+        assertNull(decoded.telephony.subscriberId);
+    }
+
+    @Test
+    public void roundTripThroughByteBuffer() throws IOException {
+        DeviceSnapshot snapshot = TestSnapshots.create();
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+
+        DeviceSnapshotCodec.encode(snapshot, buffer);
+        buffer.flip();
+        byte[] encoded = Arrays.copyOf(buffer.array(), buffer.limit());
+
+        assertArrayEquals(TestSnapshots.encode(snapshot), encoded);
+        assertArrayEquals(encoded, TestSnapshots.encode(DeviceSnapshotCodec.decode(buffer)));
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    public void missingSectionsStayMissing() throws IOException {
+        DeviceSnapshot snapshot = TestSnapshots.create();
+        snapshot.telephony = null;
+        snapshot.location = null;
+        snapshot.timedOutSections = 1 << DeviceSnapshot.SECTION_TELEPHONY;
+        snapshot.failedSections = 1 << DeviceSnapshot.SECTION_LOCATION;
+
+        DeviceSnapshot decoded = DeviceSnapshotCodec.decode(
+                new ByteArrayInputStream(TestSnapshots.encode(snapshot)));
+
+        assertNull(decoded.telephony);
+        assertNull(decoded.location);
+        assertTrue(decoded.isTimedOut(DeviceSnapshot.SECTION_TELEPHONY));
+        assertTrue(decoded.isFailed(DeviceSnapshot.SECTION_LOCATION));
+        assertTrue(decoded.hasSection(DeviceSnapshot.SECTION_SENSORS));
+    }
+
+    @Test
+    public void recurringStringsAreReferenced() throws IOException {
+        DeviceSnapshot snapshot = TestSnapshots.create();
+        int size = TestSnapshots.encode(snapshot).length;
+
+        snapshot.telephony.simOperatorName = "a different operator name";
+
+        assertTrue(TestSnapshots.encode(snapshot).length > size + 20);
+    }
+
+    @Test
+    public void varIntBoundaries() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        SnapshotEncoder encoder = new SnapshotEncoder(buffer, new String[0]);
+        int[] ints = {0, 1, -1, 63, -64, 64, Integer.MAX_VALUE, Integer.MIN_VALUE};
+        long[] longs = {0L, -1L, Long.MAX_VALUE, Long.MIN_VALUE};
+
+        for (int value : ints) encoder.writeInt(value);
+        for (long value : longs) encoder.writeLong(value);
+        encoder.writeFloat(Float.NaN);
+        encoder.writeDouble(-0.0d);
+        buffer.flip();
+
+        SnapshotDecoder decoder = new SnapshotDecoder(buffer, new String[0]);
+        for (int value : ints) assertEquals(value, decoder.readInt());
+        for (long value : longs) assertEquals(value, decoder.readLong());
+        assertTrue(Float.isNaN(decoder.readFloat()));
+        assertEquals(Double.doubleToLongBits(-0.0d), Double.doubleToLongBits(decoder.readDouble()));
+        assertEquals(1, encodedSize(0));
+        assertEquals(1, encodedSize(-64));
+        assertEquals(2, encodedSize(64));
+    }
+
+    @Test
+    public void rejectsUnknownVersion() throws IOException {
+        byte[] encoded = TestSnapshots.encode(TestSnapshots.create());
+        encoded[2] = (byte) (DeviceSnapshotCodec.VERSION + 1);
+
+        try {
+            DeviceSnapshotCodec.decode(new ByteArrayInputStream(encoded));
+            fail();
+        } catch (IOException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void rejectsStringLongerThanInput() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+        SnapshotEncoder encoder = new SnapshotEncoder(buffer, new String[0]);
+        encoder.writeRawVarInt(1000 << 1 | 1);
+        encoder.writeRawVarInt('x');
+        buffer.flip();
+
+        assertMalformed(new SnapshotDecoder(buffer, new String[0]), "string 1000");
+    }
+
+    @Test
+    public void rejectsStringLongerThanStreamBound() throws IOException {
+        int length = SnapshotDecoder.MAX_STREAM_LENGTH + 1;
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+        new SnapshotEncoder(buffer, new String[0]).writeRawVarInt(length << 1 | 1);
+
+        assertMalformed(new SnapshotDecoder(
+                new ByteArrayInputStream(buffer.array(), 0, buffer.position()), new String[0]),
+                "string " + length);
+    }
+
+    @Test
+    public void rejectsNegativeSensorCount() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+        new SnapshotEncoder(buffer, new String[0]).writeInt(-1);
+        buffer.flip();
+
+        try {
+            new DeviceSnapshot().readSection(DeviceSnapshot.SECTION_SENSORS,
+                    new SnapshotDecoder(buffer, new String[0]));
+            fail();
+        } catch (IOException expected) {
+            assertEquals("Malformed count -1", expected.getMessage());
+        }
+    }
+
+    private static void assertMalformed(SnapshotDecoder decoder, String what) {
+        try {
+            decoder.readString();
+            fail();
+        } catch (IOException expected) {
+            assertEquals("Malformed " + what, expected.getMessage());
+        }
+    }
+
+    private static int encodedSize(int value) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8);
+
+        new SnapshotEncoder(buffer, new String[0]).writeInt(value);
+
+        return buffer.position();
+    }
+}
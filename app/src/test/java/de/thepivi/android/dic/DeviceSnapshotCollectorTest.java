@@ -0,0 +1,203 @@
+package de.thepivi.android.dic;
+
+import android.content.Context;
+import android.location.LocationManager;
+import android.os.Handler;
+
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isNull;
+import static org.mockito.Matchers.same;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class DeviceSnapshotCollectorTest {
+
+    private static final int LOCATION = 1 << DeviceSnapshot.SECTION_LOCATION;
+
+    private DeviceSnapshotCollector collector;
+
+    @After
+    public void tearDown() {
+        if (null != collector) collector.shutdown();
+    }
+
+    @Test
+    public void reportsLateSectionOnlyAsTimedOut() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(1);
+        Context context = StubDevice.create(0);
+        hangLocation(context, release, finished);
+        CollectionListener listener = mock(CollectionListener.class);
+
+        collector = new DeviceSnapshotCollector(context);
+        collector.setTimeout(DeviceSnapshot.SECTION_LOCATION, 50);
+        collector.setCollectionListener(listener);
+
+        DeviceSnapshot snapshot = collector.collect(LOCATION, null, null).get(2, TimeUnit.SECONDS);
+        release.countDown();
+        assertTrue(finished.await(2, TimeUnit.SECONDS));
+
+        assertTrue((snapshot.timedOutSections & LOCATION) != 0);
+        assertFalse(snapshot.hasSection(DeviceSnapshot.SECTION_LOCATION));
+        verify(listener, timeout(1000)).onSectionCollected(eq(DeviceSnapshot.SECTION_LOCATION),
+                (String) isNull(), anyLong(), eq(-1L), eq(CollectionListener.OUTCOME_TIMED_OUT),
+                (Throwable) isNull());
+        verify(listener, after(200).never()).onSectionCollected(anyInt(), anyString(), anyLong(),
+                anyLong(), eq(CollectionListener.OUTCOME_COLLECTED), any(Throwable.class));
+    }
+
+    @Test
+    public void reportsErrorAsFailed() throws Exception {
+        Error error = new StackOverflowError();
+        Context context = StubDevice.create(0);
+        LocationManager locationManager = mock(LocationManager.class);
+        when(locationManager.getAllProviders()).thenThrow(error);
+        when(context.getSystemService(Context.LOCATION_SERVICE)).thenReturn(locationManager);
+        CollectionListener listener = mock(CollectionListener.class);
+
+        collector = new DeviceSnapshotCollector(context);
+        collector.setCollectionListener(listener);
+
+        DeviceSnapshot snapshot = collector.collect(LOCATION, null, null).get(2, TimeUnit.SECONDS);
+
+        assertTrue((snapshot.failedSections & LOCATION) != 0);
+        assertEquals(0, snapshot.timedOutSections);
+        assertFalse(snapshot.hasSection(DeviceSnapshot.SECTION_LOCATION));
+        verify(listener).onSectionCollected(eq(DeviceSnapshot.SECTION_LOCATION), anyString(), anyLong(),
+                anyLong(), eq(CollectionListener.OUTCOME_FAILED), same(error));
+    }
+
+    @Test
+    public void cancelsDeadlineOfCollectedSection() throws Exception {
+        collector = new DeviceSnapshotCollector(StubDevice.create(0));
+
+        collector.collect(LOCATION, null, null).get(2, TimeUnit.SECONDS);
+
+        assertEquals(0, collector.getScheduledDeadlineCount());
+    }
+
+    @Test
+    public void replacesThreadsOfHungSections() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(DeviceSnapshotCollector.MAX_REPLACED_THREADS);
+        Context context = StubDevice.create(0);
+        hangLocation(context, release, finished);
+
+        collector = new DeviceSnapshotCollector(context);
+        collector.setTimeout(DeviceSnapshot.SECTION_LOCATION, 50);
+        int poolSize = collector.getPoolSize();
+
+        for (int i = 0; i < DeviceSnapshotCollector.MAX_REPLACED_THREADS; i++) {
+            collector.collect(LOCATION, null, null).get(2, TimeUnit.SECONDS);
+        }
+        DeviceSnapshot snapshot = collector.collect(1 << DeviceSnapshot.SECTION_BUILD, null, null)
+                .get(2, TimeUnit.SECONDS);
+        release.countDown();
+        assertTrue(finished.await(2, TimeUnit.SECONDS));
+
+        assertTrue(snapshot.hasSection(DeviceSnapshot.SECTION_BUILD));
+        assertEquals(0, snapshot.timedOutSections);
+        long deadline = System.currentTimeMillis() + 2000;
+        while (collector.getPoolSize() != poolSize && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(poolSize, collector.getPoolSize());
+    }
+
+    @Test
+    public void cancelDropsPostedCallback() throws Exception {
+        Handler handler = mock(Handler.class);
+        DeviceSnapshotCollector.Callback callback = mock(DeviceSnapshotCollector.Callback.class);
+
+        collector = new DeviceSnapshotCollector(StubDevice.create(0));
+        Future<DeviceSnapshot> pending = collector.collect(LOCATION, callback, handler);
+        DeviceSnapshot snapshot = pending.get(2, TimeUnit.SECONDS);
+        ArgumentCaptor<Runnable> post = ArgumentCaptor.forClass(Runnable.class);
+        verify(handler, timeout(1000)).post(post.capture());
+
+        assertFalse(pending.cancel(true));
+        post.getValue().run();
+
+        assertSame(snapshot, pending.get());
+        verify(callback, never()).onSnapshotCollected(any(DeviceSnapshot.class));
+    }
+
+    @Test
+    public void deliversPostedCallback() throws Exception {
+        Handler handler = mock(Handler.class);
+        DeviceSnapshotCollector.Callback callback = mock(DeviceSnapshotCollector.Callback.class);
+
+        collector = new DeviceSnapshotCollector(StubDevice.create(0));
+        DeviceSnapshot snapshot = collector.collect(LOCATION, callback, handler).get(2, TimeUnit.SECONDS);
+        ArgumentCaptor<Runnable> post = ArgumentCaptor.forClass(Runnable.class);
+        verify(handler, timeout(1000)).post(post.capture());
+        post.getValue().run();
+
+        verify(callback).onSnapshotCollected(snapshot);
+    }
+
+    @Test
+    public void reportsSectionInTime() throws Exception {
+        CollectionListener listener = mock(CollectionListener.class);
+
+        collector = new DeviceSnapshotCollector(StubDevice.create(0));
+        collector.setCollectionListener(listener);
+
+        DeviceSnapshot snapshot = collector.collect(LOCATION, null, null).get(2, TimeUnit.SECONDS);
+
+        assertTrue(snapshot.hasSection(DeviceSnapshot.SECTION_LOCATION));
+        verify(listener).onSectionCollected(eq(DeviceSnapshot.SECTION_LOCATION), anyString(), anyLong(),
+                anyLong(), eq(CollectionListener.OUTCOME_COLLECTED), (Throwable) isNull());
+        verify(listener, never()).onSectionCollected(anyInt(), anyString(), anyLong(), anyLong(),
+                eq(CollectionListener.OUTCOME_TIMED_OUT), any(Throwable.class));
+    }
+
+    /**
+     * Blocks the location section until released, ignoring the interrupt of
+     * the deadline like a blocking binder call.
+     */
+    private static void hangLocation(Context context, final CountDownLatch release,
+                                     final CountDownLatch finished) {
+        LocationManager locationManager = mock(LocationManager.class);
+        when(locationManager.getAllProviders()).thenAnswer(new Answer<List<String>>() {
+            @Override
+            public List<String> answer(InvocationOnMock invocation) {
+                while (true) {
+                    try {
+                        release.await();
+                        break;
+                    } catch (InterruptedException e) {
+                        // keep waiting
+                    }
+                }
+                finished.countDown();
+                return Collections.emptyList();
+            }
+        });
+        when(context.getSystemService(Context.LOCATION_SERVICE)).thenReturn(locationManager);
+    }
+}
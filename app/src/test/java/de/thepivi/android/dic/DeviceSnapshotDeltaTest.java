@@ -0,0 +1,152 @@
+package de.thepivi.android.dic;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class DeviceSnapshotDeltaTest {
+
+    private final DeviceSnapshotDelta delta = new DeviceSnapshotDelta();
+
+    @Test
+    public void unchangedSnapshotGivesEmptyPatch() throws IOException {
+        DeviceSnapshot previous = TestSnapshots.create();
+        DeviceSnapshot next = TestSnapshots.create();
+        next.timestamp += 60000;
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertFalse(delta.writePatch(previous, next, out));
+        assertTrue(out.size() < 16);
+
+        assertRoundTrip(previous, next);
+    }
+
+    @Test
+    public void onlyChangedFieldsAreSent() throws IOException {
+        DeviceSnapshot previous = TestSnapshots.create();
+        DeviceSnapshot next = TestSnapshots.create();
+        next.timestamp += 60000;
+        next.process.elapsedCpuTime += 250;
+        next.telephony.gsmCid = 26363659;
+        next.telephony.dataActivity = 0;
+        next.location.latitude = 52.520102;
+        next.location.time += 60000;
+
+        byte[] patch = assertRoundTrip(previous, next);
+
+        assertTrue(patch.length < 48);
+        assertTrue(patch.length < TestSnapshots.encode(next).length / 10);
+    }
+
+    @Test
+    public void changedLayoutSendsFullSection() throws IOException {
+        DeviceSnapshot previous = TestSnapshots.create();
+        DeviceSnapshot next = TestSnapshots.create();
+        next.sensors = new SensorSnapshot[]{next.sensors[0]};
+        next.telephony.neighboringCellRssi = new int[0];
+        next.telephony.neighboringCellCid = new int[0];
+        next.telephony.neighboringCellLac = new int[0];
+        next.telephony.neighboringCellPsc = new int[0];
+        next.telephony.neighboringCellNetworkType = new int[0];
+
+        DeviceSnapshot applied = apply(previous, patch(previous, next));
+
+        assertEquals(1, applied.sensors.length);
+        assertEquals(0, applied.telephony.neighboringCellRssi.length);
+        assertArrayEquals(TestSnapshots.encode(next), TestSnapshots.encode(applied));
+    }
+
+    @Test
+    public void sectionsCanAppearAndDisappear() throws IOException {
+        DeviceSnapshot previous = TestSnapshots.create();
+        previous.location = null;
+        DeviceSnapshot next = TestSnapshots.create();
+        next.telephony = null;
+
+        DeviceSnapshot applied = apply(previous, assertRoundTrip(previous, next));
+
+        assertNull(applied.telephony);
+        assertEquals("network", applied.location.bestProvider);
+        assertSame(previous.display, applied.display);
+    }
+
+    @Test
+    public void appliesFieldsOfVersion3Patch() throws IOException {
+        DeviceSnapshot previous = TestSnapshots.create();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SnapshotEncoder encoder = new SnapshotEncoder(out, DeviceSnapshotCodec.PRESET_STRINGS);
+        encoder.writeRawByte('D');
+        encoder.writeRawByte('P');
+        encoder.writeRawVarInt(3);
+        encoder.writeLong(previous.timestamp);
+        encoder.writeLong(60000);
+        encoder.writeRawVarInt(0);
+        encoder.writeRawVarInt(0);
+        encoder.writeRawVarInt(DeviceSnapshot.SECTION_SENSORS);
+        encoder.writeRawVarInt(2);
+        encoder.writeRawVarInt(1);
+        // the maximum range of the second sensor, which has 7 fields up to version 3
+        encoder.writeRawVarInt(1 + 7 + 6);
+        encoder.writeFloat(42f);
+        encoder.writeRawVarInt(0);
+        encoder.flush();
+
+        DeviceSnapshot applied = apply(previous, out.toByteArray());
+
+        assertEquals(3, applied.sensors.length);
+        assertEquals(42f, applied.sensors[1].maximumRange, 0f);
+        assertEquals("AKM", applied.sensors[1].vendor);
+        assertEquals(1f, applied.sensors[2].maximumRange, 0f);
+        assertSame(previous.display, applied.display);
+
+        DeviceSnapshot next = TestSnapshots.create();
+        next.sensors[0].fifoReservedEventCount = 2000;
+        assertRoundTrip(previous, next);
+    }
+
+    @Test
+    public void rejectsPatchForOtherBase() throws IOException {
+        DeviceSnapshot previous = TestSnapshots.create();
+        DeviceSnapshot next = TestSnapshots.create();
+        byte[] patch = patch(previous, next);
+        previous.timestamp++;
+
+        try {
+            apply(previous, patch);
+            fail();
+        } catch (IOException expected) {
+            // expected
+        }
+    }
+
+    private byte[] assertRoundTrip(DeviceSnapshot previous, DeviceSnapshot next)
+            throws IOException {
+        byte[] patch = patch(previous, next);
+
+        assertArrayEquals(TestSnapshots.encode(next), TestSnapshots.encode(apply(previous, patch)));
+
+        return patch;
+    }
+
+    private byte[] patch(DeviceSnapshot previous, DeviceSnapshot next) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        delta.writePatch(previous, next, out);
+
+        return out.toByteArray();
+    }
+
+    private DeviceSnapshot apply(DeviceSnapshot previous, byte[] patch) throws IOException {
+        return delta.applyPatch(previous, new ByteArrayInputStream(patch));
+    }
+}
@@ -0,0 +1,30 @@
+package de.thepivi.android.dic;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class DisplaySnapshotTest {
+
+    @Test
+    public void derivesValuesFromMetrics() {
+        DisplaySnapshot display = TestSnapshots.create().display;
+
+        assertEquals(2.441f, display.getInchesWidth(), 0.001f);
+        assertEquals(4.006f, display.getInchesHeight(), 0.001f);
+        assertEquals(4.69, display.getDiagonalInches(), 0d);
+        assertEquals(360f, display.getSmallestWidth(), 0f);
+        assertEquals(480f, display.getLogicalDensityDpi(), 0f);
+    }
+
+    @Test
+    public void namesDensityBucket() {
+        DisplaySnapshot display = new DisplaySnapshot();
+
+        display.densityDpi = 240;
+        assertEquals("DENSITY_HIGH", display.getDensityBucket());
+
+        display.densityDpi = 160;
+        assertEquals("DENSITY_MEDIUM", display.getDensityBucket());
+    }
+}
@@ -0,0 +1,87 @@
+package de.thepivi.android.dic;
+
+import android.content.Context;
+import android.location.GpsStatus;
+import android.location.LocationManager;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class GpsStatusCollectorTest {
+
+    private final GpsStatusCollector collector = new GpsStatusCollector(mock(Context.class));
+
+    @Test
+    public void recordsSatellites() {
+        GpsSatelliteStatus satellites = new GpsSatelliteStatus(GpsStatusCollector.MAX_SATELLITES);
+        GpsSatelliteStatus update = update(1000);
+        update.add(5, 38f, 120f, 45f, true, true, true);
+        update.add(70, 22f, 300f, 10f, false, true, false);
+        update.add(205, 30f, 10f, 60f, true, false, true);
+        collector.update(update);
+        update.clear();
+        collector.getSatellites(satellites);
+
+        assertEquals(1000, satellites.timestamp);
+        assertEquals(3, satellites.count);
+        assertEquals(2, satellites.usedInFixCount);
+        assertEquals(GpsSatelliteStatus.CONSTELLATION_GPS, satellites.constellation[0]);
+        assertEquals(GpsSatelliteStatus.CONSTELLATION_GLONASS, satellites.constellation[1]);
+        assertEquals(GpsSatelliteStatus.CONSTELLATION_BEIDOU, satellites.constellation[2]);
+        assertEquals(22f, satellites.snr[1], 0f);
+        assertTrue(satellites.hasAlmanac[1]);
+    }
+
+    @Test
+    public void startFailsWithoutPermission() {
+        Context context = mock(Context.class);
+        LocationManager locationManager = mock(LocationManager.class);
+        when(context.getSystemService(Context.LOCATION_SERVICE)).thenReturn(locationManager);
+        when(locationManager.addGpsStatusListener(any(GpsStatus.Listener.class)))
+                .thenThrow(new SecurityException("ACCESS_FINE_LOCATION"));
+        GpsStatusCollector collector = new GpsStatusCollector(context);
+
+        assertFalse(collector.start());
+        collector.stop();
+
+        verify(locationManager, never()).removeGpsStatusListener(any(GpsStatus.Listener.class));
+    }
+
+    @Test
+    public void accumulatesFixQuality() {
+        collector.onStarted();
+        assertEquals(-1, collector.getTimeToFirstFix());
+        collector.onFirstFix(32000);
+
+        GpsSatelliteStatus update = update(1000);
+        update.add(1, 40f, 0f, 0f, true, true, true);
+        update.add(2, 30f, 0f, 0f, true, true, true);
+        collector.update(update);
+        update = update(2000);
+        update.add(1, 35f, 0f, 0f, true, true, true);
+        update.add(2, 20f, 0f, 0f, false, true, true);
+        collector.update(update);
+        collector.update(update(3000));
+
+        assertEquals(32000, collector.getTimeToFirstFix());
+        assertEquals(1, collector.getTimesToFirstFix().getCount());
+        assertEquals(3, collector.getUpdateCount());
+        assertEquals(1.5, collector.getMeanUsedInFix(), 1e-9);
+        assertEquals(35, collector.getMeanUsedSnr(), 1e-9);
+    }
+
+    private static GpsSatelliteStatus update(long time) {
+        GpsSatelliteStatus update = new GpsSatelliteStatus(GpsStatusCollector.MAX_SATELLITES);
+        update.timestamp = time;
+
+        return update;
+    }
+}
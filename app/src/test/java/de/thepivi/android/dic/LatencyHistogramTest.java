@@ -0,0 +1,45 @@
+package de.thepivi.android.dic;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void bucketsCoverAllValues() {
+        for (long value = 0; value < 1L << 36; value = value * 3 / 2 + 1) {
+            long highest = LatencyHistogram.highestValueOf(LatencyHistogram.indexOf(value));
+
+            assertTrue(value + " in bucket up to " + highest, highest >= value);
+            assertTrue(value + " in bucket up to " + highest, highest - value <= value / 16);
+        }
+    }
+
+    @Test
+    public void percentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i * 1000L);
+        }
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(100000, histogram.getMax());
+        assertEquals(50000, histogram.getValueAtPercentile(50), 50000 / 16);
+        assertEquals(99000, histogram.getValueAtPercentile(99), 99000 / 16);
+        assertEquals(100000, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void resetClearsCounts() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        histogram.record(Long.MAX_VALUE);
+        histogram.reset();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getValueAtPercentile(99));
+    }
+}
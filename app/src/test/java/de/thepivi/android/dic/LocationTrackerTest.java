@@ -0,0 +1,58 @@
+package de.thepivi.android.dic;
+
+import android.content.Context;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class LocationTrackerTest {
+
+    private final LocationTracker tracker = new LocationTracker(mock(Context.class), 1000, 60000, 10, 4);
+
+    @Test
+    public void coalescesRedundantFixes() {
+        assertTrue(tracker.onFix(0, 52.52, 13.405, 5, Float.NaN));
+        assertFalse(tracker.onFix(5000, 52.52003, 13.405, 5, Float.NaN));
+        assertTrue(tracker.onFix(60000, 52.52003, 13.405, 5, Float.NaN));
+        assertTrue(tracker.onFix(61000, 52.5203, 13.405, 5, Float.NaN));
+
+        assertEquals(3, tracker.getFixCount());
+        assertEquals(1, tracker.getCoalescedCount());
+    }
+
+    @Test
+    public void keepsLatestFixes() {
+        for (int i = 0; i < 6; i++) {
+            tracker.onFix(i * 1000, 52.52 + i * 0.001, 13.405, 5, 1.5f);
+        }
+
+        long[] times = new long[8];
+        double[] latitudes = new double[8];
+
+        assertEquals(4, tracker.getFixes(times, latitudes, new double[8], new float[8], new float[8]));
+        assertEquals(2000, times[0]);
+        assertEquals(5000, times[3]);
+        assertEquals(52.525, latitudes[3], 1e-9);
+    }
+
+    @Test
+    public void adaptsIntervalToSpeedAndAccuracy() {
+        assertEquals(60000, tracker.intervalFor(0.1f, 5));
+        assertEquals(1000, tracker.intervalFor(30, 5));
+        assertEquals(5000, tracker.intervalFor(2, 5));
+        assertEquals(25000, tracker.intervalFor(2, 50));
+
+        tracker.onFix(0, 52.52, 13.405, 5, 0);
+        assertEquals(60000, tracker.getInterval());
+    }
+
+    @Test
+    public void measuresDistance() {
+        // Brandenburg Gate to TV tower
+        assertEquals(2203, LocationTracker.distanceBetween(52.5163, 13.3777, 52.5208, 13.4094), 5);
+    }
+}
@@ -0,0 +1,137 @@
+package de.thepivi.android.dic;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Minimal benchmark harness for the plain JVM.
+ * <p/>
+ * Runs an operation for a number of warmup iterations, then times every
+ * measured iteration and counts the bytes the current thread allocated
+ * meanwhile. Allocation is only reported on JVMs providing
+ * {@code com.sun.management.ThreadMXBean}.
+ */
+final class MicroBenchmark {
+
+    interface Operation {
+
+        void run() throws Exception;
+    }
+
+    static final class Result {
+
+        final String name;
+        final int operations;
+        final double meanNanos;
+        final long p50Nanos;
+        final long p99Nanos;
+        final double bytesPerOperation;
+        final Exception failure;
+
+        Result(String name, int operations, double meanNanos, long p50Nanos, long p99Nanos,
+               double bytesPerOperation, Exception failure) {
+            this.name = name;
+            this.operations = operations;
+            this.meanNanos = meanNanos;
+            this.p50Nanos = p50Nanos;
+            this.p99Nanos = p99Nanos;
+            this.bytesPerOperation = bytesPerOperation;
+            this.failure = failure;
+        }
+
+        double operationsPerSecond() {
+            return meanNanos > 0 ? 1e9 / meanNanos : 0;
+        }
+
+        @Override
+        public String toString() {
+            if (null != failure) {
+                return String.format(Locale.US, "%-32s FAILED %s", name, failure);
+            }
+
+            return String.format(Locale.US, "%-32s %10.0f ns/op %10d p50 %10d p99 %12.0f ops/s %10.0f B/op",
+                    name, meanNanos, p50Nanos, p99Nanos, operationsPerSecond(), bytesPerOperation);
+        }
+    }
+
+    private static final com.sun.management.ThreadMXBean ALLOCATION_BEAN = allocationBean();
+
+    private final int warmupIterations;
+    private final int iterations;
+    private final long[] samples;
+
+    MicroBenchmark(int warmupIterations, int iterations) {
+        this.warmupIterations = warmupIterations;
+        this.iterations = iterations;
+        samples = new long[iterations];
+    }
+
+    Result measure(String name, Operation operation) {
+        try {
+            // warms up the timed loop too, its first run may allocate
+            run(operation, warmupIterations);
+
+            // reading the counter may allocate itself
+            long overhead = allocatedBytes();
+            overhead = allocatedBytes() - overhead;
+            long allocatedBefore = allocatedBytes();
+            long elapsed = run(operation, iterations);
+            long allocatedAfter = allocatedBytes();
+
+            Arrays.sort(samples);
+
+            return new Result(name, iterations, (double) elapsed / iterations,
+                    samples[iterations / 2], samples[(int) (iterations * 0.99)],
+                    allocatedBefore < 0 ? Double.NaN
+                            : (double) Math.max(0, allocatedAfter - allocatedBefore - overhead) / iterations,
+                    null);
+        } catch (Exception e) {
+            return new Result(name, 0, 0, 0, 0, 0, e);
+        }
+    }
+
+    /**
+     * Runs the operation, timing each run into the samples.
+     *
+     * @return the nanoseconds of all runs
+     */
+    private long run(Operation operation, int count) throws Exception {
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            long t0 = System.nanoTime();
+            operation.run();
+            samples[i % samples.length] = System.nanoTime() - t0;
+        }
+
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * @return the bytes allocated by the current thread so far or -1 if the
+     * JVM does not count them.
+     */
+    private static long allocatedBytes() {
+        return null != ALLOCATION_BEAN
+                ? ALLOCATION_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId()) : -1;
+    }
+
+    /**
+     * @return the bean counting the allocated bytes per thread or null if the
+     * JVM does not count them.
+     */
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+
+            if (sunBean.isThreadAllocatedMemorySupported() && sunBean.isThreadAllocatedMemoryEnabled()) {
+                return sunBean;
+            }
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,57 @@
+package de.thepivi.android.dic;
+
+import org.junit.Test;
+
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ProcessSamplerTest {
+
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+
+    @Test
+    public void parsesStat() {
+        byte[] stat = ("4711 (dic (worker) 1) S 312 312 0 0 -1 1077952832 2810 0 1 0 "
+                + "153 47 0 0 20 0 23 0 1234 1066778624 12345 18446744073709551615\n").getBytes(ASCII);
+        long[] result = new long[3];
+
+        assertTrue(ProcessSampler.parseStat(stat, stat.length, result));
+        assertEquals(153, result[0]);
+        assertEquals(47, result[1]);
+        assertEquals(23, result[2]);
+    }
+
+    @Test
+    public void rejectsTruncatedStat() {
+        byte[] stat = "4711 (dic) S 312 312 0 0 -1 1077952832 2810 0 1 0 153".getBytes(ASCII);
+
+        assertFalse(ProcessSampler.parseStat(stat, stat.length, new long[3]));
+        assertFalse(ProcessSampler.parseStat(stat, 0, new long[3]));
+    }
+
+    @Test
+    public void parsesStatm() {
+        byte[] statm = "260444 12345 8123 3 0 43211 0\n".getBytes(ASCII);
+
+        assertEquals(12345, ProcessSampler.parseStatmResident(statm, statm.length));
+        assertEquals(-1, ProcessSampler.parseStatmResident(statm, 0));
+    }
+
+    @Test
+    public void keepsLatestSamples() {
+        ProcessSampler sampler = new ProcessSampler(3);
+        long[] threads = new long[8];
+
+        for (int i = 0; i < 5; i++) {
+            sampler.sample();
+        }
+        sampler.shutdown();
+
+        assertEquals(5, sampler.getSampleCount());
+        assertEquals(3, sampler.getSeries(ProcessSampler.METRIC_THREAD_COUNT, threads));
+        assertTrue(threads[2] > 0);
+    }
+}
@@ -0,0 +1,49 @@
+package de.thepivi.android.dic;
+
+import org.junit.Test;
+
+import static de.thepivi.android.dic.TestSnapshots.sensor;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class SensorIndexTest {
+
+    private final SensorSnapshot accelerometer = sensor("Accelerometer", 1, "A", 0.01f, 0.4f, 19.6f);
+    private final SensorSnapshot lowPowerAccelerometer = sensor("Accelerometer LP", 1, "A", 0.1f, 0.1f, 19.6f);
+    private final SensorSnapshot fineAccelerometer = sensor("Accelerometer HR", 1, "A", 0.001f, 0.9f, 19.6f);
+    private final SensorSnapshot magnetometer = sensor("Magnetometer", 2, "M", 0.06f, 5f, 4912f);
+
+    private final SensorIndex index = new SensorIndex(new SensorSnapshot[]{
+            accelerometer, magnetometer, lowPowerAccelerometer, fineAccelerometer});
+
+    @Test
+    public void groupsByTypeOrderedByPower() {
+        assertArrayEquals(new SensorSnapshot[]{lowPowerAccelerometer, accelerometer, fineAccelerometer},
+                index.getSensors(1));
+        assertArrayEquals(new SensorSnapshot[]{magnetometer}, index.getSensors(2));
+        assertEquals(0, index.getSensors(4).length);
+        assertEquals(4, index.getSensors().length);
+    }
+
+    @Test
+    public void findsExtremes() {
+        assertSame(lowPowerAccelerometer, index.getLowestPower(1));
+        assertSame(fineAccelerometer, index.getFinestResolution(1));
+        assertNull(index.getLowestPower(4));
+        assertNull(index.getFinestResolution(4));
+    }
+
+    @Test
+    public void findsBelowLimits() {
+        assertArrayEquals(new SensorSnapshot[]{fineAccelerometer, accelerometer, magnetometer},
+                index.getResolutionBelow(0.1f));
+        assertArrayEquals(new SensorSnapshot[]{fineAccelerometer, accelerometer},
+                index.getResolutionBelow(1, 0.1f));
+        assertArrayEquals(new SensorSnapshot[]{lowPowerAccelerometer, accelerometer},
+                index.getPowerBelow(1, 0.5f));
+        assertEquals(0, index.getPowerBelow(2, 5f).length);
+        assertEquals(0, index.getResolutionBelow(0f).length);
+    }
+}
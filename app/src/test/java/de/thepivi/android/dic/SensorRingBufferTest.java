@@ -0,0 +1,88 @@
+package de.thepivi.android.dic;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SensorRingBufferTest {
+
+    @Test
+    public void aggregatesWindow() {
+        SensorRingBuffer buffer = new SensorRingBuffer(8);
+        SensorAggregate aggregate = new SensorAggregate();
+
+        for (int i = 1; i <= 4; i++) {
+            buffer.write(i * 1000L, new float[]{i, -i, 9.81f});
+        }
+
+        assertTrue(buffer.aggregate(2000, 0, aggregate));
+        assertEquals(3, aggregate.count);
+        assertEquals(2f, aggregate.min, 0f);
+        assertEquals(4f, aggregate.max, 0f);
+        assertEquals(3d, aggregate.mean, 1e-9);
+        assertEquals(2d / 3, aggregate.variance, 1e-9);
+        assertEquals(2000L, aggregate.firstTimestamp);
+        assertEquals(4000L, aggregate.lastTimestamp);
+    }
+
+    @Test
+    public void overwritesOldestSamples() {
+        SensorRingBuffer buffer = new SensorRingBuffer(4);
+        SensorAggregate aggregate = new SensorAggregate();
+        float[] latest = new float[SensorRingBuffer.VALUE_COUNT];
+
+        for (int i = 1; i <= 10; i++) {
+            buffer.write(i, new float[]{i});
+        }
+
+        assertTrue(buffer.aggregate(Long.MAX_VALUE / 2, 0, aggregate));
+        assertEquals(4, aggregate.count);
+        assertEquals(7f, aggregate.min, 0f);
+        assertEquals(10L, buffer.readLatest(latest));
+        assertArrayEquals(new float[]{10f, 0f, 0f}, latest, 0f);
+        assertEquals(10L, buffer.getWrittenCount());
+    }
+
+    @Test
+    public void emptyBuffer() {
+        SensorRingBuffer buffer = new SensorRingBuffer(4);
+        SensorAggregate aggregate = new SensorAggregate();
+
+        assertTrue(buffer.aggregate(1000, 1, aggregate));
+        assertEquals(0, aggregate.count);
+        assertEquals(-1L, buffer.readLatest(new float[SensorRingBuffer.VALUE_COUNT]));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsValueIndexOutOfRange() {
+        new SensorRingBuffer(4).aggregate(1000, SensorRingBuffer.VALUE_COUNT, new SensorAggregate());
+    }
+
+    @Test
+    public void readsWhileWriting() throws InterruptedException {
+        final SensorRingBuffer buffer = new SensorRingBuffer(64);
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                float[] sample = new float[3];
+                for (int i = 0; i < 200000; i++) {
+                    sample[0] = sample[1] = sample[2] = i;
+                    buffer.write(i, sample);
+                }
+            }
+        });
+        float[] latest = new float[SensorRingBuffer.VALUE_COUNT];
+
+        writer.start();
+        while (writer.isAlive()) {
+            long timestamp = buffer.readLatest(latest);
+            if (timestamp >= 0) {
+                assertEquals(timestamp, (long) latest[0]);
+                assertEquals(latest[0], latest[2], 0f);
+            }
+        }
+        writer.join();
+    }
+}
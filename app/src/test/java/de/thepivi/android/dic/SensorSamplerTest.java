@@ -0,0 +1,141 @@
+package de.thepivi.android.dic;
+
+import android.content.Context;
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+import android.hardware.SensorEventListener;
+import android.hardware.SensorManager;
+import android.os.Build;
+import android.os.Handler;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+public class SensorSamplerTest {
+
+    private static final int PERIOD_US = 20000;
+    private static final int LATENCY_US = 500000;
+
+    private final Context context = mock(Context.class);
+    private final SensorManager sensorManager = mock(SensorManager.class);
+    private final Sensor sensor = mock(Sensor.class);
+    private final Handler handler = mock(Handler.class);
+    private final SensorSampler.BatchListener listener = mock(SensorSampler.BatchListener.class);
+
+    @Before
+    public void setUp() {
+        when(context.getSystemService(Context.SENSOR_SERVICE)).thenReturn(sensorManager);
+        when(sensorManager.getDefaultSensor(Sensor.TYPE_ACCELEROMETER)).thenReturn(sensor);
+        when(sensorManager.registerListener(any(SensorEventListener.class), any(Sensor.class), anyInt(),
+                any(Handler.class))).thenReturn(true);
+        when(sensorManager.registerListener(any(SensorEventListener.class), any(Sensor.class), anyInt(),
+                anyInt(), any(Handler.class))).thenReturn(true);
+    }
+
+    @Test
+    public void batchesInHardwareFifo() throws Exception {
+        when(sensor.getFifoMaxEventCount()).thenReturn(3000);
+        SensorSampler sampler = new SensorSampler(context, 16, handler, Build.VERSION_CODES.KITKAT);
+
+        SensorRingBuffer buffer = sampler.startBatched(Sensor.TYPE_ACCELEROMETER, PERIOD_US, LATENCY_US,
+                listener);
+
+        assertNotNull(buffer);
+        ArgumentCaptor<SensorEventListener> channel = ArgumentCaptor.forClass(SensorEventListener.class);
+        verify(sensorManager).registerListener(channel.capture(), eq(sensor), eq(PERIOD_US),
+                eq(LATENCY_US), eq(handler));
+        verify(sensorManager, never()).registerListener(any(SensorEventListener.class), any(Sensor.class),
+                anyInt(), any(Handler.class));
+
+        // the burst is flushed right after the events already queued
+        channel.getValue().onSensorChanged(event(1000, 1f, 2f, 3f));
+        channel.getValue().onSensorChanged(event(2000, 4f, 5f, 6f));
+        verify(handler).postDelayed(any(Runnable.class), eq(0L));
+    }
+
+    @Test
+    public void batchesInSoftwareWithoutFifo() throws Exception {
+        when(sensor.getFifoMaxEventCount()).thenReturn(0);
+        SensorSampler sampler = new SensorSampler(context, 16, handler, Build.VERSION_CODES.KITKAT);
+
+        SensorRingBuffer buffer = sampler.startBatched(Sensor.TYPE_ACCELEROMETER, PERIOD_US, LATENCY_US,
+                listener);
+
+        ArgumentCaptor<SensorEventListener> channel = ArgumentCaptor.forClass(SensorEventListener.class);
+        verify(sensorManager).registerListener(channel.capture(), eq(sensor), eq(PERIOD_US), eq(handler));
+        verify(sensorManager, never()).registerListener(any(SensorEventListener.class), any(Sensor.class),
+                anyInt(), anyInt(), any(Handler.class));
+
+        channel.getValue().onSensorChanged(event(1000, 1f, 2f, 3f));
+        channel.getValue().onSensorChanged(event(2000, 4f, 5f, 6f));
+        channel.getValue().onSensorChanged(event(3000, 7f, 8f, 9f));
+
+        ArgumentCaptor<Runnable> flush = ArgumentCaptor.forClass(Runnable.class);
+        verify(handler, times(1)).postDelayed(flush.capture(), eq(LATENCY_US / 1000L));
+        verifyZeroInteractions(listener);
+
+        flush.getValue().run();
+        verify(listener).onBatch(Sensor.TYPE_ACCELEROMETER, buffer);
+        assertEquals(3, buffer.getWrittenCount());
+
+        // the next event starts the next batch
+        channel.getValue().onSensorChanged(event(4000, 1f, 1f, 1f));
+        verify(handler, times(2)).postDelayed(any(Runnable.class), anyLong());
+    }
+
+    @Test
+    public void batchesInSoftwareIfFifoRefusesLatency() {
+        when(sensor.getFifoMaxEventCount()).thenReturn(3000);
+        when(sensorManager.registerListener(any(SensorEventListener.class), any(Sensor.class), anyInt(),
+                anyInt(), any(Handler.class))).thenReturn(false);
+        SensorSampler sampler = new SensorSampler(context, 16, handler, Build.VERSION_CODES.KITKAT);
+
+        assertNotNull(sampler.startBatched(Sensor.TYPE_ACCELEROMETER, PERIOD_US, LATENCY_US, listener));
+
+        verify(sensorManager).registerListener(any(SensorEventListener.class), eq(sensor), eq(PERIOD_US),
+                eq(handler));
+        assertFalse(sampler.isHardwareBatched(Sensor.TYPE_ACCELEROMETER));
+    }
+
+    @Test
+    public void batchesInSoftwareBeforeKitKat() {
+        when(sensor.getFifoMaxEventCount()).thenReturn(3000);
+        SensorSampler sampler = new SensorSampler(context, 16, handler, Build.VERSION_CODES.JELLY_BEAN_MR2);
+
+        assertNotNull(sampler.startBatched(Sensor.TYPE_ACCELEROMETER, PERIOD_US, LATENCY_US, listener));
+
+        verify(sensorManager).registerListener(any(SensorEventListener.class), eq(sensor), eq(PERIOD_US),
+                eq(handler));
+    }
+
+    private static SensorEvent event(long timestamp, float... values) throws Exception {
+        Constructor<SensorEvent> constructor = SensorEvent.class.getDeclaredConstructor(int.class);
+        constructor.setAccessible(true);
+        SensorEvent event = constructor.newInstance(values.length);
+
+        Field field = SensorEvent.class.getField("values");
+        field.setAccessible(true);
+        field.set(event, values);
+        event.timestamp = timestamp;
+
+        return event;
+    }
+}
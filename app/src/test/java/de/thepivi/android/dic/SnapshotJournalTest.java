@@ -0,0 +1,122 @@
+package de.thepivi.android.dic;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class SnapshotJournalTest {
+
+    private static final int SEGMENT_SIZE = 256;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void readsRecordsAfterReopening() throws IOException {
+        File directory = folder.newFolder();
+        SnapshotJournal journal = new SnapshotJournal(directory, 64 * 1024, 1024 * 1024);
+        journal.append(TestSnapshots.create());
+        journal.append(record(1, 10), 0, 10);
+        journal.close();
+
+        journal = new SnapshotJournal(directory, 64 * 1024, 1024 * 1024);
+        journal.append(record(2, 20), 0, 20);
+        List<ByteBuffer> records = read(journal);
+
+        assertEquals(3, records.size());
+        assertEquals(TestSnapshots.create().timestamp, DeviceSnapshotCodec.decode(records.get(0)).timestamp);
+        assertEquals(10, records.get(1).remaining());
+        assertEquals(20, records.get(2).remaining());
+        assertEquals(2, records.get(2).get(19));
+    }
+
+    @Test
+    public void readsRecordsAfterClose() throws IOException {
+        SnapshotJournal journal = new SnapshotJournal(folder.newFolder(), SEGMENT_SIZE, 4 * SEGMENT_SIZE);
+        journal.append(record(1, 100), 0, 100);
+        journal.append(record(2, 100), 0, 100);
+        journal.append(record(3, 10), 0, 10);
+        journal.close();
+
+        List<ByteBuffer> records = read(journal);
+
+        assertEquals(3, records.size());
+        assertEquals(3, records.get(2).get(0));
+    }
+
+    @Test
+    public void rollsOverWithinBudget() throws IOException {
+        File directory = folder.newFolder();
+        SnapshotJournal journal = new SnapshotJournal(directory, SEGMENT_SIZE, 3 * SEGMENT_SIZE);
+
+        // two records of 108 bytes fill a segment
+        for (int i = 0; i < 20; i++) {
+            journal.append(record(i, 100), 0, 100);
+        }
+
+        List<ByteBuffer> records = read(journal);
+
+        assertEquals(3, directory.list().length);
+        assertEquals(3 * SEGMENT_SIZE, journal.getDiskUsage());
+        assertEquals(6, records.size());
+        assertEquals(14, records.get(0).get(0));
+        assertEquals(19, records.get(5).get(0));
+    }
+
+    @Test
+    public void recoversTornTail() throws IOException {
+        File directory = folder.newFolder();
+        SnapshotJournal journal = new SnapshotJournal(directory, SEGMENT_SIZE, 4 * SEGMENT_SIZE);
+        journal.append(record(1, 30), 0, 30);
+        journal.append(record(2, 30), 0, 30);
+        journal.close();
+
+        // corrupt the data of the second record
+        RandomAccessFile file = new RandomAccessFile(new File(directory, "1" + SnapshotJournal.SUFFIX), "rw");
+        file.seek(8 + 38 + 8 + 5);
+        file.write(0x55);
+        file.close();
+
+        journal = new SnapshotJournal(directory, SEGMENT_SIZE, 4 * SEGMENT_SIZE);
+        journal.append(record(3, 10), 0, 10);
+        List<ByteBuffer> records = read(journal);
+
+        assertEquals(2, records.size());
+        assertEquals(1, records.get(0).get(0));
+        assertEquals(3, records.get(1).get(0));
+    }
+
+    private static byte[] record(int value, int length) {
+        byte[] record = new byte[length];
+
+        for (int i = 0; i < length; i++) {
+            record[i] = (byte) value;
+        }
+
+        return record;
+    }
+
+    private static List<ByteBuffer> read(SnapshotJournal journal) throws IOException {
+        final List<ByteBuffer> records = new ArrayList<ByteBuffer>();
+
+        journal.read(new SnapshotJournal.RecordHandler() {
+            @Override
+            public void onRecord(ByteBuffer record) {
+                ByteBuffer copy = ByteBuffer.allocate(record.remaining());
+                copy.put(record).flip();
+                records.add(copy);
+            }
+        });
+
+        return records;
+    }
+}
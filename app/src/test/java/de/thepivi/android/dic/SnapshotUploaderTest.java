@@ -0,0 +1,175 @@
+package de.thepivi.android.dic;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Inflater;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class SnapshotUploaderTest {
+
+    private HttpServer server;
+    private final AtomicInteger failures = new AtomicInteger();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final BlockingQueue<byte[]> bodies = new LinkedBlockingQueue<byte[]>();
+    private SnapshotUploader uploader;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/snapshots", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                requests.incrementAndGet();
+                byte[] body = readAll(exchange.getRequestBody());
+
+                if (failures.getAndDecrement() > 0) {
+                    exchange.sendResponseHeaders(503, -1);
+                } else {
+                    assertEquals(SnapshotUploader.CONTENT_TYPE, exchange.getRequestHeaders().getFirst("Content-Type"));
+                    bodies.add(body);
+                    exchange.sendResponseHeaders(204, -1);
+                }
+                exchange.close();
+            }
+        });
+        server.start();
+
+        uploader = new SnapshotUploader(
+                new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/snapshots"), 2, 10, 100, 4);
+    }
+
+    @After
+    public void tearDown() {
+        uploader.shutdown();
+        server.stop(0);
+    }
+
+    @Test
+    public void uploadsCompressedBatches() throws Exception {
+        uploader.onBatch(Arrays.asList(TestSnapshots.create(), TestSnapshots.create(), TestSnapshots.create()));
+
+        List<DeviceSnapshot> received = decode(bodies.poll(5, TimeUnit.SECONDS));
+        received.addAll(decode(bodies.poll(5, TimeUnit.SECONDS)));
+
+        assertEquals(3, received.size());
+        assertEquals(TestSnapshots.create().timestamp, received.get(2).timestamp);
+        assertEquals(3, received.get(2).sensors.length);
+    }
+
+    @Test
+    public void retriesWithBackoff() throws Exception {
+        failures.set(2);
+
+        uploader.onBatch(Arrays.asList(TestSnapshots.create()));
+
+        assertNotNull(bodies.poll(5, TimeUnit.SECONDS));
+        assertEquals(3, requests.get());
+    }
+
+    @Test
+    public void releasesCrashedUploads() throws Exception {
+        uploader.shutdown();
+        uploader = new SnapshotUploader(
+                new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/snapshots"), 2, 10, 100, 4) {
+            @Override
+            int post(List<DeviceSnapshot> snapshots) {
+                throw new IllegalStateException("encoding failed");
+            }
+        };
+
+        for (int i = 0; i <= SnapshotUploader.MAX_PENDING_BATCHES; i++) {
+            uploader.onBatch(Arrays.asList(TestSnapshots.create()));
+        }
+
+        awaitNoPending();
+    }
+
+    @Test
+    public void dropsBatchAfterShutdown() {
+        uploader.shutdown();
+        uploader.onBatch(Arrays.asList(TestSnapshots.create()));
+
+        assertEquals(0, uploader.getPendingCount());
+        assertEquals(0, requests.get());
+    }
+
+    @Test
+    public void backoffGrowsUpToMaximum() {
+        for (int retry = 1; retry <= 10; retry++) {
+            long delay = uploader.delayFor(retry);
+            long expected = Math.min(100, 10L << (retry - 1));
+
+            assertTrue(delay >= expected / 2 && delay <= expected + 1);
+        }
+    }
+
+    private void awaitNoPending() throws InterruptedException {
+        for (int i = 0; i < 500 && uploader.getPendingCount() > 0; i++) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(0, uploader.getPendingCount());
+    }
+
+    private static List<DeviceSnapshot> decode(byte[] body) throws Exception {
+        assertNotNull(body);
+
+        Inflater inflater = new Inflater();
+        inflater.setInput(body);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        while (!inflater.finished()) {
+            int count = inflater.inflate(buffer);
+            if (count == 0 && inflater.needsDictionary()) {
+                inflater.setDictionary(SnapshotUploader.DICTIONARY);
+            }
+            out.write(buffer, 0, count);
+        }
+
+        byte[] data = out.toByteArray();
+        InputStream in = new BufferedInputStream(new ByteArrayInputStream(data));
+        List<DeviceSnapshot> snapshots = new ArrayList<DeviceSnapshot>();
+        while (true) {
+            in.mark(1);
+            if (in.read() < 0) break;
+            in.reset();
+            snapshots.add(DeviceSnapshotCodec.decode(in));
+        }
+
+        return snapshots;
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+
+        for (int count = in.read(buffer); count >= 0; count = in.read(buffer)) {
+            out.write(buffer, 0, count);
+        }
+
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,181 @@
+package de.thepivi.android.dic;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.hardware.Sensor;
+import android.hardware.SensorManager;
+import android.location.Criteria;
+import android.location.Location;
+import android.location.LocationManager;
+import android.net.Uri;
+import android.telephony.NeighboringCellInfo;
+import android.telephony.TelephonyManager;
+import android.telephony.gsm.GsmCellLocation;
+import android.util.DisplayMetrics;
+import android.view.Display;
+import android.view.WindowManager;
+
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Builds a {@link Context} for the plain JVM whose system services answer
+ * like a typical phone, so the collection paths can run outside a device.
+ */
+final class StubDevice {
+
+    private StubDevice() {
+    }
+
+    static Context create(int sensorCount) {
+        Context context = mock(Context.class);
+        when(context.getApplicationContext()).thenReturn(context);
+
+        Resources resources = mock(Resources.class);
+        Configuration configuration = configuration();
+        when(resources.getConfiguration()).thenReturn(configuration);
+        when(context.getResources()).thenReturn(resources);
+
+        ContentResolver resolver = mock(ContentResolver.class);
+        when(resolver.query(any(Uri.class), any(String[].class), anyString(), any(String[].class),
+                anyString())).thenReturn(null);
+        when(context.getContentResolver()).thenReturn(resolver);
+
+        // the services stub themselves, so they have to exist before the context is stubbed
+        TelephonyManager telephonyManager = telephonyManager();
+        WindowManager windowManager = windowManager();
+        SensorManager sensorManager = sensorManager(sensorCount);
+        LocationManager locationManager = locationManager();
+
+        when(context.getSystemService(Context.TELEPHONY_SERVICE)).thenReturn(telephonyManager);
+        when(context.getSystemService(Context.WINDOW_SERVICE)).thenReturn(windowManager);
+        when(context.getSystemService(Context.SENSOR_SERVICE)).thenReturn(sensorManager);
+        when(context.getSystemService(Context.LOCATION_SERVICE)).thenReturn(locationManager);
+
+        return context;
+    }
+
+    private static Configuration configuration() {
+        Configuration configuration = new Configuration();
+
+        configuration.fontScale = 1.0f;
+        configuration.hardKeyboardHidden = Configuration.HARDKEYBOARDHIDDEN_YES;
+        configuration.keyboard = Configuration.KEYBOARD_NOKEYS;
+        configuration.keyboardHidden = Configuration.KEYBOARDHIDDEN_NO;
+        configuration.locale = Locale.GERMANY;
+        configuration.mcc = 262;
+        configuration.mnc = 2;
+        configuration.navigation = Configuration.NAVIGATION_NONAV;
+        configuration.orientation = Configuration.ORIENTATION_PORTRAIT;
+        configuration.screenLayout = Configuration.SCREENLAYOUT_SIZE_NORMAL;
+        configuration.touchscreen = Configuration.TOUCHSCREEN_FINGER;
+
+        return configuration;
+    }
+
+    private static TelephonyManager telephonyManager() {
+        TelephonyManager telephonyManager = mock(TelephonyManager.class);
+        NeighboringCellInfo neighbor = mock(NeighboringCellInfo.class);
+
+        when(neighbor.getCid()).thenReturn(26363659);
+        when(neighbor.getRssi()).thenReturn(12);
+        when(neighbor.getNetworkType()).thenReturn(TelephonyManager.NETWORK_TYPE_UMTS);
+
+        when(telephonyManager.getCallState()).thenReturn(TelephonyManager.CALL_STATE_IDLE);
+        when(telephonyManager.getCellLocation()).thenReturn(new GsmCellLocation());
+        when(telephonyManager.getDataActivity()).thenReturn(TelephonyManager.DATA_ACTIVITY_INOUT);
+        when(telephonyManager.getDataState()).thenReturn(TelephonyManager.DATA_CONNECTED);
+        when(telephonyManager.getDeviceId()).thenReturn("358240051111110");
+        when(telephonyManager.getNeighboringCellInfo()).thenReturn(Arrays.asList(neighbor, neighbor));
+        when(telephonyManager.getNetworkCountryIso()).thenReturn("de");
+        when(telephonyManager.getNetworkOperator()).thenReturn("26202");
+        when(telephonyManager.getNetworkOperatorName()).thenReturn("Vodafone.de");
+        when(telephonyManager.getNetworkType()).thenReturn(TelephonyManager.NETWORK_TYPE_LTE);
+        when(telephonyManager.getPhoneType()).thenReturn(TelephonyManager.PHONE_TYPE_GSM);
+        when(telephonyManager.getSimCountryIso()).thenReturn("de");
+        when(telephonyManager.getSimOperator()).thenReturn("26202");
+        when(telephonyManager.getSimOperatorName()).thenReturn("Vodafone.de");
+        when(telephonyManager.getSimState()).thenReturn(TelephonyManager.SIM_STATE_READY);
+        when(telephonyManager.getDeviceSoftwareVersion()).thenReturn("01");
+
+        return telephonyManager;
+    }
+
+    private static WindowManager windowManager() {
+        WindowManager windowManager = mock(WindowManager.class);
+        Display display = mock(Display.class);
+
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                DisplayMetrics metrics = (DisplayMetrics) invocation.getArguments()[0];
+
+                metrics.widthPixels = 1080;
+                metrics.heightPixels = 1776;
+                metrics.density = 3.0f;
+                metrics.densityDpi = DisplayMetrics.DENSITY_XXHIGH;
+                metrics.xdpi = 442.451f;
+                metrics.ydpi = 443.345f;
+                return null;
+            }
+        }).when(display).getMetrics(any(DisplayMetrics.class));
+        when(windowManager.getDefaultDisplay()).thenReturn(display);
+
+        return windowManager;
+    }
+
+    private static SensorManager sensorManager(int sensorCount) {
+        SensorManager sensorManager = mock(SensorManager.class);
+        List<Sensor> sensors = new ArrayList<Sensor>(sensorCount);
+
+        for (int i = 0; i < sensorCount; i++) {
+            Sensor sensor = mock(Sensor.class);
+
+            when(sensor.getName()).thenReturn("Sensor " + i);
+            when(sensor.getType()).thenReturn(i % Sensor.TYPE_HEART_RATE + 1);
+            when(sensor.getVendor()).thenReturn("Vendor");
+            when(sensor.getVersion()).thenReturn(1);
+            when(sensor.getResolution()).thenReturn(0.01f);
+            when(sensor.getPower()).thenReturn(0.5f);
+            when(sensor.getMaximumRange()).thenReturn(100f);
+            sensors.add(sensor);
+        }
+        when(sensorManager.getSensorList(anyInt())).thenReturn(sensors);
+
+        return sensorManager;
+    }
+
+    private static LocationManager locationManager() {
+        LocationManager locationManager = mock(LocationManager.class);
+        Location location = mock(Location.class);
+
+        when(location.getProvider()).thenReturn(LocationManager.NETWORK_PROVIDER);
+        when(location.getLatitude()).thenReturn(52.520008);
+        when(location.getLongitude()).thenReturn(13.404954);
+        when(location.getAccuracy()).thenReturn(20f);
+        when(location.getTime()).thenReturn(1444000000000L);
+
+        when(locationManager.getAllProviders()).thenReturn(Arrays.asList(
+                LocationManager.GPS_PROVIDER, LocationManager.NETWORK_PROVIDER, "passive"));
+        when(locationManager.getBestProvider(any(Criteria.class), anyBoolean()))
+                .thenReturn(LocationManager.NETWORK_PROVIDER);
+        when(locationManager.getLastKnownLocation(anyString())).thenReturn(location);
+
+        return locationManager;
+    }
+}
@@ -0,0 +1,197 @@
+package de.thepivi.android.dic;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SystemInfoReaderTest {
+
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File proc;
+    private File sys;
+
+    @Before
+    public void setUp() throws IOException {
+        proc = folder.newFolder("proc");
+        sys = folder.newFolder("sys");
+
+        write(proc, "cpuinfo", "Processor\t: ARMv7 Processor rev 0 (v7l)\n"
+                + "processor\t: 0\nBogoMIPS\t: 38.40\n\n"
+                + "Hardware\t: Qualcomm MSM 8974 HAMMERHEAD (Flattened Device Tree)\n"
+                + "Revision\t: 000b\n");
+        write(proc, "meminfo", "MemTotal:        1899548 kB\n"
+                + "MemFree:          102316 kB\n"
+                + "Buffers:           21716 kB\n"
+                + "Cached:           577488 kB\n"
+                + "SwapCached:            0 kB\n");
+        write(sys, "devices/system/cpu/online", "0-1,3\n");
+        write(sys, "devices/system/cpu/cpu0/cpufreq/scaling_cur_freq", "1958400\n");
+        write(sys, "devices/system/cpu/cpu0/cpufreq/cpuinfo_min_freq", "300000\n");
+        write(sys, "devices/system/cpu/cpu0/cpufreq/cpuinfo_max_freq", "2265600\n");
+        write(sys, "devices/system/cpu/cpu1/cpufreq/scaling_cur_freq", "300000\n");
+        new File(sys, "devices/system/cpu/cpu3").mkdirs();
+        new File(sys, "devices/system/cpu/cpufreq").mkdirs();
+        write(sys, "class/thermal/thermal_zone0/type", "tsens_tz_sensor0\n");
+        write(sys, "class/thermal/thermal_zone0/temp", "37\n");
+        write(sys, "class/thermal/thermal_zone1/type", "battery\n");
+        write(sys, "class/thermal/thermal_zone1/temp", "-2500\n");
+    }
+
+    @Test
+    public void readsFixtureTree() {
+        SystemInfoReader reader = new SystemInfoReader(proc, sys);
+        SystemInfoSnapshot snapshot = reader.read();
+        reader.close();
+
+        assertEquals("Qualcomm MSM 8974 HAMMERHEAD (Flattened Device Tree)", snapshot.cpuHardware);
+        assertEquals(4, snapshot.getCpuCount());
+        assertEquals(0xb, snapshot.cpuOnline);
+        assertFalse(snapshot.isCpuOnline(2));
+        assertArrayEquals(new int[]{1958400, 300000, -1, -1}, snapshot.cpuCurFreq);
+        assertArrayEquals(new int[]{300000, -1, -1, -1}, snapshot.cpuMinFreq);
+        assertArrayEquals(new int[]{2265600, -1, -1, -1}, snapshot.cpuMaxFreq);
+        assertEquals(1899548, snapshot.memTotal);
+        assertEquals(102316, snapshot.memFree);
+        assertEquals(-1, snapshot.memAvailable);
+        assertEquals(577488, snapshot.memCached);
+        assertArrayEquals(new String[]{"tsens_tz_sensor0", "battery"}, snapshot.thermalType);
+        assertArrayEquals(new int[]{37, -2500}, snapshot.thermalTemp);
+    }
+
+    @Test
+    public void rereadsChangedFiles() throws IOException {
+        SystemInfoReader reader = new SystemInfoReader(proc, sys);
+        SystemInfoSnapshot snapshot = reader.read();
+        int[] curFreq = snapshot.cpuCurFreq;
+
+        write(sys, "devices/system/cpu/cpu0/cpufreq/scaling_cur_freq", "883200\n");
+        write(sys, "devices/system/cpu/cpu1/cpufreq/scaling_cur_freq", "");
+        write(sys, "devices/system/cpu/cpu3/cpufreq/scaling_cur_freq", "422400\n");
+        reader.read(snapshot);
+        assertEquals(-1, snapshot.cpuCurFreq[3]);
+        for (int i = 1; i < SystemInfoReader.MISSING_RETRY_READS; i++) {
+            reader.read(snapshot);
+        }
+        reader.close();
+
+        assertSame(curFreq, snapshot.cpuCurFreq);
+        assertArrayEquals(new int[]{883200, -1, -1, 422400}, snapshot.cpuCurFreq);
+    }
+
+    @Test
+    public void copiesZoneTypes() {
+        SystemInfoReader reader = new SystemInfoReader(proc, sys);
+        SystemInfoSnapshot snapshot = reader.read();
+        SystemInfoSnapshot other = reader.read();
+        snapshot.thermalType[1] = "changed";
+        reader.read(other);
+        reader.read(snapshot);
+        reader.close();
+
+        assertNotSame(snapshot.thermalType, other.thermalType);
+        assertArrayEquals(new String[]{"tsens_tz_sensor0", "battery"}, other.thermalType);
+        assertArrayEquals(new String[]{"tsens_tz_sensor0", "battery"}, snapshot.thermalType);
+    }
+
+    @Test
+    public void formatsZoneWithoutType() {
+        new File(sys, "class/thermal/thermal_zone1/type").delete();
+        SystemInfoReader reader = new SystemInfoReader(proc, sys);
+        SystemInfoSnapshot snapshot = reader.read();
+        reader.close();
+        StringBuilder sb = new StringBuilder();
+        DeviceSnapshotFormatter.appendSystem(sb, snapshot);
+
+        assertNull(snapshot.thermalType[1]);
+        assertTrue(sb.toString().contains("\nThermal1=unknown -2500m\u00b0C"));
+    }
+
+    @Test
+    public void readsWithoutAllocating() throws IOException {
+        // missing files are looked for again now and then, so all cores are complete
+        for (int cpu = 1; cpu < 4; cpu++) {
+            write(sys, "devices/system/cpu/cpu" + cpu + "/cpufreq/scaling_cur_freq", "300000\n");
+            write(sys, "devices/system/cpu/cpu" + cpu + "/cpufreq/cpuinfo_min_freq", "300000\n");
+            write(sys, "devices/system/cpu/cpu" + cpu + "/cpufreq/cpuinfo_max_freq", "2265600\n");
+        }
+        final SystemInfoReader reader = new SystemInfoReader(proc, sys);
+        final SystemInfoSnapshot snapshot = reader.read();
+
+        MicroBenchmark.Operation read = new MicroBenchmark.Operation() {
+            @Override
+            public void run() {
+                reader.read(snapshot);
+            }
+        };
+
+        // a recompilation by the JIT may allocate once, so the best of a few rounds counts
+        double bytesPerRead = Double.MAX_VALUE;
+        for (int round = 0; round < 3; round++) {
+            MicroBenchmark.Result result = new MicroBenchmark(1000, 1000).measure("read", read);
+            assertNull(result.failure);
+            bytesPerRead = Math.min(bytesPerRead, result.bytesPerOperation);
+        }
+        reader.close();
+
+        // NaN if the JVM does not count allocations
+        if (!Double.isNaN(bytesPerRead)) {
+            assertEquals(0, bytesPerRead, 0);
+        }
+    }
+
+    @Test
+    public void readsEmptyTree() throws IOException {
+        SystemInfoSnapshot snapshot = new SystemInfoReader(folder.newFolder(), folder.newFolder()).read();
+
+        assertEquals(null, snapshot.cpuHardware);
+        assertEquals(0, snapshot.getCpuCount());
+        assertEquals(-1, snapshot.memTotal);
+        assertEquals(0, snapshot.thermalTemp.length);
+    }
+
+    @Test
+    public void readsLiveTree() {
+        File meminfo = new File("/proc/meminfo");
+        if (!meminfo.exists()) return;
+
+        SystemInfoReader reader = new SystemInfoReader();
+        SystemInfoSnapshot snapshot = reader.read();
+        for (int i = 0; i < 10; i++) {
+            reader.read(snapshot);
+        }
+        reader.close();
+
+        assertTrue(snapshot.memTotal > 0);
+        assertTrue(snapshot.memFree <= snapshot.memTotal);
+    }
+
+    private static void write(File root, String path, String content) throws IOException {
+        File file = new File(root, path);
+        file.getParentFile().mkdirs();
+
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content.getBytes(ASCII));
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package de.thepivi.android.dic;
+
+import android.content.Context;
+import android.telephony.PhoneStateListener;
+import android.telephony.TelephonyManager;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TelephonyStateTrackerTest {
+
+    private TelephonyStateTracker tracker;
+    private PhoneStateListener listener;
+
+    @Before
+    public void setUp() {
+        Context context = mock(Context.class);
+        TelephonyManager telephonyManager = mock(TelephonyManager.class);
+        when(context.getSystemService(Context.TELEPHONY_SERVICE)).thenReturn(telephonyManager);
+
+        tracker = new TelephonyStateTracker(context, 3);
+        assertTrue(tracker.start());
+
+        ArgumentCaptor<PhoneStateListener> captor = ArgumentCaptor.forClass(PhoneStateListener.class);
+        verify(telephonyManager).listen(captor.capture(), anyInt());
+        listener = captor.getValue();
+    }
+
+    @Test
+    public void publishesLatestState() {
+        TelephonyStateTracker.State initial = tracker.getState();
+
+        listener.onCallStateChanged(TelephonyManager.CALL_STATE_RINGING, null);
+        listener.onDataConnectionStateChanged(TelephonyManager.DATA_CONNECTED,
+                TelephonyManager.NETWORK_TYPE_LTE);
+
+        TelephonyStateTracker.State state = tracker.getState();
+        assertNotSame(initial, state);
+        assertEquals(TelephonyManager.CALL_STATE_IDLE, initial.callState);
+        assertEquals(TelephonyManager.CALL_STATE_RINGING, state.callState);
+        assertEquals(TelephonyManager.DATA_CONNECTED, state.dataState);
+        assertEquals(TelephonyManager.NETWORK_TYPE_LTE, state.networkType);
+    }
+
+    @Test
+    public void keepsLatestTransitions() {
+        listener.onCallStateChanged(TelephonyManager.CALL_STATE_RINGING, null);
+        listener.onCallStateChanged(TelephonyManager.CALL_STATE_RINGING, null);
+        listener.onCallStateChanged(TelephonyManager.CALL_STATE_OFFHOOK, null);
+        listener.onDataActivity(TelephonyManager.DATA_ACTIVITY_IN);
+        listener.onDataConnectionStateChanged(TelephonyManager.DATA_CONNECTED,
+                TelephonyManager.NETWORK_TYPE_UMTS);
+
+        long[] timestamps = new long[8];
+        int[] kinds = new int[8];
+        int[] values = new int[8];
+
+        assertEquals(5, tracker.getTransitionCount());
+        assertEquals(3, tracker.getHistory(timestamps, kinds, values));
+        assertArrayEquals(new int[]{
+                TelephonyStateTracker.TRANSITION_DATA_ACTIVITY,
+                TelephonyStateTracker.TRANSITION_DATA_STATE,
+                TelephonyStateTracker.TRANSITION_NETWORK_TYPE, 0, 0, 0, 0, 0}, kinds);
+        assertEquals(TelephonyManager.NETWORK_TYPE_UMTS, values[2]);
+    }
+
+    @Test
+    public void publishesDataConnectionOnce() {
+        listener.onDataConnectionStateChanged(TelephonyManager.DATA_CONNECTED,
+                TelephonyManager.NETWORK_TYPE_LTE);
+        TelephonyStateTracker.State state = tracker.getState();
+
+        // the platform follows up with the one argument variant
+        listener.onDataConnectionStateChanged(TelephonyManager.DATA_CONNECTED);
+
+        assertSame(state, tracker.getState());
+        assertEquals(2, tracker.getTransitionCount());
+
+        listener.onDataConnectionStateChanged(TelephonyManager.DATA_SUSPENDED);
+
+        assertEquals(TelephonyManager.DATA_SUSPENDED, tracker.getState().dataState);
+        assertEquals(3, tracker.getTransitionCount());
+    }
+}
@@ -0,0 +1,148 @@
+package de.thepivi.android.dic;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Fully populated snapshots for the plain JVM tests.
+ */
+final class TestSnapshots {
+
+    private TestSnapshots() {
+    }
+
+    static DeviceSnapshot create() {
+        DeviceSnapshot snapshot = new DeviceSnapshot();
+
+        snapshot.timestamp = 1445000000000L;
+        snapshot.build = new BuildInfo("msm8974", "google", "armeabi-v7a", "hammerhead",
+                "MRA58N", "google/hammerhead/hammerhead:6.0/MRA58N/2289998:user/release-keys",
+                "wpiv9.hot.corp.google.com", "MRA58N", "LGE", "Nexus 5", "hammerhead",
+                "release-keys", 1443055357000L, "user", "android-build", "REL", "2289998",
+                "6.0", "23", 23);
+        snapshot.displayLanguage = "English";
+
+        snapshot.display = new DisplaySnapshot();
+        snapshot.display.widthPixels = 1080;
+        snapshot.display.heightPixels = 1776;
+        snapshot.display.density = 3.0f;
+        snapshot.display.densityDpi = 480;
+        snapshot.display.xdpi = 442.451f;
+        snapshot.display.ydpi = 443.345f;
+
+        snapshot.configuration = new ConfigurationSnapshot();
+        snapshot.configuration.fontScale = 1.0f;
+        snapshot.configuration.hardKeyboardHidden = 2;
+        snapshot.configuration.keyboard = 1;
+        snapshot.configuration.keyboardHidden = 1;
+        snapshot.configuration.locale = "en_US";
+        snapshot.configuration.mcc = 262;
+        snapshot.configuration.mnc = 7;
+        snapshot.configuration.navigation = 1;
+        snapshot.configuration.orientation = 1;
+        snapshot.configuration.screenLayout = 0x12;
+        snapshot.configuration.touchscreen = 3;
+
+        snapshot.secure = new SecureSettingsSnapshot();
+        for (int i = 0; i < snapshot.secure.values.length; i++) {
+            snapshot.secure.values[i] = i == 0 ? "9774d56d682e549c" : "0";
+        }
+
+        snapshot.telephony = new TelephonySnapshot();
+        snapshot.telephony.callState = 0;
+        snapshot.telephony.cellLocationType = TelephonySnapshot.CELL_LOCATION_GSM;
+        snapshot.telephony.gsmLac = 40495;
+        snapshot.telephony.gsmCid = 26363658;
+        snapshot.telephony.gsmPsc = 292;
+        snapshot.telephony.dataActivity = 3;
+        snapshot.telephony.dataState = 2;
+        snapshot.telephony.deviceId = "358239051234567";
+        snapshot.telephony.neighboringCellCid = new int[]{1234, -1};
+        snapshot.telephony.neighboringCellLac = new int[]{40495, -1};
+        snapshot.telephony.neighboringCellPsc = new int[]{-1, 301};
+        snapshot.telephony.neighboringCellRssi = new int[]{17, -5};
+        snapshot.telephony.neighboringCellNetworkType = new int[]{2, 3};
+        snapshot.telephony.networkCountryIso = "de";
+        snapshot.telephony.networkOperator = "26207";
+        snapshot.telephony.networkOperatorName = "o2 - de";
+        snapshot.telephony.networkType = 13;
+        snapshot.telephony.phoneType = 1;
+        snapshot.telephony.simCountryIso = "de";
+        snapshot.telephony.simOperator = "26207";
+        snapshot.telephony.simOperatorName = "o2 - de";
+        snapshot.telephony.simState = 5;
+        snapshot.telephony.softwareVersion = "01";
+
+        snapshot.environment = new EnvironmentSnapshot();
+        snapshot.environment.dataDirectory = "/data";
+        snapshot.environment.downloadCacheDirectory = "/cache";
+        snapshot.environment.externalStorageDirectory = "/storage/emulated/0";
+        snapshot.environment.externalStorageState = "mounted";
+        snapshot.environment.rootDirectory = "/system";
+
+        snapshot.sensors = new SensorSnapshot[]{
+                sensor("MPU6515 Accelerometer", 1, "InvenSense", 0.0011901855f, 0.4f, 19.6133f),
+                sensor("AK8963 Magnetometer", 2, "AKM", 0.0060f, 5.0f, 4911.9995f),
+                sensor("Gestensensor \u00fcber \u00e4u\u00dfere \ud83d\udc4b", 65536, "Qualcomm", 1f, 0f, 1f)
+        };
+        snapshot.sensors[0].fifoMaxEventCount = 10000;
+        snapshot.sensors[0].fifoReservedEventCount = 3000;
+
+        snapshot.process = new ProcessSnapshot();
+        snapshot.process.elapsedCpuTime = 123;
+        snapshot.process.pid = 4711;
+        snapshot.process.tid = 4711;
+        snapshot.process.uid = 10071;
+
+        snapshot.location = new LocationSnapshot();
+        snapshot.location.allProviders = new String[]{"passive", "gps", "network"};
+        snapshot.location.bestProvider = "network";
+        snapshot.location.hasGpsStatus = true;
+        snapshot.location.gpsMaxSatellites = 255;
+        snapshot.location.hasLastKnownLocation = true;
+        snapshot.location.accuracy = 21.5f;
+        snapshot.location.latitude = 52.520008;
+        snapshot.location.longitude = 13.404954;
+        snapshot.location.provider = "network";
+        snapshot.location.time = 1444999990000L;
+        snapshot.location.hasAccuracy = true;
+
+        snapshot.system = new SystemInfoSnapshot();
+        snapshot.system.cpuHardware = "Qualcomm MSM 8974 HAMMERHEAD (Flattened Device Tree)";
+        snapshot.system.cpuOnline = 0x3;
+        snapshot.system.cpuCurFreq = new int[]{1958400, 300000, -1, -1};
+        snapshot.system.cpuMinFreq = new int[]{300000, 300000, -1, -1};
+        snapshot.system.cpuMaxFreq = new int[]{2265600, 2265600, -1, -1};
+        snapshot.system.memTotal = 1899548;
+        snapshot.system.memFree = 102316;
+        snapshot.system.memAvailable = -1;
+        snapshot.system.memCached = 577488;
+        snapshot.system.thermalType = new String[]{"tsens_tz_sensor0", "pm8841_tz"};
+        snapshot.system.thermalTemp = new int[]{37, 41000};
+
+        return snapshot;
+    }
+
+    static SensorSnapshot sensor(String name, int type, String vendor, float resolution,
+                                 float power, float maximumRange) {
+        SensorSnapshot sensor = new SensorSnapshot();
+
+        sensor.name = name;
+        sensor.type = type;
+        sensor.version = 1;
+        sensor.vendor = vendor;
+        sensor.resolution = resolution;
+        sensor.power = power;
+        sensor.maximumRange = maximumRange;
+
+        return sensor;
+    }
+
+    static byte[] encode(DeviceSnapshot snapshot) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        DeviceSnapshotCodec.encode(snapshot, out);
+
+        return out.toByteArray();
+    }
+}
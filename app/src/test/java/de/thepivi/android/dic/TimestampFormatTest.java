@@ -0,0 +1,114 @@
+package de.thepivi.android.dic;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class TimestampFormatTest {
+
+    private final TimeZone defaultZone = TimeZone.getDefault();
+
+    @After
+    public void tearDown() {
+        TimeZone.setDefault(defaultZone);
+        TimestampFormat.resetTimeZone();
+    }
+
+    @Test
+    public void formatsUtc() {
+        assertEquals("1970-01-01T00:00:00.000Z", TimestampFormat.appendIso8601(new StringBuilder(), 0).toString());
+        assertEquals("2015-10-16T12:53:10.000Z",
+                TimestampFormat.appendIso8601(new StringBuilder(), 1444999990000L).toString());
+        assertEquals("1969-12-31T23:59:59.999Z", TimestampFormat.appendIso8601(new StringBuilder(), -1).toString());
+        assertEquals("2016-02-29T23:05:01.007Z",
+                TimestampFormat.appendIso8601(new StringBuilder(), 1456787101007L).toString());
+    }
+
+    @Test
+    public void formatsAcrossDaylightSaving() {
+        setDefaultZone("Europe/Berlin");
+
+        // the clocks went forward at 2015-03-29T01:00:00Z and back at 2015-10-25T01:00:00Z
+        assertEquals("2015-03-29T01:59:59.999+01:00", local(1427590799999L));
+        assertEquals("2015-03-29T03:00:00.000+02:00", local(1427590800000L));
+        assertEquals("2015-10-25T02:59:59.999+02:00", local(1445734799999L));
+        assertEquals("2015-10-25T02:00:00.000+01:00", local(1445734800000L));
+    }
+
+    @Test
+    public void followsDefaultZone() {
+        setDefaultZone("Europe/Berlin");
+        assertEquals("2015-10-16T14:53:10.000+02:00", local(1444999990000L));
+
+        setDefaultZone("America/New_York");
+        assertEquals("2015-10-16T08:53:10.000-04:00", local(1444999990000L));
+
+        setDefaultZone("Asia/Kolkata");
+        assertEquals("2015-10-16T18:23:10.000+05:30", local(1444999990000L));
+    }
+
+    @Test
+    public void matchesSimpleDateFormat() {
+        setDefaultZone("Europe/Berlin");
+        SimpleDateFormat utc = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.US);
+        utc.setTimeZone(TimeZone.getTimeZone("UTC"));
+        SimpleDateFormat local = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSXXX", Locale.US);
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder();
+
+        for (int i = 0; i < 10000; i++) {
+            long millis = (long) (random.nextDouble() * 4102444800000L);
+
+            sb.setLength(0);
+            assertEquals(utc.format(millis), TimestampFormat.appendIso8601(sb, millis).toString());
+            sb.setLength(0);
+            assertEquals(local.format(millis), TimestampFormat.appendIso8601Local(sb, millis).toString());
+        }
+    }
+
+    @Test
+    public void formatsWithoutAllocating() {
+        setDefaultZone("Europe/Berlin");
+        final StringBuilder sb = new StringBuilder(64);
+        MicroBenchmark.Operation format = new MicroBenchmark.Operation() {
+            private long millis = 1444999990000L;
+
+            @Override
+            public void run() {
+                sb.setLength(0);
+                TimestampFormat.appendIso8601Local(sb, millis);
+                TimestampFormat.appendIso8601(sb, millis);
+                millis += 3600007L;
+            }
+        };
+
+        // a recompilation by the JIT may allocate once, so the best of a few rounds counts
+        double bytesPerFormat = Double.MAX_VALUE;
+        for (int round = 0; round < 3; round++) {
+            MicroBenchmark.Result result = new MicroBenchmark(1000, 1000).measure("format", format);
+            assertNull(result.failure);
+            bytesPerFormat = Math.min(bytesPerFormat, result.bytesPerOperation);
+        }
+
+        // NaN if the JVM does not count allocations
+        if (!Double.isNaN(bytesPerFormat)) {
+            assertEquals(0, bytesPerFormat, 0);
+        }
+    }
+
+    private static void setDefaultZone(String id) {
+        TimeZone.setDefault(TimeZone.getTimeZone(id));
+        TimestampFormat.resetTimeZone();
+    }
+
+    private static String local(long millis) {
+        return TimestampFormat.appendIso8601Local(new StringBuilder(), millis).toString();
+    }
+}